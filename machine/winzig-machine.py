@@ -73,19 +73,15 @@ def process_instruction():
                 I = Return_Stack.pop()
                 close_frame(int(instructions[I][1]))
             case ["GOTO", L]:
-                L = labels[L]
                 I = L
                 continue
             case ["COND", L, M]:
-                L = labels[L]
-                M = labels[M]
                 if pop_Lf():
                     I = L
                 else:
                     I = M
                 continue
             case ["CODE", F]:
-                F = labels[F]
                 push_Lf(F)
             case ["SOS", i]:
                 operating_system(i)
@@ -94,6 +90,14 @@ def process_instruction():
         break
 
 
+def resolve_branches():
+    # Replace branch targets by addresses once, so that branches do not look up labels.
+    # Targets are either labels, or addresses already when compiled with -resolve.
+    for words in instructions:
+        if words and words[0] in ("GOTO", "COND", "CODE"):
+            words[1:] = [labels[target] if target in labels else int(target) for target in words[1:]]
+
+
 def unop(i, X):
     match i:
         case "UNOT":
@@ -185,7 +189,7 @@ def push_Lf(v):
 
 
 def top_Lf():
-    Data_memory[STR]
+    return Data_memory[STR]
 
 
 def pop_Lf():
@@ -242,6 +246,7 @@ if __name__ == "__main__":
                 label, *rest = ("|" + line).split()
                 labels[label[1:]] = len(instructions)
                 instructions.append(rest)
+        resolve_branches()
 
         print(machine_interpreter())
     else:
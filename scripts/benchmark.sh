@@ -0,0 +1,2 @@
+# usage: benchmark.sh [parsers|nodes|trivia|keywords|lexer|bodies] [corpus|functions], or benchmark.sh [corpus]
+./gradlew shadowJar -q && java -cp build/libs/winzig-compiler-1.0-SNAPSHOT-all.jar ParserBenchmark "${@:-examples}"
@@ -0,0 +1 @@
+./gradlew shadowJar -q && java -cp build/libs/winzig-compiler-1.0-SNAPSHOT-all.jar PeepholeReport "${1:-examples}"
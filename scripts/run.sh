@@ -1,2 +1,6 @@
+if [ "$1" = "-ast" ]; then
+  ./gradlew shadowJar -q && java -jar build/libs/winzig-compiler-1.0-SNAPSHOT-all.jar -ast "$2"
+  exit
+fi
 ./gradlew shadowJar -q && java -jar build/libs/winzig-compiler-1.0-SNAPSHOT-all.jar "$1" > test.abs
 python ./machine/winzig-machine.py test.abs "$2"
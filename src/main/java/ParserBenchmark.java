@@ -0,0 +1,570 @@
+import lexer.CharReader;
+import lexer.KeywordTrie;
+import lexer.LexerTerminals;
+import lexer.NameTable;
+import lexer.PackedTokenStream;
+import lexer.ParallelLexer;
+import lexer.WinZigLexer;
+import lexer.tokens.TokenKind;
+import lexer.tokens.Token;
+import parser.AbstractParser;
+import parser.NodeStack;
+import parser.ParseListener;
+import parser.TableDrivenParser;
+import parser.WinZigParser;
+import parser.nodes.ASTNode;
+import parser.nodes.IdentifierNode;
+import parser.nodes.LazyASTNode;
+import parser.nodes.Node;
+import parser.nodes.NodeKind;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.Stack;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Benchmarks of the front end, run as suites selected by the first argument:
+ * <ul>
+ * <li>{@code parsers [corpus]} compares the throughput and allocation of the recursive descent and the
+ * table-driven parser. Every program of the corpus is lexed once, and each parser then parses all of them
+ * repeatedly. This is the default suite, and a corpus directory may also be given on its own.</li>
+ * <li>{@code nodes [corpus]} compares building the trees of a corpus with the node stack of the parsers
+ * against a synchronized {@link Stack} and a temporary stack per node, as the parsers did before.</li>
+ * <li>{@code trivia [corpus]} compares the throughput and allocation per token of lexing a corpus with full
+ * minutiae and without them.</li>
+ * <li>{@code keywords [corpus]} compares classifying the words of a corpus as keywords or identifiers
+ * with the keyword trie against the string switch the lexer used before, and times the whole lexer.</li>
+ * <li>{@code lexer [functions]} times the parallel lexer over a generated program across pool sizes and
+ * chunk counts.</li>
+ * <li>{@code bodies [functions]} compares eager, skeleton and parallel parses of a generated program
+ * with many functions.</li>
+ * </ul>
+ */
+public class ParserBenchmark {
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int MEASURED_ROUNDS = 20;
+    // Parses of the corpus per round, so that a round of a small corpus is long enough to time.
+    private static final int PASSES_PER_ROUND = 200;
+    private static final int DEFAULT_FUNCTION_COUNT = 5000;
+    // Enough functions for a source of several megabytes, so that every chunk has plenty of lines.
+    private static final int DEFAULT_LEXED_FUNCTION_COUNT = 20_000;
+    // Both keyword classifiers must find the same keywords, which also keeps the work from being optimized away.
+    private static int keywordCount = -1;
+
+    private final List<PackedTokenStream> programs;
+    private final long tokenCount;
+
+    public ParserBenchmark(List<PackedTokenStream> programs) {
+        this.programs = programs;
+        this.tokenCount = programs.stream().mapToLong(PackedTokenStream::size).sum();
+    }
+
+    /**
+     * Time a parser over the corpus and print its throughput and allocation.
+     *
+     * @param name    the name to print.
+     * @param factory creates a parser of a program.
+     * @param flat    whether to parse into flat trees instead of AST nodes.
+     */
+    public void run(String name, Function<PackedTokenStream, AbstractParser> factory, boolean flat) {
+        measure(name, tokenCount * PASSES_PER_ROUND, () -> parseCorpus(factory, flat));
+    }
+
+    /**
+     * Time a round of work and print its throughput and allocation.
+     *
+     * @param name           the name to print.
+     * @param tokensPerRound the number of tokens processed by a round.
+     * @param round          does one round of work.
+     */
+    private static void measure(String name, long tokensPerRound, Runnable round) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            round.run();
+        }
+        long bestNanos = Long.MAX_VALUE;
+        long totalNanos = 0;
+        long allocatedBytes = 0;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            long allocatedBefore = getAllocatedBytes();
+            long start = System.nanoTime();
+            round.run();
+            long nanos = System.nanoTime() - start;
+            allocatedBytes += getAllocatedBytes() - allocatedBefore;
+            bestNanos = Math.min(bestNanos, nanos);
+            totalNanos += nanos;
+        }
+        System.out.printf("%-20s best %8.2f ms  mean %8.2f ms  %7.2f Mtokens/s  %7.1f bytes/token%n",
+                name, bestNanos / 1e6, totalNanos / 1e6 / MEASURED_ROUNDS,
+                (double) tokensPerRound / bestNanos * 1e3,
+                allocatedBytes < 0 ? Double.NaN : (double) allocatedBytes / tokensPerRound / MEASURED_ROUNDS);
+    }
+
+    private void parseCorpus(Function<PackedTokenStream, AbstractParser> factory, boolean flat) {
+        for (int pass = 0; pass < PASSES_PER_ROUND; pass++) {
+            for (PackedTokenStream program : programs) {
+                AbstractParser parser = factory.apply(program);
+                if (flat) {
+                    parser.parseFlat();
+                } else {
+                    parser.parse();
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the bytes allocated by all live threads so far, so that work done on pool threads is counted,
+     * or -1 if the JVM does not report it.
+     */
+    private static long getAllocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        long[] threadIds = threads.getAllThreadIds();
+        long total = 0;
+        for (long bytes : ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(threadIds)) {
+            // Threads that ended since their ids were read report -1.
+            total += Math.max(bytes, 0);
+        }
+        return total;
+    }
+
+    private static List<Path> listCorpus(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            // Expected trees of the examples are kept next to them with an extension.
+            return paths.filter(Files::isRegularFile)
+                    .filter(path -> !path.getFileName().toString().contains("."))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static List<String> readCorpus(Path directory) throws IOException {
+        List<String> texts = new ArrayList<>();
+        for (Path file : listCorpus(directory)) {
+            texts.add(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+        }
+        return texts;
+    }
+
+    private static List<PackedTokenStream> lexCorpus(Path directory) throws IOException {
+        List<PackedTokenStream> programs = new ArrayList<>();
+        for (Path file : listCorpus(directory)) {
+            try (CharReader charReader = CharReader.from(file)) {
+                programs.add(new ParallelLexer(charReader).lex());
+            }
+        }
+        return programs;
+    }
+
+    /**
+     * Time building the trees of the corpus from its recorded parse events, so that only the node stack differs.
+     */
+    private static void runNodes(Path directory) throws IOException {
+        List<Token> leaves = new ArrayList<>();
+        List<NodeKind> kinds = new ArrayList<>();
+        List<Integer> childCounts = new ArrayList<>();
+        for (PackedTokenStream program : lexCorpus(directory)) {
+            new WinZigParser(program).parse(new ParseListener() {
+                @Override
+                public void token(Token token) {
+                    leaves.add(token);
+                    kinds.add(null);
+                    childCounts.add(0);
+                }
+
+                @Override
+                public void exit(NodeKind kind, int childCount) {
+                    leaves.add(null);
+                    kinds.add(kind);
+                    childCounts.add(childCount);
+                }
+            });
+        }
+        int eventCount = kinds.size();
+        System.out.printf("%d events, %d passes per round%n", eventCount, PASSES_PER_ROUND);
+
+        long eventsPerRound = (long) eventCount * PASSES_PER_ROUND;
+        measure("java.util.Stack", eventsPerRound, () -> {
+            for (int pass = 0; pass < PASSES_PER_ROUND; pass++) {
+                Stack<Node> stack = new Stack<>();
+                for (int i = 0; i < eventCount; i++) {
+                    NodeKind kind = kinds.get(i);
+                    if (kind == null) {
+                        stack.push(new IdentifierNode(leaves.get(i)));
+                        continue;
+                    }
+                    int childCount = childCounts.get(i);
+                    Stack<Node> reversed = new Stack<>();
+                    for (int j = 0; j < childCount; j++) {
+                        reversed.push(stack.pop());
+                    }
+                    Node[] children = new Node[childCount];
+                    for (int j = 0; j < childCount; j++) {
+                        children[j] = reversed.pop();
+                    }
+                    stack.push(new ASTNode(kind, children));
+                }
+            }
+        });
+        measure("node stack", eventsPerRound, () -> {
+            for (int pass = 0; pass < PASSES_PER_ROUND; pass++) {
+                NodeStack stack = new NodeStack();
+                for (int i = 0; i < eventCount; i++) {
+                    NodeKind kind = kinds.get(i);
+                    if (kind == null) {
+                        stack.push(new IdentifierNode(leaves.get(i)));
+                        continue;
+                    }
+                    stack.push(new ASTNode(kind, stack.pop(childCounts.get(i))));
+                }
+            }
+        });
+    }
+
+    /**
+     * Time keyword classification of every word of the corpus, and the lexer over the whole corpus.
+     */
+    private static void runKeywords(Path directory) throws IOException {
+        List<String> texts = readCorpus(directory);
+        // Words of all the programs, as the lexer scans them, kept as ranges of one buffer.
+        StringBuilder buffer = new StringBuilder();
+        List<int[]> ranges = new ArrayList<>();
+        for (String text : texts) {
+            int i = 0;
+            while (i < text.length()) {
+                if (!isWordStart(text.charAt(i))) {
+                    i++;
+                    continue;
+                }
+                int start = i;
+                while (i < text.length() && isWordPart(text.charAt(i))) {
+                    i++;
+                }
+                ranges.add(new int[]{buffer.length(), buffer.length() + i - start});
+                buffer.append(text, start, i).append(' ');
+            }
+        }
+        char[] chars = buffer.toString().toCharArray();
+        int wordCount = ranges.size();
+        int[] starts = new int[wordCount];
+        int[] ends = new int[wordCount];
+        for (int i = 0; i < wordCount; i++) {
+            starts[i] = ranges.get(i)[0];
+            ends[i] = ranges.get(i)[1];
+        }
+        long tokenCount = 0;
+        for (String text : texts) {
+            tokenCount += lexAll(new WinZigLexer(CharReader.from(text)));
+        }
+        System.out.printf("%d programs, %d words, %d tokens, %d passes per round%n",
+                texts.size(), wordCount, tokenCount, PASSES_PER_ROUND);
+
+        long wordsPerRound = (long) wordCount * PASSES_PER_ROUND;
+        measure("string switch", wordsPerRound, () -> {
+            for (int pass = 0; pass < PASSES_PER_ROUND; pass++) {
+                int keywords = 0;
+                for (int i = 0; i < wordCount; i++) {
+                    if (classifyWithSwitch(new String(chars, starts[i], ends[i] - starts[i])) != null) keywords++;
+                }
+                checkKeywordCount(keywords);
+            }
+        });
+        measure("keyword trie", wordsPerRound, () -> {
+            for (int pass = 0; pass < PASSES_PER_ROUND; pass++) {
+                int keywords = 0;
+                for (int i = 0; i < wordCount; i++) {
+                    int state = KeywordTrie.ROOT_STATE;
+                    for (int j = starts[i]; j < ends[i]; j++) {
+                        state = KeywordTrie.next(state, chars[j]);
+                    }
+                    if (KeywordTrie.match(state) != null) keywords++;
+                }
+                checkKeywordCount(keywords);
+            }
+        });
+        measure("lexer", tokenCount * PASSES_PER_ROUND, () -> {
+            for (int pass = 0; pass < PASSES_PER_ROUND; pass++) {
+                for (String text : texts) {
+                    lexAll(new WinZigLexer(CharReader.from(text)));
+                }
+            }
+        });
+    }
+
+    private static boolean isWordStart(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+    }
+
+    private static boolean isWordPart(char c) {
+        return isWordStart(c) || (c >= '0' && c <= '9');
+    }
+
+    private static void checkKeywordCount(int keywords) {
+        if (keywordCount == -1) {
+            keywordCount = keywords;
+        } else if (keywordCount != keywords) {
+            throw new IllegalStateException("Found " + keywords + " keywords instead of " + keywordCount + ".");
+        }
+    }
+
+    /**
+     * Time lexing the corpus with and without minutiae. Readers are created once and sliced for each lex,
+     * so that only the allocation of the lexer itself is counted.
+     */
+    private static void runTrivia(Path directory) throws IOException {
+        List<String> texts = readCorpus(directory);
+        CharReader[] readers = new CharReader[texts.size()];
+        long tokenCount = 0;
+        for (int i = 0; i < readers.length; i++) {
+            readers[i] = CharReader.from(texts.get(i));
+            tokenCount += lexAll(new WinZigLexer(readers[i].slice(0, texts.get(i).length())));
+        }
+        System.out.printf("%d programs, %d tokens, %d passes per round%n",
+                texts.size(), tokenCount, PASSES_PER_ROUND);
+        for (boolean collectMinutiae : new boolean[]{true, false}) {
+            measure(collectMinutiae ? "full minutiae" : "trivia-free", tokenCount * PASSES_PER_ROUND, () -> {
+                for (int pass = 0; pass < PASSES_PER_ROUND; pass++) {
+                    // Names are interned into one table per pass, as when compiling the corpus.
+                    NameTable names = new NameTable();
+                    for (int i = 0; i < readers.length; i++) {
+                        CharReader reader = readers[i].slice(0, texts.get(i).length());
+                        lexAll(new WinZigLexer(reader, collectMinutiae, names));
+                    }
+                }
+            });
+        }
+    }
+
+    private static int lexAll(WinZigLexer lexer) {
+        int count = 1;
+        while (lexer.read().getKind() != TokenKind.EOF_TOKEN) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Classify a word the way the lexer did before the keyword trie, by switching on it as a string.
+     *
+     * @return the keyword kind or null for an identifier.
+     */
+    private static TokenKind classifyWithSwitch(String word) {
+        switch (word) {
+            case LexerTerminals.PROGRAM_KEYWORD:
+                return TokenKind.PROGRAM_KEYWORD;
+            case LexerTerminals.VAR_KEYWORD:
+                return TokenKind.VAR_KEYWORD;
+            case LexerTerminals.CONST_KEYWORD:
+                return TokenKind.CONST_KEYWORD;
+            case LexerTerminals.TYPE_KEYWORD:
+                return TokenKind.TYPE_KEYWORD;
+            case LexerTerminals.FUNCTION_KEYWORD:
+                return TokenKind.FUNCTION_KEYWORD;
+            case LexerTerminals.RETURN_KEYWORD:
+                return TokenKind.RETURN_KEYWORD;
+            case LexerTerminals.BEGIN_KEYWORD:
+                return TokenKind.BEGIN_KEYWORD;
+            case LexerTerminals.END_KEYWORD:
+                return TokenKind.END_KEYWORD;
+            case LexerTerminals.OUTPUT_KEYWORD:
+                return TokenKind.OUTPUT_KEYWORD;
+            case LexerTerminals.IF_KEYWORD:
+                return TokenKind.IF_KEYWORD;
+            case LexerTerminals.THEN_KEYWORD:
+                return TokenKind.THEN_KEYWORD;
+            case LexerTerminals.ELSE_KEYWORD:
+                return TokenKind.ELSE_KEYWORD;
+            case LexerTerminals.WHILE_KEYWORD:
+                return TokenKind.WHILE_KEYWORD;
+            case LexerTerminals.DO_KEYWORD:
+                return TokenKind.DO_KEYWORD;
+            case LexerTerminals.CASE_KEYWORD:
+                return TokenKind.CASE_KEYWORD;
+            case LexerTerminals.OF_KEYWORD:
+                return TokenKind.OF_KEYWORD;
+            case LexerTerminals.OTHERWISE_KEYWORD:
+                return TokenKind.OTHERWISE_KEYWORD;
+            case LexerTerminals.REPEAT_KEYWORD:
+                return TokenKind.REPEAT_KEYWORD;
+            case LexerTerminals.FOR_KEYWORD:
+                return TokenKind.FOR_KEYWORD;
+            case LexerTerminals.UNTIL_KEYWORD:
+                return TokenKind.UNTIL_KEYWORD;
+            case LexerTerminals.LOOP_KEYWORD:
+                return TokenKind.LOOP_KEYWORD;
+            case LexerTerminals.POOL_KEYWORD:
+                return TokenKind.POOL_KEYWORD;
+            case LexerTerminals.EXIT_KEYWORD:
+                return TokenKind.EXIT_KEYWORD;
+            case LexerTerminals.MOD_KEYWORD:
+                return TokenKind.MOD_KEYWORD;
+            case LexerTerminals.AND_KEYWORD:
+                return TokenKind.AND_KEYWORD;
+            case LexerTerminals.OR_KEYWORD:
+                return TokenKind.OR_KEYWORD;
+            case LexerTerminals.NOT_KEYWORD:
+                return TokenKind.NOT_KEYWORD;
+            case LexerTerminals.READ_KEYWORD:
+                return TokenKind.READ_KEYWORD;
+            case LexerTerminals.SUCC_KEYWORD:
+                return TokenKind.SUCC_KEYWORD;
+            case LexerTerminals.PRED_KEYWORD:
+                return TokenKind.PRED_KEYWORD;
+            case LexerTerminals.CHR_KEYWORD:
+                return TokenKind.CHR_KEYWORD;
+            case LexerTerminals.ORD_KEYWORD:
+                return TokenKind.ORD_KEYWORD;
+            case LexerTerminals.EOF_KEYWORD:
+                return TokenKind.EOF_KEYWORD;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Generate a valid program with the given number of functions, each of which is called from the main body.
+     */
+    static String generateProgram(int functionCount) {
+        StringBuilder program = new StringBuilder("program generated:\nvar x: integer;\n");
+        for (int i = 0; i < functionCount; i++) {
+            program.append("function f").append(i).append("(a: integer): integer;\n")
+                    .append("var b: integer;\n")
+                    .append("begin\n")
+                    .append("    b := a * 2 + ").append(i).append(";\n")
+                    .append("    if b > 10 then b := b - 1 else b := b + 1;\n")
+                    .append("    while b > 0 do b := b - 3;\n")
+                    .append("    return (b)\n")
+                    .append("end f").append(i).append(";\n");
+        }
+        program.append("begin\n");
+        for (int i = 0; i < functionCount; i++) {
+            program.append("    x := f").append(i).append("(").append(i).append(");\n");
+        }
+        return program.append("    output(x)\nend generated.\n").toString();
+    }
+
+    private static void runParsers(Path directory) throws IOException {
+        List<PackedTokenStream> programs = lexCorpus(directory);
+        ParserBenchmark benchmark = new ParserBenchmark(programs);
+        System.out.printf("%d programs, %d tokens, %d passes per round%n",
+                programs.size(), benchmark.tokenCount, PASSES_PER_ROUND);
+        benchmark.run("recursive descent", WinZigParser::new, false);
+        benchmark.run("table-driven", TableDrivenParser::new, false);
+        benchmark.run("recursive flat", WinZigParser::new, true);
+        benchmark.run("table-driven flat", TableDrivenParser::new, true);
+    }
+
+    /**
+     * Compare the ways of parsing function bodies over a program with many functions.
+     * The skeleton parse alone is what an outline of the program costs, while expanding all of its bodies
+     * afterwards shows the overhead of parsing them lazily.
+     */
+    private static void runBodies(int functionCount) {
+        PackedTokenStream tokens = new ParallelLexer(CharReader.from(generateProgram(functionCount))).lex();
+        WinZigParser check = new WinZigParser(tokens);
+        check.parse();
+        if (check.hasErrors()) {
+            throw new IllegalStateException("Generated program does not parse:\n" + check.collectErrors());
+        }
+        System.out.printf("%d functions, %d tokens%n", functionCount, tokens.size());
+        measure("eager", tokens.size(), () -> new WinZigParser(tokens).parse());
+        measure("skeleton", tokens.size(), () -> new WinZigParser(tokens).parseSkeleton());
+        measure("skeleton expanded", tokens.size(), () -> expandBodies(new WinZigParser(tokens).parseSkeleton()));
+        int maxParallelism = Runtime.getRuntime().availableProcessors();
+        for (int parallelism = 1; parallelism <= maxParallelism; parallelism *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                measure("parallel x" + parallelism, tokens.size(), () -> new WinZigParser(tokens).parseParallel(pool));
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Time the parallel lexer over a generated program, for each pool size with as many chunks as workers
+     * and with several chunks per worker, against lexing the source as a single chunk.
+     */
+    private static void runLexer(int functionCount) {
+        String text = generateProgram(functionCount);
+        CharReader charReader = CharReader.from(text);
+        long tokenCount = new ParallelLexer(charReader, ForkJoinPool.commonPool(), 1).lex().size();
+        System.out.printf("%d functions, %d chars, %d tokens%n", functionCount, text.length(), tokenCount);
+        int maxParallelism = Runtime.getRuntime().availableProcessors();
+        for (int parallelism = 1; parallelism <= maxParallelism; parallelism *= 2) {
+            SortedSet<Integer> chunkCounts = new TreeSet<>();
+            chunkCounts.add(1);
+            chunkCounts.add(parallelism);
+            chunkCounts.add(parallelism * 4);
+            chunkCounts.add(parallelism * 16);
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                for (int chunkCount : chunkCounts) {
+                    measure("x" + parallelism + " " + chunkCount + " chunks", tokenCount, () -> {
+                        PackedTokenStream tokens = new ParallelLexer(charReader, pool, chunkCount).lex();
+                        if (tokens.size() != tokenCount) {
+                            throw new IllegalStateException("Lexed " + tokens.size() + " tokens instead of "
+                                    + tokenCount + " with " + chunkCount + " chunks.");
+                        }
+                    });
+                }
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    private static void expandBodies(ASTNode program) {
+        // Functions are the fifth child of the program, and each keeps its body as a lazy node.
+        for (Node fcn : ((ASTNode) program.getChild(4)).getChildren()) {
+            for (Node child : ((ASTNode) fcn).getChildren()) {
+                if (child instanceof LazyASTNode) {
+                    ((LazyASTNode) child).getChildren();
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        String suite = args.length > 0 ? args[0] : "parsers";
+        switch (suite) {
+            case "parsers":
+                runParsers(Paths.get(args.length > 1 ? args[1] : "examples"));
+                break;
+            case "nodes":
+                runNodes(Paths.get(args.length > 1 ? args[1] : "examples"));
+                break;
+            case "trivia":
+                runTrivia(Paths.get(args.length > 1 ? args[1] : "examples"));
+                break;
+            case "keywords":
+                runKeywords(Paths.get(args.length > 1 ? args[1] : "examples"));
+                break;
+            case "lexer":
+                runLexer(args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_LEXED_FUNCTION_COUNT);
+                break;
+            case "bodies":
+                runBodies(args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_FUNCTION_COUNT);
+                break;
+            default:
+                // A corpus directory on its own runs the parsers over it.
+                runParsers(Paths.get(suite));
+                break;
+        }
+    }
+}
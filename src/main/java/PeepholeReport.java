@@ -0,0 +1,62 @@
+import lexer.CharReader;
+import lexer.PackedTokenStream;
+import lexer.ParallelLexer;
+import parser.WinZigParser;
+import parser.nodes.FlatTree;
+import semantic.PeepholeOptimizer;
+import semantic.PeepholeRule;
+import semantic.SemanticAnalyzer;
+import semantic.attrs.Instruction;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Reports how much the peephole optimizer shrinks the code of each program of a corpus,
+ * and how many times each rule applied. Programs that do not compile are skipped.
+ */
+public class PeepholeReport {
+    public static void main(String[] args) throws IOException {
+        Path directory = Paths.get(args.length > 0 ? args[0] : "examples");
+        List<Path> files;
+        try (Stream<Path> paths = Files.walk(directory)) {
+            // Expected trees of the examples are kept next to them with an extension.
+            files = paths.filter(Files::isRegularFile)
+                    .filter(path -> !path.getFileName().toString().contains("."))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+
+        PeepholeOptimizer optimizer = new PeepholeOptimizer();
+        long totalBefore = 0;
+        long totalAfter = 0;
+        for (Path file : files) {
+            try (CharReader charReader = CharReader.from(file)) {
+                ParallelLexer lexer = new ParallelLexer(charReader);
+                PackedTokenStream tokens = lexer.lex();
+                WinZigParser parser = new WinZigParser(tokens);
+                SemanticAnalyzer analyzer = new SemanticAnalyzer(charReader, tokens.getNameTable());
+                FlatTree tree = parser.parseFlat();
+                List<Instruction> instructions = analyzer.codeGenerate(tree);
+                if (lexer.hasErrors() || parser.hasErrors() || analyzer.hasErrors()) {
+                    continue;
+                }
+                int before = instructions.size();
+                int after = optimizer.optimize(instructions).size();
+                totalBefore += before;
+                totalAfter += after;
+                System.out.printf("%-40s %6d -> %6d%n", directory.relativize(file), before, after);
+            }
+        }
+        System.out.printf("%-40s %6d -> %6d  (%.1f%% fewer instructions)%n", "total", totalBefore, totalAfter,
+                totalBefore == 0 ? 0.0 : 100.0 * (totalBefore - totalAfter) / totalBefore);
+        for (PeepholeRule rule : PeepholeRule.values()) {
+            System.out.printf("%-40s %6d hits%n", rule, optimizer.getHits(rule));
+        }
+    }
+}
@@ -1,36 +1,45 @@
 import lexer.CharReader;
-import lexer.WinZigLexer;
+import lexer.PackedTokenStream;
+import lexer.ParallelLexer;
+import parser.AbstractParser;
+import parser.TableDrivenParser;
 import parser.WinZigParser;
-import parser.nodes.ASTNode;
-import parser.nodes.IdentifierNode;
-import parser.nodes.Node;
+import parser.nodes.FlatTree;
+import parser.nodes.TreeWriter;
+import semantic.AddressResolver;
+import semantic.PeepholeOptimizer;
 import semantic.SemanticAnalyzer;
 import semantic.attrs.Instruction;
 
 import java.io.File;
-import java.nio.file.Files;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Callable;
 
 public class WinZig implements Callable<Integer> {
     private final File file;
+    private final boolean tableDriven;
+    private final boolean printAst;
+    private final boolean resolveAddresses;
+    private final boolean optimize;
 
     public WinZig(File file) {
+        this(file, false, false, false, false);
+    }
+
+    public WinZig(File file, boolean tableDriven, boolean printAst, boolean resolveAddresses, boolean optimize) {
         this.file = file;
+        this.tableDriven = tableDriven;
+        this.printAst = printAst;
+        this.resolveAddresses = resolveAddresses;
+        this.optimize = optimize;
     }
 
-    public static void printTree(ASTNode node, int depth) {
-        System.out.println(". ".repeat(depth) + node.toString());
-        for (Node child : node.getChildren()) {
-            if (child instanceof ASTNode) {
-                printTree((ASTNode) child, depth + 1);
-            } else if (child instanceof IdentifierNode) {
-                System.out.println(". ".repeat(depth + 1) + child);
-                String value = ((IdentifierNode) child).getIdentifierValue();
-                System.out.println(". ".repeat(depth + 2) + String.format("%s(0)", value));
-            }
-        }
+    public static void printTree(FlatTree tree) throws IOException {
+        TreeWriter writer = new TreeWriter(System.out);
+        writer.write(tree);
+        writer.flush();
     }
 
     public static void printInstructions(List<Instruction> instructions) {
@@ -44,44 +53,71 @@ public class WinZig implements Callable<Integer> {
     public Integer call() throws Exception {
         List<String> errors = new ArrayList<>();
 
-        String sourceCode = Files.readString(file.toPath());
-        CharReader charReader = CharReader.from(sourceCode);
-        WinZigLexer lexer = new WinZigLexer(charReader);
-        WinZigParser parser = new WinZigParser(lexer);
-        SemanticAnalyzer analyzer = new SemanticAnalyzer(charReader);
-        ASTNode node = parser.parse();
-        List<Instruction> instructions = analyzer.codeGenerate(node);
+        try (CharReader charReader = CharReader.from(file.toPath())) {
+            ParallelLexer lexer = new ParallelLexer(charReader);
+            PackedTokenStream tokens = lexer.lex();
+            AbstractParser parser = tableDriven ? new TableDrivenParser(tokens) : new WinZigParser(tokens);
+            SemanticAnalyzer analyzer = new SemanticAnalyzer(charReader, tokens.getNameTable());
+            FlatTree tree = parser.parseFlat();
+            List<Instruction> instructions = printAst ? null : analyzer.codeGenerate(tree);
 
-        if (lexer.hasErrors()) {
-            System.err.println("Lexer failed due to errors.");
-            System.err.println("============================");
-            System.err.println(lexer.collectErrors());
-        } else if (parser.hasErrors()) {
-            System.err.println("Parser failed due to errors.");
-            System.err.println("============================");
-            System.err.println(parser.collectErrors());
-        } else if (analyzer.hasErrors()) {
-            System.err.println("Semantic analyzer failed due to errors.");
-            System.err.println("=======================================");
-            System.err.println(analyzer.collectErrors());
-        } else {
-            // printTree(node, 0);
-            printInstructions(instructions);
+            if (lexer.hasErrors()) {
+                System.err.println("Lexer failed due to errors.");
+                System.err.println("============================");
+                System.err.println(lexer.collectErrors());
+            } else if (parser.hasErrors()) {
+                System.err.println("Parser failed due to errors.");
+                System.err.println("============================");
+                System.err.println(parser.collectErrors());
+            } else if (printAst) {
+                printTree(tree);
+            } else if (analyzer.hasErrors()) {
+                System.err.println("Semantic analyzer failed due to errors.");
+                System.err.println("=======================================");
+                System.err.println(analyzer.collectErrors());
+            } else {
+                if (optimize) {
+                    instructions = new PeepholeOptimizer().optimize(instructions);
+                }
+                printInstructions(resolveAddresses ? AddressResolver.resolve(instructions) : instructions);
+            }
         }
 
         return 0;
     }
 
     public static void main(String[] args) {
-        if (args.length != 1) {
+        boolean tableDriven = false;
+        boolean printAst = false;
+        boolean resolveAddresses = false;
+        boolean optimize = false;
+        boolean validOptions = args.length > 0;
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals("-table")) {
+                tableDriven = true;
+            } else if (args[i].equals("-ast")) {
+                printAst = true;
+            } else if (args[i].equals("-resolve")) {
+                resolveAddresses = true;
+            } else if (args[i].equals("-O")) {
+                optimize = true;
+            } else {
+                validOptions = false;
+            }
+        }
+        if (!validOptions) {
             System.out.println("" +
                     "Winzigc - A winzig compiler\n" +
-                    "How to run: java winzigc –ast winzig_test_programs/winzig_01");
+                    "How to run: java winzigc –ast winzig_test_programs/winzig_01\n" +
+                    "Use -ast to print the AST instead of compiling.\n" +
+                    "Use -table to parse with the table-driven LL(1) parser.\n" +
+                    "Use -resolve to emit branch targets as code addresses instead of labels.\n" +
+                    "Use -O to apply peephole optimizations to the generated code.");
             System.exit(1);
         }
         try {
-            File file = new File(args[0]);
-            WinZig compiler = new WinZig(file);
+            File file = new File(args[args.length - 1]);
+            WinZig compiler = new WinZig(file, tableDriven, printAst, resolveAddresses, optimize);
             int exitCode = compiler.call();
             System.exit(exitCode);
         } catch (Exception e) {
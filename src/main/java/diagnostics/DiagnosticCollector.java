@@ -21,6 +21,24 @@ public abstract class DiagnosticCollector implements TextHighlighter {
         }
     }
 
+    /**
+     * Append the already formatted diagnostics of another collector, keeping their order.
+     */
+    public void addDiagnostics(DiagnosticCollector other) {
+        diagnostics.addAll(other.diagnostics);
+    }
+
+    /**
+     * Insert the already formatted diagnostics of another collector at the given position, keeping their order.
+     */
+    public void insertDiagnostics(int index, DiagnosticCollector other) {
+        diagnostics.addAll(index, other.diagnostics);
+    }
+
+    public int getDiagnosticCount() {
+        return diagnostics.size();
+    }
+
     public String collectErrors() {
         StringJoiner sj = new StringJoiner("\n");
         diagnostics.forEach(sj::add);
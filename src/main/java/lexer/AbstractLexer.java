@@ -6,25 +6,57 @@ import lexer.tokens.Minutiae;
 import lexer.tokens.Token;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public abstract class AbstractLexer extends DiagnosticCollector {
     protected final CharReader charReader;
+    // Whether whitespace and comments are kept as minutiae.
+    // If not, they are skipped and every token shares the same empty minutiae list.
+    protected final boolean collectMinutiae;
+    protected final NameTable nameTable;
     protected List<Minutiae> leadingMinutiae;
 
     public AbstractLexer(CharReader charReader) {
+        this(charReader, true);
+    }
+
+    public AbstractLexer(CharReader charReader, boolean collectMinutiae) {
+        this(charReader, collectMinutiae, new NameTable());
+    }
+
+    public AbstractLexer(CharReader charReader, boolean collectMinutiae, NameTable nameTable) {
         this.charReader = charReader;
-        this.leadingMinutiae = new ArrayList<>();
+        this.collectMinutiae = collectMinutiae;
+        this.nameTable = nameTable;
+        this.leadingMinutiae = newMinutiaeList();
     }
 
     public abstract Token read();
 
+    /**
+     * Get the table identifier names are interned into.
+     */
+    public NameTable getNameTable() {
+        return nameTable;
+    }
+
     protected List<Minutiae> getLeadingMinutiae() {
+        if (!collectMinutiae) {
+            return leadingMinutiae;
+        }
         List<Minutiae> minutiae = leadingMinutiae;
         this.leadingMinutiae = new ArrayList<>();
         return minutiae;
     }
 
+    protected List<Minutiae> newMinutiaeList() {
+        if (!collectMinutiae) {
+            return Collections.emptyList();
+        }
+        return new ArrayList<>();
+    }
+
     protected static boolean isDigit(int c) {
         return ('0' <= c && c <= '9');
     }
@@ -0,0 +1,25 @@
+package lexer;
+
+public class ArrayCharReader extends CharReader {
+    private final char[] charBuffer;
+
+    ArrayCharReader(char[] buffer) {
+        super(buffer.length);
+        this.charBuffer = buffer;
+    }
+
+    @Override
+    protected CharReader duplicate() {
+        return new ArrayCharReader(charBuffer);
+    }
+
+    @Override
+    protected char charAt(int offset) {
+        return charBuffer[offset];
+    }
+
+    @Override
+    public String getChars(int startOffset, int endOffset) {
+        return new String(charBuffer, startOffset, endOffset - startOffset);
+    }
+}
@@ -0,0 +1,59 @@
+package lexer;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reader over ASCII source bytes.
+ * Each byte is one character, so the source is never decoded to UTF-16.
+ * Only used for input that passed {@link #isAscii(byte[])}, so offsets are also character offsets.
+ */
+public class ByteArrayCharReader extends CharReader {
+    private static final VarHandle LONG_VIEW =
+            MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    static final long HIGH_BITS = 0x8080808080808080L;
+
+    private final byte[] byteBuffer;
+
+    ByteArrayCharReader(byte[] buffer) {
+        super(buffer.length);
+        this.byteBuffer = buffer;
+    }
+
+    /**
+     * Check whether all the bytes are ASCII.
+     * Bytes are checked eight at a time.
+     *
+     * @param bytes the bytes to check.
+     * @return whether no byte has the high bit set.
+     */
+    static boolean isAscii(byte[] bytes) {
+        int i = 0;
+        int wordLimit = bytes.length - Long.BYTES;
+        long bits = 0;
+        for (; i <= wordLimit; i += Long.BYTES) {
+            bits |= (long) LONG_VIEW.get(bytes, i);
+        }
+        for (; i < bytes.length; i++) {
+            bits |= bytes[i];
+        }
+        return (bits & HIGH_BITS) == 0;
+    }
+
+    @Override
+    protected CharReader duplicate() {
+        return new ByteArrayCharReader(byteBuffer);
+    }
+
+    @Override
+    protected char charAt(int offset) {
+        return (char) byteBuffer[offset];
+    }
+
+    @Override
+    public String getChars(int startOffset, int endOffset) {
+        return new String(byteBuffer, startOffset, endOffset - startOffset, StandardCharsets.ISO_8859_1);
+    }
+}
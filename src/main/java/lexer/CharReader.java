@@ -4,37 +4,127 @@ package lexer;
 import diagnostics.Highlightable;
 import diagnostics.TextHighlighter;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.StringJoiner;
 
-public class CharReader implements TextHighlighter {
-    private final char[] charBuffer;
-    private final int charBufferLength;
+public abstract class CharReader implements TextHighlighter, AutoCloseable {
+    // Larger files are memory mapped instead of being read to the heap.
+    public static final int HEAP_READ_LIMIT = 1 << 26;
+
+    protected final int charBufferLength;
     private int markStartOffset;
     private int offset;
+    // The cursor reaches EOF at this offset. Only slices stop before the end of the text.
+    private int limitOffset;
+    // Offsets where each line starts. Built once, when the first line lookup happens.
+    private volatile int[] lineStartOffsets;
 
-    private CharReader(char[] buffer) {
-        this.charBuffer = buffer;
-        this.charBufferLength = buffer.length;
+    protected CharReader(int charBufferLength) {
+        this.charBufferLength = charBufferLength;
         this.markStartOffset = 0;
         this.offset = 0;
+        this.limitOffset = charBufferLength;
     }
 
+    /**
+     * Create a reader over the given text.
+     * ASCII text is kept as bytes, other text as UTF-16 characters.
+     *
+     * @param text the source text.
+     * @return a reader over the text.
+     */
     public static CharReader from(String text) {
-        return new CharReader(text.toCharArray());
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x80) {
+                return new ArrayCharReader(text.toCharArray());
+            }
+        }
+        return new ByteArrayCharReader(text.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    /**
+     * Create a reader over the given file.
+     * Files up to {@link #HEAP_READ_LIMIT} bytes are read to the heap.
+     * ASCII files are lexed from the bytes as they are, only other files are decoded as UTF-8 to characters.
+     * Larger files are memory mapped window by window, and decoded block by block if they are not ASCII,
+     * so the heap usage does not depend on the file size.
+     *
+     * @param path the path of the source file.
+     * @return a reader over the file content.
+     * @throws IOException if the file cannot be read or mapped.
+     */
+    public static CharReader from(Path path) throws IOException {
+        return from(path, HEAP_READ_LIMIT);
+    }
+
+    /**
+     * Create a reader over the given file, with a lower limit for the heap, so that tests can map small files.
+     */
+    static CharReader from(Path path, long heapReadLimit) throws IOException {
+        if (Files.size(path) > heapReadLimit) {
+            return MappedCharReader.open(path);
+        }
+        byte[] bytes = Files.readAllBytes(path);
+        if (ByteArrayCharReader.isAscii(bytes)) {
+            return new ByteArrayCharReader(bytes);
+        }
+        return new ArrayCharReader(new String(bytes, StandardCharsets.UTF_8).toCharArray());
     }
 
+    /**
+     * Create an independent reader over a range of the same text.
+     * The slice starts at the start offset and reaches EOF at the end offset.
+     * Offsets are not rebased, so tokens and diagnostics of the slice refer to positions in the whole text.
+     * Slices have their own cursor and can be read concurrently with each other.
+     *
+     * @param startOffset the offset to start reading from.
+     * @param endOffset   the offset to stop reading at.
+     * @return a new reader positioned at the start offset.
+     */
+    public CharReader slice(int startOffset, int endOffset) {
+        if (startOffset < 0 || startOffset > endOffset || endOffset > charBufferLength) {
+            throw new IndexOutOfBoundsException(String.format("Slice [%d, %d) out of text of length %d",
+                    startOffset, endOffset, charBufferLength));
+        }
+        CharReader slice = duplicate();
+        slice.offset = startOffset;
+        slice.markStartOffset = startOffset;
+        slice.limitOffset = endOffset;
+        slice.lineStartOffsets = lineStartOffsets;
+        return slice;
+    }
+
+    /**
+     * Create a reader over the same text with its own cursor, positioned at the start.
+     */
+    protected abstract CharReader duplicate();
+
+    /**
+     * Get the character at the given offset.
+     * Offset is guaranteed to be within [0, charBufferLength).
+     */
+    protected abstract char charAt(int offset);
+
+    /**
+     * Get the text in the given range as a string.
+     */
+    public abstract String getChars(int startOffset, int endOffset);
+
     public char peek() {
-        if (offset < charBufferLength) {
-            return charBuffer[offset];
+        if (offset < limitOffset) {
+            return charAt(offset);
         }
         return Character.MAX_VALUE;
     }
 
     public char peek(int k) {
         int kOffset = offset + k;
-        if (kOffset < charBufferLength) {
-            return charBuffer[kOffset];
+        if (kOffset < limitOffset) {
+            return charAt(kOffset);
         }
         return Character.MAX_VALUE;
     }
@@ -52,11 +142,11 @@ public class CharReader implements TextHighlighter {
     }
 
     public String getMarkedChars() {
-        return new String(Arrays.copyOfRange(charBuffer, markStartOffset, offset));
+        return getChars(markStartOffset, offset);
     }
 
     public boolean isEOF() {
-        return offset >= charBufferLength;
+        return offset >= limitOffset;
     }
 
     public int getMarkStartOffset() {
@@ -67,6 +157,11 @@ public class CharReader implements TextHighlighter {
         return offset;
     }
 
+    @Override
+    public void close() throws IOException {
+        // Nothing to release by default.
+    }
+
     public String highlightedSegment(Highlightable highlightable) {
         int startOffset = highlightable.getStartOffset();
         int endOffset = highlightable.getEndOffset();
@@ -74,24 +169,29 @@ public class CharReader implements TextHighlighter {
             return "";
         }
 
-        int lineNumber = 1;
-        for (int i = 0; i < charBufferLength && i < startOffset; i++) {
-            if (charBuffer[i] == '\n') lineNumber++;
-        }
+        int[] lineStarts = getLineStartOffsets();
+        int lineIndex = findLineIndex(lineStarts, startOffset);
+        int lineNumber = lineIndex + 1;
 
+        // Newline just before the start (-1 if none) and the first newline at or after the end.
         int prevCrOffset, nextCrOffset;
-        for (prevCrOffset = startOffset; prevCrOffset >= 0; prevCrOffset--) {
-            if (charBufferLength <= startOffset || charBuffer[prevCrOffset] == '\n') break;
+        if (charBufferLength <= startOffset || charAt(startOffset) == '\n') {
+            prevCrOffset = startOffset;
+        } else {
+            prevCrOffset = lineStarts[lineIndex] - 1;
         }
-
-        for (nextCrOffset = endOffset; nextCrOffset < charBufferLength; nextCrOffset++) {
-            if (charBuffer[nextCrOffset] == '\n') break;
+        int endLineIndex = findLineIndex(lineStarts, endOffset);
+        if (endLineIndex + 1 < lineStarts.length) {
+            nextCrOffset = lineStarts[endLineIndex + 1] - 1;
+        } else {
+            nextCrOffset = Math.max(endOffset, charBufferLength);
         }
         StringJoiner textSb = new StringJoiner("\n");
         StringBuilder codeSbLine = new StringBuilder();
         StringBuilder highlightSbLine = new StringBuilder();
         for (int i = prevCrOffset + 1; i < nextCrOffset; i++) {
-            if (charBuffer[i] == '\n') {
+            char c = charAt(i);
+            if (c == '\n') {
                 textSb.add(codeSbLine);
                 codeSbLine = new StringBuilder();
                 if (!highlightSbLine.toString().isBlank()) {
@@ -100,13 +200,13 @@ public class CharReader implements TextHighlighter {
                 }
                 continue;
             }
-            codeSbLine.append(charBuffer[i]);
+            codeSbLine.append(c);
             if (i >= startOffset && i < endOffset) {
                 highlightSbLine.append('^');
             } else {
                 highlightSbLine.append(' ');
             }
-            if (charBuffer[i] == '\t') {
+            if (c == '\t') {
                 highlightSbLine.append('\t');
             }
         }
@@ -114,4 +214,38 @@ public class CharReader implements TextHighlighter {
         return textSb.add(codeSbLine).add(highlightSbLine)
                 .add(positionText).toString();
     }
+
+    /**
+     * Get the 1-indexed line number of the given offset.
+     *
+     * @param offset the offset in the source.
+     * @return the line number containing the offset.
+     */
+    public int getLineNumber(int offset) {
+        return findLineIndex(getLineStartOffsets(), offset) + 1;
+    }
+
+    private int[] getLineStartOffsets() {
+        int[] lineStarts = lineStartOffsets;
+        if (lineStarts == null) {
+            lineStarts = new int[64];
+            int lineCount = 1;
+            for (int i = 0; i < charBufferLength; i++) {
+                if (charAt(i) != '\n') continue;
+                if (lineCount == lineStarts.length) {
+                    lineStarts = Arrays.copyOf(lineStarts, lineCount * 2);
+                }
+                lineStarts[lineCount++] = i + 1;
+            }
+            lineStarts = Arrays.copyOf(lineStarts, lineCount);
+            lineStartOffsets = lineStarts;
+        }
+        return lineStarts;
+    }
+
+    private static int findLineIndex(int[] lineStarts, int offset) {
+        // Index of the last line starting at or before the offset.
+        int index = Arrays.binarySearch(lineStarts, offset);
+        return index >= 0 ? index : -index - 2;
+    }
 }
@@ -0,0 +1,349 @@
+package lexer;
+
+import diagnostics.Highlightable;
+import diagnostics.TextHighlighter;
+import lexer.tokens.Token;
+import lexer.tokens.TokenKind;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the tokens of an editable text up to date.
+ * After an edit, lexing restarts from the last token that could have observed the edited text
+ * and stops as soon as a token starts where an unchanged old token started.
+ * The remaining old tokens are reused.
+ * <p>
+ * Both the text and the tokens are kept in gap buffers positioned at the last edit.
+ * Token objects are never updated in place. Each slot keeps the shift to apply to its token,
+ * and the tokens after the gap are additionally shifted by the total size change of the edits
+ * made at the gap. Shifted copies are only created when a token is read.
+ * Therefore the cost of an edit depends on the edit size and the distance from the previous edit,
+ * not on the text size.
+ * <p>
+ * Tokens are always lexed with minutiae since the full token ranges are required to resynchronize.
+ * Lexer diagnostics are not kept; error tokens and error minutiae remain in the token stream.
+ */
+public class IncrementalLexer implements TextHighlighter {
+    // Number of characters after the full end of a token the lexer may have looked at.
+    private static final int MAX_LOOKAHEAD = 2;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // Text gap buffer.
+    private char[] text;
+    private int textGapStart;
+    private int textGapEnd;
+
+    // Names are interned into a single table for the whole editing session.
+    private final NameTable nameTable;
+
+    // Token gap buffer. Tokens at or after tokenGapEnd are further shifted by suffixDelta.
+    private Token[] tokens;
+    private int[] tokenShifts;
+    private int tokenGapStart;
+    private int tokenGapEnd;
+    private int suffixDelta;
+
+    // Reader for highlighting diagnostics, kept until the next edit so that they share its line index.
+    private EditCharReader highlightReader;
+
+    public IncrementalLexer(String initialText) {
+        this.text = Arrays.copyOf(initialText.toCharArray(), Math.max(initialText.length(), INITIAL_CAPACITY));
+        this.textGapStart = initialText.length();
+        this.textGapEnd = text.length;
+        this.tokens = new Token[INITIAL_CAPACITY];
+        this.tokenShifts = new int[INITIAL_CAPACITY];
+        this.tokenGapStart = 0;
+        this.tokenGapEnd = tokens.length;
+        this.suffixDelta = 0;
+        this.nameTable = new NameTable();
+
+        WinZigLexer lexer = new WinZigLexer(new EditCharReader(false), true, nameTable);
+        Token token;
+        do {
+            token = lexer.read();
+            insertToken(token);
+        } while (token.getKind() != TokenKind.EOF_TOKEN);
+    }
+
+    /**
+     * Replace a range of the text and update the tokens.
+     *
+     * @param offset        the start offset of the replaced range.
+     * @param removedLength the number of characters removed from the offset.
+     * @param insertedText  the text inserted at the offset.
+     * @return the range of token indexes that were replaced.
+     */
+    public TokenChange edit(int offset, int removedLength, String insertedText) {
+        int length = getLength();
+        if (offset < 0 || removedLength < 0 || offset + removedLength > length) {
+            throw new IndexOutOfBoundsException(String.format("Edit [%d, %d) out of text of length %d",
+                    offset, offset + removedLength, length));
+        }
+        int delta = insertedText.length() - removedLength;
+        highlightReader = null;
+
+        // Tokens that ended well before the edit could not have seen it.
+        int restartIndex = findRestartIndex(offset);
+        moveTokenGap(restartIndex);
+        int restartOffset = getSuffixFullStartOffset(tokenGapEnd);
+        replaceText(offset, removedLength, insertedText);
+
+        EditCharReader charReader = new EditCharReader(false);
+        charReader.advance(restartOffset);
+        WinZigLexer lexer = new WinZigLexer(charReader, true, nameTable);
+        int editEndOffset = offset + removedLength;
+        int oldIndex = tokenGapEnd;
+        int insertedCount = 0;
+        while (true) {
+            int position = charReader.getOffset();
+            // Drop old tokens the lexer has already moved past.
+            while (oldIndex < tokens.length && getSuffixFullStartOffset(oldIndex) + delta < position) {
+                oldIndex++;
+            }
+            if (oldIndex < tokens.length) {
+                int oldFullStart = getSuffixFullStartOffset(oldIndex);
+                if (oldFullStart >= editEndOffset && oldFullStart + delta == position) {
+                    break;
+                }
+            }
+            Token token = lexer.read();
+            insertToken(token);
+            insertedCount++;
+            if (token.getKind() == TokenKind.EOF_TOKEN) {
+                oldIndex = tokens.length;
+                break;
+            }
+        }
+
+        int removedCount = oldIndex - tokenGapEnd;
+        for (int i = tokenGapEnd; i < oldIndex; i++) {
+            tokens[i] = null;
+        }
+        tokenGapEnd = oldIndex;
+        suffixDelta += delta;
+        return new TokenChange(restartIndex, removedCount, insertedCount);
+    }
+
+    public int size() {
+        return tokenGapStart + (tokens.length - tokenGapEnd);
+    }
+
+    /**
+     * Get the token at the given index.
+     * Tokens moved by earlier edits are shifted on demand, so they may be new objects on every call.
+     */
+    public Token getToken(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (index < tokenGapStart) {
+            return tokens[index].shift(tokenShifts[index]);
+        }
+        int slot = index - tokenGapStart + tokenGapEnd;
+        return tokens[slot].shift(tokenShifts[slot] + suffixDelta);
+    }
+
+    public int getLength() {
+        return text.length - (textGapEnd - textGapStart);
+    }
+
+    public String getText() {
+        StringBuilder sb = new StringBuilder(getLength());
+        sb.append(text, 0, textGapStart);
+        sb.append(text, textGapEnd, text.length - textGapEnd);
+        return sb.toString();
+    }
+
+    /**
+     * Highlight a range of the current text. The text is read in place rather than copied,
+     * and the line index is built once per edit.
+     */
+    @Override
+    public String highlightedSegment(Highlightable highlightable) {
+        if (highlightReader == null) {
+            highlightReader = new EditCharReader(true);
+        }
+        return highlightReader.highlightedSegment(highlightable);
+    }
+
+    /*
+     * -------------------------------
+     * Token gap buffer methods
+     * -------------------------------
+     */
+
+    private int findRestartIndex(int offset) {
+        // Index of the first token that may have looked at the offset.
+        int low = 0;
+        int high = size() - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (getFullEndOffset(mid) + MAX_LOOKAHEAD > offset) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    private int getFullEndOffset(int index) {
+        if (index < tokenGapStart) {
+            return tokens[index].getFullEndOffset() + tokenShifts[index];
+        }
+        int slot = index - tokenGapStart + tokenGapEnd;
+        return tokens[slot].getFullEndOffset() + tokenShifts[slot] + suffixDelta;
+    }
+
+    private int getSuffixFullStartOffset(int slot) {
+        return tokens[slot].getFullStartOffset() + tokenShifts[slot] + suffixDelta;
+    }
+
+    private void moveTokenGap(int index) {
+        while (tokenGapStart > index) {
+            tokenGapStart--;
+            tokenGapEnd--;
+            tokens[tokenGapEnd] = tokens[tokenGapStart];
+            tokenShifts[tokenGapEnd] = tokenShifts[tokenGapStart] - suffixDelta;
+            tokens[tokenGapStart] = null;
+        }
+        while (tokenGapStart < index) {
+            tokens[tokenGapStart] = tokens[tokenGapEnd];
+            tokenShifts[tokenGapStart] = tokenShifts[tokenGapEnd] + suffixDelta;
+            tokens[tokenGapEnd] = null;
+            tokenGapStart++;
+            tokenGapEnd++;
+        }
+    }
+
+    private void insertToken(Token token) {
+        if (tokenGapStart == tokenGapEnd) {
+            int suffixLength = tokens.length - tokenGapEnd;
+            int capacity = tokens.length * 2;
+            Token[] newTokens = new Token[capacity];
+            int[] newTokenShifts = new int[capacity];
+            System.arraycopy(tokens, 0, newTokens, 0, tokenGapStart);
+            System.arraycopy(tokens, tokenGapEnd, newTokens, capacity - suffixLength, suffixLength);
+            System.arraycopy(tokenShifts, 0, newTokenShifts, 0, tokenGapStart);
+            System.arraycopy(tokenShifts, tokenGapEnd, newTokenShifts, capacity - suffixLength, suffixLength);
+            tokenGapEnd = capacity - suffixLength;
+            tokens = newTokens;
+            tokenShifts = newTokenShifts;
+        }
+        tokenShifts[tokenGapStart] = 0;
+        tokens[tokenGapStart++] = token;
+    }
+
+    /*
+     * -------------------------------
+     * Text gap buffer methods
+     * -------------------------------
+     */
+
+    private void replaceText(int offset, int removedLength, String insertedText) {
+        moveTextGap(offset);
+        textGapEnd += removedLength;
+        int insertedLength = insertedText.length();
+        if (textGapEnd - textGapStart < insertedLength) {
+            int suffixLength = text.length - textGapEnd;
+            int capacity = Math.max(text.length * 2, textGapStart + insertedLength + suffixLength);
+            char[] newText = new char[capacity];
+            System.arraycopy(text, 0, newText, 0, textGapStart);
+            System.arraycopy(text, textGapEnd, newText, capacity - suffixLength, suffixLength);
+            textGapEnd = capacity - suffixLength;
+            text = newText;
+        }
+        insertedText.getChars(0, insertedLength, text, textGapStart);
+        textGapStart += insertedLength;
+    }
+
+    private void moveTextGap(int offset) {
+        if (offset < textGapStart) {
+            int count = textGapStart - offset;
+            System.arraycopy(text, offset, text, textGapEnd - count, count);
+            textGapStart -= count;
+            textGapEnd -= count;
+        } else if (offset > textGapStart) {
+            int count = offset - textGapStart;
+            System.arraycopy(text, textGapEnd, text, textGapStart, count);
+            textGapStart += count;
+            textGapEnd += count;
+        }
+    }
+
+    /**
+     * Reader over the current content of the text gap buffer.
+     * It is only valid until the next edit.
+     */
+    private class EditCharReader extends CharReader {
+        // Whether the reader highlights diagnostics, which indexes the lines of the whole text.
+        private final boolean highlights;
+
+        private EditCharReader(boolean highlights) {
+            super(getLength());
+            this.highlights = highlights;
+        }
+
+        @Override
+        protected CharReader duplicate() {
+            return new EditCharReader(highlights);
+        }
+
+        @Override
+        protected char charAt(int offset) {
+            if (offset < textGapStart) {
+                return text[offset];
+            }
+            return text[offset + textGapEnd - textGapStart];
+        }
+
+        @Override
+        public String getChars(int startOffset, int endOffset) {
+            StringBuilder sb = new StringBuilder(endOffset - startOffset);
+            for (int i = startOffset; i < endOffset; i++) {
+                sb.append(charAt(i));
+            }
+            return sb.toString();
+        }
+
+        @Override
+        public String highlightedSegment(Highlightable highlightable) {
+            // Diagnostics of a partial re-lex are discarded, so do not index the whole text for them.
+            return highlights ? super.highlightedSegment(highlightable) : "";
+        }
+    }
+
+    /**
+     * Tokens replaced by an edit.
+     * The removed tokens started at the start index and the inserted tokens start at the same index.
+     */
+    public static class TokenChange {
+        private final int startIndex;
+        private final int removedCount;
+        private final int insertedCount;
+
+        public TokenChange(int startIndex, int removedCount, int insertedCount) {
+            this.startIndex = startIndex;
+            this.removedCount = removedCount;
+            this.insertedCount = insertedCount;
+        }
+
+        public int getStartIndex() {
+            return startIndex;
+        }
+
+        public int getRemovedCount() {
+            return removedCount;
+        }
+
+        public int getInsertedCount() {
+            return insertedCount;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("TokenChange{start=%d, removed=%d, inserted=%d}",
+                    startIndex, removedCount, insertedCount);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package lexer;
+
+import lexer.tokens.TokenKind;
+
+import java.util.Arrays;
+
+/**
+ * Trie over all the WinZig keywords, stored as a flat transition table.
+ * The lexer walks the trie while it scans an identifier,
+ * so keywords are classified without creating a string.
+ */
+public class KeywordTrie {
+    public static final int ROOT_STATE = 0;
+    public static final int DEAD_STATE = -1;
+    // Keywords and identifiers only contain ASCII characters.
+    private static final int ALPHABET_SIZE = 128;
+
+    private static final String[] KEYWORDS = {
+            LexerTerminals.PROGRAM_KEYWORD, LexerTerminals.VAR_KEYWORD, LexerTerminals.CONST_KEYWORD,
+            LexerTerminals.TYPE_KEYWORD, LexerTerminals.FUNCTION_KEYWORD, LexerTerminals.RETURN_KEYWORD,
+            LexerTerminals.BEGIN_KEYWORD, LexerTerminals.END_KEYWORD, LexerTerminals.OUTPUT_KEYWORD,
+            LexerTerminals.IF_KEYWORD, LexerTerminals.THEN_KEYWORD, LexerTerminals.ELSE_KEYWORD,
+            LexerTerminals.WHILE_KEYWORD, LexerTerminals.DO_KEYWORD, LexerTerminals.CASE_KEYWORD,
+            LexerTerminals.OF_KEYWORD, LexerTerminals.OTHERWISE_KEYWORD, LexerTerminals.REPEAT_KEYWORD,
+            LexerTerminals.FOR_KEYWORD, LexerTerminals.UNTIL_KEYWORD, LexerTerminals.LOOP_KEYWORD,
+            LexerTerminals.POOL_KEYWORD, LexerTerminals.EXIT_KEYWORD, LexerTerminals.MOD_KEYWORD,
+            LexerTerminals.AND_KEYWORD, LexerTerminals.OR_KEYWORD, LexerTerminals.NOT_KEYWORD,
+            LexerTerminals.READ_KEYWORD, LexerTerminals.SUCC_KEYWORD, LexerTerminals.PRED_KEYWORD,
+            LexerTerminals.CHR_KEYWORD, LexerTerminals.ORD_KEYWORD, LexerTerminals.EOF_KEYWORD,
+    };
+    private static final TokenKind[] KEYWORD_KINDS = {
+            TokenKind.PROGRAM_KEYWORD, TokenKind.VAR_KEYWORD, TokenKind.CONST_KEYWORD,
+            TokenKind.TYPE_KEYWORD, TokenKind.FUNCTION_KEYWORD, TokenKind.RETURN_KEYWORD,
+            TokenKind.BEGIN_KEYWORD, TokenKind.END_KEYWORD, TokenKind.OUTPUT_KEYWORD,
+            TokenKind.IF_KEYWORD, TokenKind.THEN_KEYWORD, TokenKind.ELSE_KEYWORD,
+            TokenKind.WHILE_KEYWORD, TokenKind.DO_KEYWORD, TokenKind.CASE_KEYWORD,
+            TokenKind.OF_KEYWORD, TokenKind.OTHERWISE_KEYWORD, TokenKind.REPEAT_KEYWORD,
+            TokenKind.FOR_KEYWORD, TokenKind.UNTIL_KEYWORD, TokenKind.LOOP_KEYWORD,
+            TokenKind.POOL_KEYWORD, TokenKind.EXIT_KEYWORD, TokenKind.MOD_KEYWORD,
+            TokenKind.AND_KEYWORD, TokenKind.OR_KEYWORD, TokenKind.NOT_KEYWORD,
+            TokenKind.READ_KEYWORD, TokenKind.SUCC_KEYWORD, TokenKind.PRED_KEYWORD,
+            TokenKind.CHR_KEYWORD, TokenKind.ORD_KEYWORD, TokenKind.EOF_KEYWORD,
+    };
+
+    // transitions[state * ALPHABET_SIZE + c] is the next state or DEAD_STATE.
+    private static final int[] transitions;
+    // Keyword kind accepted at each state, null if the state does not end a keyword.
+    private static final TokenKind[] acceptedKinds;
+
+    static {
+        int maxStates = 1;
+        for (String keyword : KEYWORDS) maxStates += keyword.length();
+
+        int[] table = new int[maxStates * ALPHABET_SIZE];
+        Arrays.fill(table, DEAD_STATE);
+        TokenKind[] accepted = new TokenKind[maxStates];
+        int stateCount = 1;
+        for (int i = 0; i < KEYWORDS.length; i++) {
+            int state = ROOT_STATE;
+            for (char c : KEYWORDS[i].toCharArray()) {
+                int index = state * ALPHABET_SIZE + c;
+                if (table[index] == DEAD_STATE) table[index] = stateCount++;
+                state = table[index];
+            }
+            accepted[state] = KEYWORD_KINDS[i];
+        }
+        transitions = Arrays.copyOf(table, stateCount * ALPHABET_SIZE);
+        acceptedKinds = Arrays.copyOf(accepted, stateCount);
+    }
+
+    private KeywordTrie() {
+    }
+
+    /**
+     * Move to the next state of the trie.
+     *
+     * @param state the current state.
+     * @param c     the next character.
+     * @return the next state or DEAD_STATE if no keyword has this prefix.
+     */
+    public static int next(int state, char c) {
+        if (state == DEAD_STATE || c >= ALPHABET_SIZE) return DEAD_STATE;
+        return transitions[state * ALPHABET_SIZE + c];
+    }
+
+    /**
+     * Get the keyword ending at the given state.
+     *
+     * @param state the current state.
+     * @return the keyword kind or null if the scanned text is not a keyword.
+     */
+    public static TokenKind match(int state) {
+        if (state == DEAD_STATE) return null;
+        return acceptedKinds[state];
+    }
+}
@@ -0,0 +1,250 @@
+package lexer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reader over a memory mapped source file.
+ * Only a single window of the file is mapped at a time, and the mapping lives outside the heap.
+ * ASCII files are read byte by byte, so offsets are byte offsets, as for {@link ByteArrayCharReader}.
+ * Other files are decoded as UTF-8 a block at a time. Blocks start on character boundaries, and the character
+ * offset of each block is indexed when the file is opened, so a character offset finds its block by binary search.
+ * Either way, the heap usage does not depend on the file size.
+ */
+public class MappedCharReader extends CharReader {
+    // Must be a power of two. Window starts are aligned to this size.
+    private static final int WINDOW_SIZE = 1 << 26;
+    // Bytes of a UTF-8 file decoded at a time.
+    private static final int BLOCK_SIZE = 1 << 20;
+    // A UTF-8 character has at most three continuation bytes.
+    private static final int MAX_CONTINUATION_BYTES = 3;
+
+    private final FileChannel channel;
+    // Duplicates share the channel of the reader they were created from, which closes it.
+    private final boolean ownsChannel;
+    // Byte and character offsets where each block of a UTF-8 file starts, ending with the end of the file.
+    // Both are null for ASCII files. Duplicates share them.
+    private final int[] blockByteStarts;
+    private final int[] blockCharStarts;
+    // Window of the bytes of an ASCII file, or of a file being indexed. Blocks are mapped on their own.
+    private MappedByteBuffer window;
+    private int windowStart;
+    private int windowEnd;
+    // Characters of the decoded block, which may be longer than the block.
+    private char[] block;
+    private int blockCharStart;
+    private int blockCharEnd;
+
+    private MappedCharReader(FileChannel channel, int length, int[] blockByteStarts, int[] blockCharStarts,
+                             boolean ownsChannel) {
+        super(length);
+        this.channel = channel;
+        this.ownsChannel = ownsChannel;
+        this.blockByteStarts = blockByteStarts;
+        this.blockCharStarts = blockCharStarts;
+        this.window = null;
+        this.windowStart = 0;
+        this.windowEnd = 0;
+        this.block = null;
+        this.blockCharStart = 0;
+        this.blockCharEnd = 0;
+    }
+
+    static MappedCharReader open(Path path) throws IOException {
+        return open(path, BLOCK_SIZE);
+    }
+
+    /**
+     * Map a file, decoding it in blocks of the given size if it is not ASCII.
+     * Tests use small blocks, so that characters straddle the nominal block boundaries.
+     */
+    static MappedCharReader open(Path path, int blockSize) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(String.format("File is too large: %s (%d bytes)", path, size));
+            }
+            MappedCharReader bytes = new MappedCharReader(channel, (int) size, null, null, true);
+            if (bytes.isAscii()) {
+                return bytes;
+            }
+            int[] blockByteStarts = bytes.findBlockStarts(blockSize);
+            int[] blockCharStarts = bytes.countBlockChars(blockByteStarts);
+            return new MappedCharReader(channel, blockCharStarts[blockCharStarts.length - 1],
+                    blockByteStarts, blockCharStarts, true);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    protected CharReader duplicate() {
+        // Each duplicate maps its own windows, so duplicates can be read from different threads.
+        return new MappedCharReader(channel, charBufferLength, blockByteStarts, blockCharStarts, false);
+    }
+
+    @Override
+    protected char charAt(int offset) {
+        if (blockCharStarts == null) {
+            return (char) byteAt(offset);
+        }
+        if (offset < blockCharStart || offset >= blockCharEnd) {
+            decodeBlock(findBlock(offset));
+        }
+        return block[offset - blockCharStart];
+    }
+
+    @Override
+    public String getChars(int startOffset, int endOffset) {
+        if (blockCharStarts == null) {
+            byte[] bytes = new byte[endOffset - startOffset];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = (byte) byteAt(startOffset + i);
+            }
+            return new String(bytes, StandardCharsets.ISO_8859_1);
+        }
+        StringBuilder sb = new StringBuilder(endOffset - startOffset);
+        for (int i = startOffset; i < endOffset; i++) {
+            sb.append(charAt(i));
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        block = null;
+        if (ownsChannel) {
+            channel.close();
+        }
+    }
+
+    /**
+     * Check whether all the bytes of the file are ASCII.
+     * The file is scanned a window at a time, eight bytes at a time.
+     */
+    private boolean isAscii() {
+        for (int start = 0; start < charBufferLength; start += WINDOW_SIZE) {
+            moveWindow(start);
+            int length = windowEnd - windowStart;
+            int i = 0;
+            long bits = 0;
+            for (; i <= length - Long.BYTES; i += Long.BYTES) {
+                bits |= window.getLong(i);
+            }
+            for (; i < length; i++) {
+                bits |= window.get(i);
+            }
+            if ((bits & ByteArrayCharReader.HIGH_BITS) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Split the file into blocks of about the given size, moving each boundary past continuation bytes
+     * so that no character is split between two blocks.
+     */
+    private int[] findBlockStarts(int blockSize) {
+        int length = charBufferLength;
+        int blockCount = (int) (((long) length + blockSize - 1) / blockSize);
+        int[] starts = new int[blockCount + 1];
+        int count = 1;
+        for (int i = 1; i < blockCount; i++) {
+            int start = (int) ((long) i * blockSize);
+            for (int j = 0; j < MAX_CONTINUATION_BYTES && start < length && (byteAt(start) & 0xC0) == 0x80; j++) {
+                start++;
+            }
+            if (start > starts[count - 1] && start < length) {
+                starts[count++] = start;
+            }
+        }
+        starts[count++] = length;
+        return Arrays.copyOf(starts, count);
+    }
+
+    /**
+     * Decode every block once to find the character offset it starts at.
+     */
+    private int[] countBlockChars(int[] byteStarts) {
+        int[] charStarts = new int[byteStarts.length];
+        CharBuffer chars = CharBuffer.allocate(0);
+        for (int i = 0; i + 1 < byteStarts.length; i++) {
+            chars = decode(byteStarts[i], byteStarts[i + 1], chars.array());
+            charStarts[i + 1] = charStarts[i] + chars.position();
+        }
+        return charStarts;
+    }
+
+    private int findBlock(int offset) {
+        // Index of the last block starting at or before the offset.
+        int index = Arrays.binarySearch(blockCharStarts, offset);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    private void decodeBlock(int index) {
+        CharBuffer chars = decode(blockByteStarts[index], blockByteStarts[index + 1], block);
+        block = chars.array();
+        blockCharStart = blockCharStarts[index];
+        blockCharEnd = blockCharStarts[index + 1];
+    }
+
+    /**
+     * Decode a range of bytes the same way as {@code new String(bytes, UTF_8)}, replacing malformed input.
+     *
+     * @param buffer characters to decode into, reused if large enough.
+     * @return the decoded characters, from the start of the array up to the position.
+     */
+    private CharBuffer decode(int startOffset, int endOffset, char[] buffer) {
+        int byteCount = endOffset - startOffset;
+        // UTF-8 never decodes to more characters than bytes.
+        if (buffer == null || buffer.length < byteCount) {
+            buffer = new char[byteCount];
+        }
+        CharBuffer chars = CharBuffer.wrap(buffer);
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        ByteBuffer bytes;
+        try {
+            bytes = channel.map(FileChannel.MapMode.READ_ONLY, startOffset, byteCount);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        decoder.decode(bytes, chars, true);
+        decoder.flush(chars);
+        return chars;
+    }
+
+    private int byteAt(int offset) {
+        if (offset < windowStart || offset >= windowEnd) {
+            moveWindow(offset);
+        }
+        return window.get(offset - windowStart) & 0xFF;
+    }
+
+    private void moveWindow(int offset) {
+        int newWindowStart = offset & -WINDOW_SIZE;
+        int newWindowLength = Math.min(WINDOW_SIZE, charBufferLength - newWindowStart);
+        try {
+            window = channel.map(FileChannel.MapMode.READ_ONLY, newWindowStart, newWindowLength);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        windowStart = newWindowStart;
+        windowEnd = newWindowStart + newWindowLength;
+    }
+}
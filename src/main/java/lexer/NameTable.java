@@ -0,0 +1,133 @@
+package lexer;
+
+import java.util.Arrays;
+
+/**
+ * Intern table for the names of a compilation.
+ * Each distinct name gets one canonical string and a dense integer id, starting from 0.
+ * Names can be looked up directly from a range of the source, so a string is only created
+ * the first time a name is seen.
+ * Literal spellings are interned in the same table when they are stored alongside names.
+ * <p>
+ * The table is not thread-safe.
+ */
+public class NameTable {
+    private static final int INITIAL_CAPACITY = 256;
+
+    private String[] names;
+    private int[] hashes;
+    // Open addressing table of (id + 1), zero marks an empty slot.
+    private int[] slots;
+    private int size;
+
+    public NameTable() {
+        this.names = new String[INITIAL_CAPACITY];
+        this.hashes = new int[INITIAL_CAPACITY];
+        this.slots = new int[INITIAL_CAPACITY * 2];
+        this.size = 0;
+    }
+
+    /**
+     * Get the id of the name in the given range of the source, adding the name if it is new.
+     *
+     * @param charReader  the source reader.
+     * @param startOffset the start offset of the name.
+     * @param endOffset   the end offset of the name.
+     * @return the id of the name.
+     */
+    public int intern(CharReader charReader, int startOffset, int endOffset) {
+        int hash = 0;
+        for (int i = startOffset; i < endOffset; i++) {
+            hash = 31 * hash + charReader.charAt(i);
+        }
+        int mask = slots.length - 1;
+        int length = endOffset - startOffset;
+        for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+            int id = slots[slot] - 1;
+            if (id < 0) {
+                return add(charReader.getChars(startOffset, endOffset), hash, slot);
+            }
+            if (hashes[id] == hash && matches(names[id], length, charReader, startOffset)) {
+                return id;
+            }
+        }
+    }
+
+    /**
+     * Get the id of the given name, adding the name if it is new.
+     *
+     * @param name the name.
+     * @return the id of the name.
+     */
+    public int intern(String name) {
+        int hash = name.hashCode();
+        int mask = slots.length - 1;
+        for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+            int id = slots[slot] - 1;
+            if (id < 0) {
+                return add(name, hash, slot);
+            }
+            if (hashes[id] == hash && names[id].equals(name)) {
+                return id;
+            }
+        }
+    }
+
+    /**
+     * Get the canonical string of the name with the given id.
+     */
+    public String getName(int id) {
+        return names[id];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int add(String name, int hash, int slot) {
+        int id = size++;
+        if (id == names.length) {
+            names = Arrays.copyOf(names, id * 2);
+            hashes = Arrays.copyOf(hashes, id * 2);
+        }
+        names[id] = name;
+        hashes[id] = hash;
+        slots[slot] = id + 1;
+        // Keep the load factor at most one half.
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    private void rehash() {
+        int[] newSlots = new int[slots.length * 2];
+        int mask = newSlots.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = mix(hashes[id]) & mask;
+            while (newSlots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            newSlots[slot] = id + 1;
+        }
+        slots = newSlots;
+    }
+
+    private static boolean matches(String name, int length, CharReader charReader, int startOffset) {
+        if (name.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (name.charAt(i) != charReader.charAt(startOffset + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int mix(int hash) {
+        // Spread the bits, since similar names only differ in the low bits of the string hash.
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,192 @@
+package lexer;
+
+import diagnostics.Highlightable;
+import diagnostics.TextHighlighter;
+import lexer.tokens.IdentifierToken;
+import lexer.tokens.LiteralToken;
+import lexer.tokens.Minutiae;
+import lexer.tokens.Token;
+import lexer.tokens.TokenKind;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Fully lexed token stream stored as parallel primitive arrays.
+ * Each token is a kind ordinal, a start offset, an end offset and the id of its value in a {@link NameTable}.
+ * Tokens are addressed by their index. Minutiae are not retained.
+ */
+public class PackedTokenStream implements TextHighlighter {
+    private static final TokenKind[] TOKEN_KINDS = TokenKind.values();
+    private static final int NO_VALUE = -1;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final TextHighlighter highlighter;
+    private final NameTable names;
+    private int[] kinds;
+    private int[] startOffsets;
+    private int[] endOffsets;
+    private int[] valueRefs;
+    private int size;
+
+    public PackedTokenStream(TextHighlighter highlighter) {
+        this(highlighter, new NameTable());
+    }
+
+    public PackedTokenStream(TextHighlighter highlighter, NameTable names) {
+        this.highlighter = highlighter;
+        this.names = names;
+        this.kinds = new int[INITIAL_CAPACITY];
+        this.startOffsets = new int[INITIAL_CAPACITY];
+        this.endOffsets = new int[INITIAL_CAPACITY];
+        this.valueRefs = new int[INITIAL_CAPACITY];
+        this.size = 0;
+    }
+
+    /**
+     * Lex the whole input of the lexer into a packed stream.
+     * The last token of the stream is always the EOF token.
+     *
+     * @param lexer the lexer to drain.
+     * @return the packed token stream.
+     */
+    public static PackedTokenStream from(AbstractLexer lexer) {
+        PackedTokenStream stream = new PackedTokenStream(lexer, lexer.getNameTable());
+        Token token;
+        do {
+            token = lexer.read();
+            stream.add(token);
+        } while (token.getKind() != TokenKind.EOF_TOKEN);
+        return stream;
+    }
+
+    public void add(Token token) {
+        TokenKind kind = token.getKind();
+        if (token instanceof IdentifierToken && ((IdentifierToken) token).getNameTable() == names) {
+            // Already interned into the same table.
+            addValueRef(kind, token.getStartOffset(), token.getEndOffset(), ((IdentifierToken) token).getNameId());
+            return;
+        }
+        add(kind, token.getStartOffset(), token.getEndOffset(), hasValue(kind) ? token.getValue() : null);
+    }
+
+    public void add(TokenKind kind, int startOffset, int endOffset, String value) {
+        addValueRef(kind, startOffset, endOffset, value == null ? NO_VALUE : names.intern(value));
+    }
+
+    /**
+     * Append the first tokens of another stream to this stream.
+     * Values of the other stream are interned into the table of this stream once per distinct value.
+     *
+     * @param other the stream to copy tokens from.
+     * @param count the number of tokens to copy.
+     */
+    public void append(PackedTokenStream other, int count) {
+        ensureCapacity(size + count);
+        int[] valueRefMap = new int[other.names.size()];
+        for (int i = 0; i < valueRefMap.length; i++) {
+            valueRefMap[i] = names.intern(other.names.getName(i));
+        }
+        System.arraycopy(other.kinds, 0, kinds, size, count);
+        System.arraycopy(other.startOffsets, 0, startOffsets, size, count);
+        System.arraycopy(other.endOffsets, 0, endOffsets, size, count);
+        for (int i = 0; i < count; i++) {
+            int valueRef = other.valueRefs[i];
+            valueRefs[size + i] = valueRef == NO_VALUE ? NO_VALUE : valueRefMap[valueRef];
+        }
+        size += count;
+    }
+
+    /**
+     * Get the table the token values are interned into.
+     */
+    public NameTable getNameTable() {
+        return names;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public TokenKind getKind(int index) {
+        return TOKEN_KINDS[kinds[index]];
+    }
+
+    public int getStartOffset(int index) {
+        return startOffsets[index];
+    }
+
+    public int getEndOffset(int index) {
+        return endOffsets[index];
+    }
+
+    public String getValue(int index) {
+        int valueRef = valueRefs[index];
+        if (valueRef == NO_VALUE) {
+            return getKind(index).getValue();
+        }
+        return names.getName(valueRef);
+    }
+
+    /**
+     * Get the id of the token value in the name table of this stream.
+     *
+     * @param index the token index.
+     * @return the name id, or -1 if the token kind has no value.
+     */
+    public int getNameId(int index) {
+        return valueRefs[index];
+    }
+
+    /**
+     * Materialize the token at the given index.
+     * The created token does not have any minutiae.
+     *
+     * @param index the token index.
+     * @return a new token object.
+     */
+    public Token getToken(int index) {
+        TokenKind kind = getKind(index);
+        int startOffset = startOffsets[index];
+        int endOffset = endOffsets[index];
+        List<Minutiae> noMinutiae = Collections.emptyList();
+        if (kind == TokenKind.IDENTIFIER) {
+            return new IdentifierToken(names, valueRefs[index], noMinutiae, noMinutiae, startOffset, endOffset);
+        } else if (hasValue(kind)) {
+            return new LiteralToken(kind, getValue(index), noMinutiae, noMinutiae, startOffset, endOffset);
+        }
+        return new Token(kind, noMinutiae, noMinutiae, startOffset, endOffset);
+    }
+
+    @Override
+    public String highlightedSegment(Highlightable highlightable) {
+        return highlighter.highlightedSegment(highlightable);
+    }
+
+    private void ensureCapacity(int minCapacity) {
+        if (minCapacity > kinds.length) {
+            int capacity = Math.max(kinds.length * 2, minCapacity);
+            kinds = Arrays.copyOf(kinds, capacity);
+            startOffsets = Arrays.copyOf(startOffsets, capacity);
+            endOffsets = Arrays.copyOf(endOffsets, capacity);
+            valueRefs = Arrays.copyOf(valueRefs, capacity);
+        }
+    }
+
+    private void addValueRef(TokenKind kind, int startOffset, int endOffset, int valueRef) {
+        ensureCapacity(size + 1);
+        kinds[size] = kind.ordinal();
+        startOffsets[size] = startOffset;
+        endOffsets[size] = endOffset;
+        valueRefs[size] = valueRef;
+        size++;
+    }
+
+    private static boolean hasValue(TokenKind kind) {
+        return kind == TokenKind.IDENTIFIER
+                || kind == TokenKind.INTEGER_LITERAL
+                || kind == TokenKind.CHAR_LITERAL
+                || kind == TokenKind.STRING_LITERAL;
+    }
+}
@@ -0,0 +1,201 @@
+package lexer;
+
+import diagnostics.DiagnosticCollector;
+import diagnostics.Highlightable;
+import lexer.tokens.Token;
+import lexer.tokens.TokenKind;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Lexes a large source in chunks on a fork-join pool.
+ * <p>
+ * Tokens only span lines inside multiline comments, string literals and character literals.
+ * A pre-scan tracks those constructs and picks chunk boundaries right after newlines outside them.
+ * The lexer is at a token boundary on such a position, so each chunk can be lexed by its own
+ * trivia-free {@link WinZigLexer} over a slice of the source.
+ * The chunks are then stitched in order into one {@link PackedTokenStream}, and the diagnostics of the chunks
+ * are merged in order, giving the same tokens and diagnostics as lexing the whole source at once.
+ * <p>
+ * The whole source is lexed, unlike a lexer that the parser pulls tokens from, which stops at the end of
+ * the program. Malformed text after {@code end name.} is therefore reported as a lexer error.
+ */
+public class ParallelLexer extends DiagnosticCollector {
+    // Smaller inputs are not split, since the pool overhead would outweigh lexing them.
+    private static final int MIN_CHUNK_SIZE = 1 << 20;
+    // More chunks than workers, so that a slow chunk does not keep the other workers idle.
+    private static final int CHUNKS_PER_WORKER = 4;
+
+    // Chunk count picked from the source length and the pool size.
+    private static final int AUTOMATIC_CHUNK_COUNT = 0;
+
+    private final CharReader charReader;
+    private final ForkJoinPool pool;
+    private final int chunkCount;
+
+    public ParallelLexer(CharReader charReader) {
+        this(charReader, ForkJoinPool.commonPool());
+    }
+
+    public ParallelLexer(CharReader charReader, ForkJoinPool pool) {
+        this.charReader = charReader;
+        this.pool = pool;
+        this.chunkCount = AUTOMATIC_CHUNK_COUNT;
+    }
+
+    /**
+     * Create a lexer that splits the source into a fixed number of chunks, whatever its size,
+     * to measure how lexing scales with the chunk count.
+     * Chunks are only cut after newlines, so a source with fewer lines gets fewer chunks.
+     *
+     * @param chunkCount the number of chunks to split the source into.
+     */
+    public ParallelLexer(CharReader charReader, ForkJoinPool pool, int chunkCount) {
+        if (chunkCount < 1) {
+            throw new IllegalArgumentException("Chunk count must be positive: " + chunkCount);
+        }
+        this.charReader = charReader;
+        this.pool = pool;
+        this.chunkCount = chunkCount;
+    }
+
+    /**
+     * Lex the whole source.
+     * The last token of the stream is always the EOF token.
+     *
+     * @return the packed token stream of the source.
+     */
+    public PackedTokenStream lex() {
+        int chunkCount = this.chunkCount;
+        if (chunkCount == AUTOMATIC_CHUNK_COUNT) {
+            // A single worker gains nothing from splitting, so the source is then lexed on the calling thread.
+            int parallelism = pool.getParallelism();
+            int maxChunkCount = Math.max(1, charReader.charBufferLength / MIN_CHUNK_SIZE);
+            chunkCount = parallelism == 1 ? 1 : Math.min(maxChunkCount, parallelism * CHUNKS_PER_WORKER);
+        }
+        int[] cutOffsets = findCutOffsets(chunkCount);
+        int lastChunk = cutOffsets.length - 2;
+
+        PackedTokenStream tokens = new PackedTokenStream(this);
+        if (lastChunk == 0) {
+            WinZigLexer lexer = lexChunk(0, charReader.charBufferLength, tokens);
+            addDiagnostics(lexer);
+            return tokens;
+        }
+
+        List<ForkJoinTask<ChunkResult>> tasks = new ArrayList<>();
+        for (int i = 0; i <= lastChunk; i++) {
+            int startOffset = cutOffsets[i];
+            int endOffset = cutOffsets[i + 1];
+            tasks.add(pool.submit(() -> {
+                PackedTokenStream chunkTokens = new PackedTokenStream(charReader);
+                WinZigLexer lexer = lexChunk(startOffset, endOffset, chunkTokens);
+                return new ChunkResult(chunkTokens, lexer);
+            }));
+        }
+        for (int i = 0; i <= lastChunk; i++) {
+            ChunkResult result = tasks.get(i).join();
+            // Every chunk ends with an EOF token, which is only kept for the last chunk.
+            int count = i == lastChunk ? result.tokens.size() : result.tokens.size() - 1;
+            tokens.append(result.tokens, count);
+            addDiagnostics(result.lexer);
+        }
+        return tokens;
+    }
+
+    @Override
+    public String highlightedSegment(Highlightable highlightable) {
+        return charReader.highlightedSegment(highlightable);
+    }
+
+    private WinZigLexer lexChunk(int startOffset, int endOffset, PackedTokenStream tokens) {
+        CharReader slice = charReader.slice(startOffset, endOffset);
+        WinZigLexer lexer = new WinZigLexer(slice, false, tokens.getNameTable());
+        while (true) {
+            Token token = lexer.read();
+            tokens.add(token);
+            if (token.getKind() == TokenKind.EOF_TOKEN) {
+                return lexer;
+            }
+        }
+    }
+
+    /**
+     * Find offsets to split the source at, so that chunks are about the same size.
+     * The first offset is 0 and the last offset is the source length.
+     */
+    private int[] findCutOffsets(int chunkCount) {
+        int length = charReader.charBufferLength;
+        int[] cutOffsets = new int[chunkCount + 1];
+        int cutCount = 1;
+        long nextTarget = (long) length / chunkCount;
+        int i = 0;
+        scan:
+        while (i < length && cutCount < chunkCount) {
+            char c = charReader.charAt(i);
+            switch (c) {
+                case LexerTerminals.NEWLINE:
+                    i++;
+                    if (i >= nextTarget) {
+                        cutOffsets[cutCount++] = i;
+                        nextTarget = (long) length * cutCount / chunkCount;
+                    }
+                    continue scan;
+                case LexerTerminals.OPEN_BRACE:
+                    i = skipPast(i + 1, LexerTerminals.CLOSE_BRACE);
+                    continue scan;
+                case LexerTerminals.DOUBLE_QUOTE:
+                    i = skipPast(i + 1, LexerTerminals.DOUBLE_QUOTE);
+                    continue scan;
+                case LexerTerminals.HASH:
+                    // The line break itself is not a part of the comment.
+                    i++;
+                    while (i < length) {
+                        char next = charReader.charAt(i);
+                        if (next == LexerTerminals.NEWLINE || next == LexerTerminals.CARRIAGE_RETURN) {
+                            break;
+                        }
+                        i++;
+                    }
+                    continue scan;
+                case LexerTerminals.QUOTE:
+                    // Same rule as the lexer: a character literal is 'c' with any c other than a quote.
+                    if (i + 2 < length && charReader.charAt(i + 1) != LexerTerminals.QUOTE
+                            && charReader.charAt(i + 2) == LexerTerminals.QUOTE) {
+                        i += 3;
+                    } else {
+                        i++;
+                    }
+                    continue scan;
+                default:
+                    i++;
+            }
+        }
+        cutOffsets[cutCount++] = length;
+        return Arrays.copyOf(cutOffsets, cutCount);
+    }
+
+    private int skipPast(int offset, char terminator) {
+        int length = charReader.charBufferLength;
+        while (offset < length) {
+            if (charReader.charAt(offset++) == terminator) {
+                break;
+            }
+        }
+        return offset;
+    }
+
+    private static class ChunkResult {
+        private final PackedTokenStream tokens;
+        private final WinZigLexer lexer;
+
+        private ChunkResult(PackedTokenStream tokens, WinZigLexer lexer) {
+            this.tokens = tokens;
+            this.lexer = lexer;
+        }
+    }
+}
@@ -6,7 +6,6 @@ import lexer.tokens.Minutiae;
 import lexer.tokens.Token;
 import lexer.tokens.TokenKind;
 
-import java.util.ArrayList;
 import java.util.List;
 
 public class WinZigLexer extends AbstractLexer {
@@ -14,6 +13,30 @@ public class WinZigLexer extends AbstractLexer {
         super(charReader);
     }
 
+    /**
+     * Create a lexer that optionally skips minutiae.
+     * In trivia-free mode, whitespace and comments are consumed without creating any minutiae,
+     * which is sufficient whenever the source does not need to be reconstructed.
+     *
+     * @param charReader      the source reader.
+     * @param collectMinutiae whether to attach minutiae to the tokens.
+     */
+    public WinZigLexer(CharReader charReader, boolean collectMinutiae) {
+        super(charReader, collectMinutiae);
+    }
+
+    /**
+     * Create a lexer that interns identifier names into the given table.
+     * Sharing the table lets the tokens of several lexers use the same name ids.
+     *
+     * @param charReader      the source reader.
+     * @param collectMinutiae whether to attach minutiae to the tokens.
+     * @param nameTable       the table to intern names into.
+     */
+    public WinZigLexer(CharReader charReader, boolean collectMinutiae, NameTable nameTable) {
+        super(charReader, collectMinutiae, nameTable);
+    }
+
     public Token read() {
         processLeadingMinutiae();
 
@@ -73,7 +96,7 @@ public class WinZigLexer extends AbstractLexer {
                 return processString();
             default:
                 if (isIdentifierInitialChar(c)) {
-                    return processKeywordOrIdentifier();
+                    return processKeywordOrIdentifier(c);
                 }
                 // Unexpected character: return a minutiae token
                 return createErrorToken("Unexpected character: %c", c);
@@ -166,86 +189,23 @@ public class WinZigLexer extends AbstractLexer {
         return createErrorToken("Expected string literal in the form \"string\".");
     }
 
-    private Token processKeywordOrIdentifier() {
+    private Token processKeywordOrIdentifier(char firstChar) {
+        // Walk the keyword trie alongside the scan, so keywords never become strings.
+        int keywordState = KeywordTrie.next(KeywordTrie.ROOT_STATE, firstChar);
         while (!charReader.isEOF()) {
             char nextChar = charReader.peek();
             if (isIdentifierChar(nextChar)) {
+                keywordState = KeywordTrie.next(keywordState, nextChar);
                 charReader.advance();
                 continue;
             }
             break;
         }
-        String s = charReader.getMarkedChars();
-        switch (s) {
-            case LexerTerminals.PROGRAM_KEYWORD:
-                return createToken(TokenKind.PROGRAM_KEYWORD);
-            case LexerTerminals.VAR_KEYWORD:
-                return createToken(TokenKind.VAR_KEYWORD);
-            case LexerTerminals.CONST_KEYWORD:
-                return createToken(TokenKind.CONST_KEYWORD);
-            case LexerTerminals.TYPE_KEYWORD:
-                return createToken(TokenKind.TYPE_KEYWORD);
-            case LexerTerminals.FUNCTION_KEYWORD:
-                return createToken(TokenKind.FUNCTION_KEYWORD);
-            case LexerTerminals.RETURN_KEYWORD:
-                return createToken(TokenKind.RETURN_KEYWORD);
-            case LexerTerminals.BEGIN_KEYWORD:
-                return createToken(TokenKind.BEGIN_KEYWORD);
-            case LexerTerminals.END_KEYWORD:
-                return createToken(TokenKind.END_KEYWORD);
-            case LexerTerminals.OUTPUT_KEYWORD:
-                return createToken(TokenKind.OUTPUT_KEYWORD);
-            case LexerTerminals.IF_KEYWORD:
-                return createToken(TokenKind.IF_KEYWORD);
-            case LexerTerminals.THEN_KEYWORD:
-                return createToken(TokenKind.THEN_KEYWORD);
-            case LexerTerminals.ELSE_KEYWORD:
-                return createToken(TokenKind.ELSE_KEYWORD);
-            case LexerTerminals.WHILE_KEYWORD:
-                return createToken(TokenKind.WHILE_KEYWORD);
-            case LexerTerminals.DO_KEYWORD:
-                return createToken(TokenKind.DO_KEYWORD);
-            case LexerTerminals.CASE_KEYWORD:
-                return createToken(TokenKind.CASE_KEYWORD);
-            case LexerTerminals.OF_KEYWORD:
-                return createToken(TokenKind.OF_KEYWORD);
-            case LexerTerminals.OTHERWISE_KEYWORD:
-                return createToken(TokenKind.OTHERWISE_KEYWORD);
-            case LexerTerminals.REPEAT_KEYWORD:
-                return createToken(TokenKind.REPEAT_KEYWORD);
-            case LexerTerminals.FOR_KEYWORD:
-                return createToken(TokenKind.FOR_KEYWORD);
-            case LexerTerminals.UNTIL_KEYWORD:
-                return createToken(TokenKind.UNTIL_KEYWORD);
-            case LexerTerminals.LOOP_KEYWORD:
-                return createToken(TokenKind.LOOP_KEYWORD);
-            case LexerTerminals.POOL_KEYWORD:
-                return createToken(TokenKind.POOL_KEYWORD);
-            case LexerTerminals.EXIT_KEYWORD:
-                return createToken(TokenKind.EXIT_KEYWORD);
-            case LexerTerminals.MOD_KEYWORD:
-                return createToken(TokenKind.MOD_KEYWORD);
-            case LexerTerminals.AND_KEYWORD:
-                return createToken(TokenKind.AND_KEYWORD);
-            case LexerTerminals.OR_KEYWORD:
-                return createToken(TokenKind.OR_KEYWORD);
-            case LexerTerminals.NOT_KEYWORD:
-                return createToken(TokenKind.NOT_KEYWORD);
-            case LexerTerminals.READ_KEYWORD:
-                return createToken(TokenKind.READ_KEYWORD);
-            case LexerTerminals.SUCC_KEYWORD:
-                return createToken(TokenKind.SUCC_KEYWORD);
-            case LexerTerminals.PRED_KEYWORD:
-                return createToken(TokenKind.PRED_KEYWORD);
-            case LexerTerminals.CHR_KEYWORD:
-                return createToken(TokenKind.CHR_KEYWORD);
-            case LexerTerminals.ORD_KEYWORD:
-                return createToken(TokenKind.ORD_KEYWORD);
-            case LexerTerminals.EOF_KEYWORD:
-                return createToken(TokenKind.EOF_KEYWORD);
-            default:
-                return createIdentifierToken();
+        TokenKind keywordKind = KeywordTrie.match(keywordState);
+        if (keywordKind != null) {
+            return createToken(keywordKind);
         }
+        return createIdentifierToken();
     }
 
     /*
@@ -259,7 +219,7 @@ public class WinZigLexer extends AbstractLexer {
     }
 
     private List<Minutiae> processTrailingMinutiae() {
-        List<Minutiae> minutiae = new ArrayList<>();
+        List<Minutiae> minutiae = newMinutiaeList();
         processSyntaxMinutiae(minutiae, false);
         return minutiae;
     }
@@ -272,20 +232,20 @@ public class WinZigLexer extends AbstractLexer {
                 case LexerTerminals.SPACE:
                 case LexerTerminals.TAB:
                 case LexerTerminals.FORM_FEED:
-                    minutiae.add(processWhitespaceMinutiae());
+                    addMinutiae(minutiae, processWhitespaceMinutiae());
                     break;
                 case LexerTerminals.CARRIAGE_RETURN:
                 case LexerTerminals.NEWLINE:
-                    minutiae.add(processEndOfLineMinutiae());
+                    addMinutiae(minutiae, processEndOfLineMinutiae());
                     if (isLeading) {
                         break;
                     }
                     return;
                 case LexerTerminals.OPEN_BRACE:
-                    minutiae.add(processMultilineCommentMinutiae());
+                    addMinutiae(minutiae, processMultilineCommentMinutiae());
                     break;
                 case LexerTerminals.HASH:
-                    minutiae.add(processCommentMinutiae());
+                    addMinutiae(minutiae, processCommentMinutiae());
                     break;
                 default:
                     return;
@@ -293,6 +253,12 @@ public class WinZigLexer extends AbstractLexer {
         }
     }
 
+    private void addMinutiae(List<Minutiae> minutiae, Minutiae newMinutiae) {
+        if (collectMinutiae) {
+            minutiae.add(newMinutiae);
+        }
+    }
+
     private Minutiae processWhitespaceMinutiae() {
         while (!charReader.isEOF()) {
             char c = charReader.peek();
@@ -365,7 +331,10 @@ public class WinZigLexer extends AbstractLexer {
     }
 
     private Minutiae createErrorMinutiae(String error, Object... args) {
-        Minutiae errorMinutiae = createMinutiae(TokenKind.ERROR);
+        // Error minutiae are always created since they are required to highlight the error.
+        int startOffset = charReader.getMarkStartOffset();
+        int endOffset = charReader.getOffset();
+        Minutiae errorMinutiae = new Minutiae(TokenKind.ERROR, charReader.getMarkedChars(), startOffset, endOffset);
         addError(errorMinutiae, error, args);
         return errorMinutiae;
     }
@@ -380,7 +349,8 @@ public class WinZigLexer extends AbstractLexer {
     private Token createIdentifierToken() {
         int startOffset = charReader.getMarkStartOffset();
         int endOffset = charReader.getOffset();
-        return new IdentifierToken(charReader.getMarkedChars(), getLeadingMinutiae(), processTrailingMinutiae(),
+        int nameId = nameTable.intern(charReader, startOffset, endOffset);
+        return new IdentifierToken(nameTable, nameId, getLeadingMinutiae(), processTrailingMinutiae(),
                 startOffset, endOffset);
     }
 
@@ -392,6 +362,10 @@ public class WinZigLexer extends AbstractLexer {
     }
 
     private Minutiae createMinutiae(TokenKind kind) {
+        // Minutiae are not materialized in trivia-free mode.
+        if (!collectMinutiae) {
+            return null;
+        }
         int startOffset = charReader.getMarkStartOffset();
         int endOffset = charReader.getOffset();
         return new Minutiae(kind, charReader.getMarkedChars(), startOffset, endOffset);
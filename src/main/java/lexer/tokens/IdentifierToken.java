@@ -1,23 +1,45 @@
 package lexer.tokens;
 
+import lexer.NameTable;
+
 import java.util.List;
 
 public class IdentifierToken extends Token {
-    private final String value;
+    // The name is interned, so the token only keeps its id.
+    private final NameTable names;
+    private final int nameId;
 
-    public IdentifierToken(String value, List<Minutiae> leading, List<Minutiae> trailing,
+    public IdentifierToken(NameTable names, int nameId, List<Minutiae> leading, List<Minutiae> trailing,
                            int startOffset, int endOffset) {
         super(TokenKind.IDENTIFIER, leading, trailing, startOffset, endOffset);
-        this.value = value;
+        this.names = names;
+        this.nameId = nameId;
+    }
+
+    public NameTable getNameTable() {
+        return names;
+    }
+
+    public int getNameId() {
+        return nameId;
     }
 
     @Override
     public String getValue() {
-        return value;
+        return names.getName(nameId);
+    }
+
+    @Override
+    public Token shift(int delta) {
+        if (delta == 0) {
+            return this;
+        }
+        return new IdentifierToken(names, nameId, shiftMinutiae(leading, delta), shiftMinutiae(trailing, delta),
+                startOffset + delta, endOffset + delta);
     }
 
     @Override
     public String toString() {
-        return String.format("%s{%s}", kind, value);
+        return String.format("%s{%s}", kind, getValue());
     }
 }
@@ -16,6 +16,15 @@ public class LiteralToken extends Token {
         return value;
     }
 
+    @Override
+    public Token shift(int delta) {
+        if (delta == 0) {
+            return this;
+        }
+        return new LiteralToken(kind, value, shiftMinutiae(leading, delta), shiftMinutiae(trailing, delta),
+                startOffset + delta, endOffset + delta);
+    }
+
     @Override
     public String toString() {
         return String.format("%s{%s}", kind, value);
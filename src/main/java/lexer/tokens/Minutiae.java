@@ -16,6 +16,10 @@ public class Minutiae implements Highlightable {
         this.endOffset = endOffset;
     }
 
+    public Minutiae shift(int delta) {
+        return new Minutiae(kind, content, startOffset + delta, endOffset + delta);
+    }
+
     @Override
     public String toString() {
         return String.format("%s{%s}", kind, content);
@@ -2,6 +2,7 @@ package lexer.tokens;
 
 import diagnostics.Highlightable;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public class Token implements Highlightable {
@@ -29,6 +30,21 @@ public class Token implements Highlightable {
         return kind.getValue();
     }
 
+    /**
+     * Create a copy of this token moved by the given number of characters.
+     * Minutiae are moved along with the token.
+     *
+     * @param delta the number of characters to move the token by.
+     * @return the moved token, or this token if the delta is zero.
+     */
+    public Token shift(int delta) {
+        if (delta == 0) {
+            return this;
+        }
+        return new Token(kind, shiftMinutiae(leading, delta), shiftMinutiae(trailing, delta),
+                startOffset + delta, endOffset + delta);
+    }
+
     @Override
     public String toString() {
         return kind.toString();
@@ -43,4 +59,35 @@ public class Token implements Highlightable {
     public int getEndOffset() {
         return endOffset;
     }
+
+    /**
+     * Get the start offset of the token including its leading minutiae.
+     */
+    public int getFullStartOffset() {
+        if (leading.isEmpty()) {
+            return startOffset;
+        }
+        return leading.get(0).getStartOffset();
+    }
+
+    /**
+     * Get the end offset of the token including its trailing minutiae.
+     */
+    public int getFullEndOffset() {
+        if (trailing.isEmpty()) {
+            return endOffset;
+        }
+        return trailing.get(trailing.size() - 1).getEndOffset();
+    }
+
+    protected static List<Minutiae> shiftMinutiae(List<Minutiae> minutiae, int delta) {
+        if (minutiae.isEmpty()) {
+            return minutiae;
+        }
+        List<Minutiae> shifted = new ArrayList<>(minutiae.size());
+        for (Minutiae m : minutiae) {
+            shifted.add(m.shift(delta));
+        }
+        return shifted;
+    }
 }
@@ -3,35 +3,125 @@ package parser;
 import diagnostics.DiagnosticCollector;
 import diagnostics.Highlightable;
 import lexer.AbstractLexer;
+import lexer.PackedTokenStream;
 import lexer.tokens.Token;
 import lexer.tokens.TokenKind;
 import parser.nodes.ASTNode;
+import parser.nodes.FlatTree;
+import parser.nodes.FlatTreeBuilder;
 import parser.nodes.IdentifierNode;
 import parser.nodes.Node;
 import parser.nodes.NodeKind;
 
-import java.util.Stack;
 import java.util.function.Supplier;
 
 public abstract class AbstractParser extends DiagnosticCollector {
-    protected final Stack<Node> nodeStack;
+    protected final NodeStack nodeStack;
     protected final TokenReader tokenReader;
+    // Stream the tokens are read from, or null when they are read from a lexer.
+    protected final PackedTokenStream tokens;
+    // Set while parsing into a flat tree instead of AST nodes.
+    protected FlatTreeBuilder flatTreeBuilder;
+    // Set while reporting nodes to a listener instead of building them.
+    protected ParseListener listener;
 
     protected AbstractParser(AbstractLexer lexer) {
-        this.nodeStack = new Stack<>();
-        this.tokenReader = new TokenReader(lexer);
+        this.nodeStack = new NodeStack();
+        this.tokenReader = new LexerTokenReader(lexer);
+        this.tokens = null;
     }
 
-    public abstract ASTNode parse();
+    /**
+     * Create a parser that reads a packed token stream.
+     *
+     * @param tokens      the token stream.
+     * @param tokenReader the reader over the tokens of the stream to parse.
+     */
+    protected AbstractParser(PackedTokenStream tokens, TokenReader tokenReader) {
+        this.nodeStack = new NodeStack();
+        this.tokenReader = tokenReader;
+        this.tokens = tokens;
+    }
+
+    public ASTNode parse() {
+        parseWinZig();
+        Node winZigNode = nodeStack.pop();
+        if (winZigNode instanceof ASTNode) {
+            if (!nodeStack.isEmpty()) addError(winZigNode, "Internal error: More items left in parser stack.");
+            return (ASTNode) winZigNode;
+        }
+        // This should not reach.
+        throw new IllegalStateException(String.format("[%s] but remaining %s.", winZigNode, nodeStack));
+    }
+
+    /**
+     * Parse into a flat tree instead of AST nodes.
+     * Only available when parsing a packed token stream, since the leaves of the tree refer to its tokens.
+     *
+     * @return the flat tree of the program.
+     */
+    public FlatTree parseFlat() {
+        if (tokens == null) {
+            throw new IllegalStateException("Flat trees can only be parsed from a packed token stream.");
+        }
+        flatTreeBuilder = new FlatTreeBuilder(tokens);
+        try {
+            parseWinZig();
+            FlatTree tree = flatTreeBuilder.build();
+            if (!flatTreeBuilder.isEmpty()) {
+                addError(tree.getNode(tree.getRoot()), "Internal error: More items left in parser stack.");
+            }
+            return tree;
+        } finally {
+            flatTreeBuilder = null;
+        }
+    }
+
+    /**
+     * Parse the program and report its nodes to a listener instead of building a tree.
+     * No node is retained, so the memory used by the parser is bounded by the nesting depth of the program.
+     *
+     * @param listener the listener to report the nodes to.
+     */
+    public void parse(ParseListener listener) {
+        this.listener = listener;
+        try {
+            parseWinZig();
+        } finally {
+            this.listener = null;
+        }
+    }
+
+    /**
+     * Parse the whole program, building its nodes with {@link #buildTree}.
+     * Whether they become AST nodes, a flat tree or listener events depends on the parse method that was called.
+     */
+    protected abstract void parseWinZig();
 
     protected int parseIdentifier(TokenKind kind) {
+        if (flatTreeBuilder != null) {
+            // Flat leaves refer to the token by index, so it is not materialized.
+            flatTreeBuilder.pushIdentifier(tokenReader.tokenIndex());
+            parseToken(kind);
+            return 1;
+        }
         Token nextToken = readToken(kind);
+        if (listener != null) {
+            listener.token(nextToken);
+            return 1;
+        }
         nodeStack.push(new IdentifierNode(nextToken));
         return 1;
     }
 
     protected int parseToken(TokenKind kind) {
-        readToken(kind);
+        // Skipped tokens are never materialized.
+        TokenKind tokenKind = peekNextKind();
+        if (tokenKind == kind) {
+            tokenReader.advance();
+        } else {
+            addUnexpectedTokenError(kind);
+        }
         return 0;
     }
 
@@ -40,14 +130,18 @@ public abstract class AbstractParser extends DiagnosticCollector {
         if (tokenKind == kind) {
             return tokenReader.read();
         } else {
-            Token foundToken = tokenReader.peek(0);
-            addError(foundToken, "Expected %s[%s] but found %s",
-                    kind, kind.getValue(), foundToken);
             // Return the next token anyway.
-            return foundToken;
+            return addUnexpectedTokenError(kind);
         }
     }
 
+    private Token addUnexpectedTokenError(TokenKind kind) {
+        Token foundToken = tokenReader.peek(0);
+        addError(foundToken, "Expected %s[%s] but found %s",
+                kind, kind.getValue(), foundToken);
+        return foundToken;
+    }
+
     protected int parseList(Supplier<Integer> parser, TokenKind seperator) {
         int itemCount = 0;
         itemCount += parser.get();
@@ -61,14 +155,15 @@ public abstract class AbstractParser extends DiagnosticCollector {
     }
 
     protected int buildTree(NodeKind kind, int childrenCount) {
-        Stack<Node> children = new Stack<>();
-        for (int i = 0; i < childrenCount; i++) {
-            children.push(nodeStack.pop());
+        if (flatTreeBuilder != null) {
+            flatTreeBuilder.build(kind, childrenCount);
+            return 1;
         }
-        ASTNode node = new ASTNode(kind);
-        for (int i = 0; i < childrenCount; i++) {
-            node.addChild(children.pop());
+        if (listener != null) {
+            listener.exit(kind, childrenCount);
+            return 1;
         }
+        ASTNode node = new ASTNode(kind, nodeStack.pop(childrenCount));
         nodeStack.push(node);
         return 1;
     }
@@ -78,7 +173,7 @@ public abstract class AbstractParser extends DiagnosticCollector {
     }
 
     protected TokenKind peekNextKind(int skip) {
-        return tokenReader.peek(skip).getKind();
+        return tokenReader.peekKind(skip);
     }
 
     @Override
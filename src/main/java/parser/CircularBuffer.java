@@ -2,26 +2,30 @@ package parser;
 
 import java.util.Arrays;
 
+/**
+ * FIFO ring buffer with a power-of-two capacity.
+ * Positions are mapped to slots with a mask, and the buffer doubles when full.
+ */
 public class CircularBuffer<T> {
-    private final int capacity;
-    private final T[] buffer;
+    private T[] buffer;
+    private int mask;
     private int startIndex;
     private int size;
 
     @SuppressWarnings("unchecked")
     public CircularBuffer(int capacity) {
-        this.capacity = capacity;
-        this.buffer = (T[]) new Object[capacity];
+        int powerOfTwo = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        this.buffer = (T[]) new Object[powerOfTwo];
+        this.mask = powerOfTwo - 1;
         this.startIndex = 0;
         this.size = 0;
     }
 
     public void add(T value) {
-        if (size >= capacity) {
-            throw new IndexOutOfBoundsException();
+        if (size == buffer.length) {
+            grow();
         }
-        int newIndex = index(size);
-        buffer[newIndex] = value;
+        buffer[index(size)] = value;
         size++;
     }
 
@@ -51,8 +55,26 @@ public class CircularBuffer<T> {
         return size;
     }
 
+    public int getCapacity() {
+        return buffer.length;
+    }
+
     private int index(int i) {
-        return (i + startIndex) % capacity;
+        return (i + startIndex) & mask;
+    }
+
+    /**
+     * Double the capacity, moving the items to the front of the new array in order.
+     */
+    @SuppressWarnings("unchecked")
+    private void grow() {
+        T[] newBuffer = (T[]) new Object[buffer.length * 2];
+        int headLength = buffer.length - startIndex;
+        System.arraycopy(buffer, startIndex, newBuffer, 0, headLength);
+        System.arraycopy(buffer, 0, newBuffer, headLength, startIndex);
+        buffer = newBuffer;
+        mask = newBuffer.length - 1;
+        startIndex = 0;
     }
 
     @Override
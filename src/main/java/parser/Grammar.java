@@ -0,0 +1,225 @@
+package parser;
+
+import lexer.tokens.TokenKind;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Context-free grammar over token kinds, from which an LL(1) parse table is derived.
+ * Symbols are ints:
+ * token kind ordinals are terminals that are matched and dropped,
+ * the range after them holds terminals that are kept as identifier leaves,
+ * nonterminals follow those, and negative symbols are actions that derive the empty string.
+ */
+class Grammar {
+    static final int TERMINAL_COUNT = TokenKind.values().length;
+    private static final int NONTERMINAL_START = 2 * TERMINAL_COUNT;
+
+    private final List<String> nonterminals;
+    private final List<Integer> heads;
+    private final List<int[]> bodies;
+
+    Grammar() {
+        this.nonterminals = new ArrayList<>();
+        this.heads = new ArrayList<>();
+        this.bodies = new ArrayList<>();
+    }
+
+    static int token(TokenKind kind) {
+        return kind.ordinal();
+    }
+
+    static int leaf(TokenKind kind) {
+        return TERMINAL_COUNT + kind.ordinal();
+    }
+
+    static boolean isNonterminal(int symbol) {
+        return symbol >= NONTERMINAL_START;
+    }
+
+    static boolean isLeaf(int symbol) {
+        return symbol >= TERMINAL_COUNT && symbol < NONTERMINAL_START;
+    }
+
+    static boolean isAction(int symbol) {
+        return symbol < 0;
+    }
+
+    static TokenKind getTokenKind(int terminal) {
+        return TokenKind.values()[terminal % TERMINAL_COUNT];
+    }
+
+    int nonterminal(String name) {
+        nonterminals.add(name);
+        return NONTERMINAL_START + nonterminals.size() - 1;
+    }
+
+    /**
+     * Add a production. The first production of a nonterminal is its default,
+     * which is expanded when no production starts with the lookahead.
+     *
+     * @param head the nonterminal.
+     * @param body the symbols the nonterminal expands to.
+     */
+    void production(int head, int... body) {
+        heads.add(head);
+        bodies.add(body);
+    }
+
+    /**
+     * Derive the parse table from the FIRST and FOLLOW sets of the grammar.
+     * A production that derives the empty string is selected by the FOLLOW set of its head,
+     * unless another production starts with the same token. This binds an else to the nearest if.
+     * Entries no production is selected by expand the default production, so that a mismatch is
+     * reported by the first terminal that does not match, as the recursive descent parser does.
+     *
+     * @param start the start symbol.
+     * @return the parse table.
+     * @throws IllegalStateException if two productions of a nonterminal start with the same token.
+     */
+    ParseTable buildTable(int start) {
+        int nonterminalCount = nonterminals.size();
+        boolean[] nullable = new boolean[nonterminalCount];
+        BitSet[] first = newSets(nonterminalCount);
+        BitSet[] follow = newSets(nonterminalCount);
+        follow[start - NONTERMINAL_START].set(TokenKind.EOF_TOKEN.ordinal());
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int p = 0; p < bodies.size(); p++) {
+                int head = heads.get(p) - NONTERMINAL_START;
+                BitSet bodyFirst = new BitSet();
+                boolean bodyNullable = first(bodies.get(p), 0, nullable, first, bodyFirst);
+                if (!contains(first[head], bodyFirst)) {
+                    first[head].or(bodyFirst);
+                    changed = true;
+                }
+                if (bodyNullable && !nullable[head]) {
+                    nullable[head] = true;
+                    changed = true;
+                }
+            }
+        }
+
+        changed = true;
+        while (changed) {
+            changed = false;
+            for (int p = 0; p < bodies.size(); p++) {
+                int head = heads.get(p) - NONTERMINAL_START;
+                int[] body = bodies.get(p);
+                for (int i = 0; i < body.length; i++) {
+                    if (!isNonterminal(body[i])) {
+                        continue;
+                    }
+                    BitSet symbolFollow = new BitSet();
+                    if (first(body, i + 1, nullable, first, symbolFollow)) {
+                        symbolFollow.or(follow[head]);
+                    }
+                    BitSet target = follow[body[i] - NONTERMINAL_START];
+                    if (!contains(target, symbolFollow)) {
+                        target.or(symbolFollow);
+                        changed = true;
+                    }
+                }
+            }
+        }
+
+        int[] table = new int[nonterminalCount * TERMINAL_COUNT];
+        int[] defaults = new int[nonterminalCount];
+        Arrays.fill(table, ParseTable.NO_PRODUCTION);
+        Arrays.fill(defaults, ParseTable.NO_PRODUCTION);
+        List<Integer> emptyProductions = new ArrayList<>();
+        for (int p = 0; p < bodies.size(); p++) {
+            int head = heads.get(p) - NONTERMINAL_START;
+            if (defaults[head] == ParseTable.NO_PRODUCTION) {
+                defaults[head] = p;
+            }
+            BitSet bodyFirst = new BitSet();
+            if (first(bodies.get(p), 0, nullable, first, bodyFirst)) {
+                emptyProductions.add(p);
+            }
+            for (int t = bodyFirst.nextSetBit(0); t >= 0; t = bodyFirst.nextSetBit(t + 1)) {
+                int entry = head * TERMINAL_COUNT + t;
+                if (table[entry] != ParseTable.NO_PRODUCTION) {
+                    throw new IllegalStateException(String.format("%s has two productions for %s.",
+                            nonterminals.get(head), TokenKind.values()[t]));
+                }
+                table[entry] = p;
+            }
+        }
+        for (int p : emptyProductions) {
+            int head = heads.get(p) - NONTERMINAL_START;
+            BitSet headFollow = follow[head];
+            for (int t = headFollow.nextSetBit(0); t >= 0; t = headFollow.nextSetBit(t + 1)) {
+                int entry = head * TERMINAL_COUNT + t;
+                if (table[entry] == ParseTable.NO_PRODUCTION) {
+                    table[entry] = p;
+                }
+            }
+        }
+        for (int head = 0; head < nonterminalCount; head++) {
+            if (defaults[head] == ParseTable.NO_PRODUCTION) {
+                throw new IllegalStateException("No production for " + nonterminals.get(head) + ".");
+            }
+            for (int t = 0; t < TERMINAL_COUNT; t++) {
+                int entry = head * TERMINAL_COUNT + t;
+                if (table[entry] == ParseTable.NO_PRODUCTION) {
+                    table[entry] = defaults[head];
+                }
+            }
+        }
+
+        // Bodies are stored reversed, so that they can be copied onto the parse stack as they are.
+        int[][] reversedBodies = new int[bodies.size()][];
+        for (int p = 0; p < bodies.size(); p++) {
+            int[] body = bodies.get(p);
+            int[] reversed = new int[body.length];
+            for (int i = 0; i < body.length; i++) {
+                reversed[i] = body[body.length - 1 - i];
+            }
+            reversedBodies[p] = reversed;
+        }
+        return new ParseTable(start, NONTERMINAL_START, table, reversedBodies);
+    }
+
+    /**
+     * Add the FIRST set of a suffix of a body to the given set.
+     *
+     * @return whether the suffix derives the empty string.
+     */
+    private static boolean first(int[] body, int from, boolean[] nullable, BitSet[] first, BitSet result) {
+        for (int i = from; i < body.length; i++) {
+            int symbol = body[i];
+            if (isAction(symbol)) {
+                continue;
+            }
+            if (!isNonterminal(symbol)) {
+                result.set(symbol % TERMINAL_COUNT);
+                return false;
+            }
+            result.or(first[symbol - NONTERMINAL_START]);
+            if (!nullable[symbol - NONTERMINAL_START]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean contains(BitSet set, BitSet subset) {
+        BitSet missing = (BitSet) subset.clone();
+        missing.andNot(set);
+        return missing.isEmpty();
+    }
+
+    private static BitSet[] newSets(int count) {
+        BitSet[] sets = new BitSet[count];
+        for (int i = 0; i < count; i++) {
+            sets[i] = new BitSet();
+        }
+        return sets;
+    }
+}
@@ -0,0 +1,100 @@
+package parser;
+
+
+import diagnostics.Highlightable;
+import lexer.AbstractLexer;
+import lexer.tokens.Token;
+import lexer.tokens.TokenKind;
+
+/**
+ * Token reader that pulls tokens from a lexer on demand.
+ * Lookahead tokens are kept in a growable ring buffer.
+ * While a mark is active, consumed tokens stay in the buffer
+ * (in front of the current position) so that the reader can be rewound.
+ */
+public class LexerTokenReader extends TokenReader {
+    private final AbstractLexer lexer;
+    private final CircularBuffer<Token> fetchedTokens;
+    private int position;
+    private int markDepth;
+    // Number of tokens consumed and dropped from the buffer.
+    private int droppedCount;
+
+    public LexerTokenReader(AbstractLexer lexer) {
+        this.lexer = lexer;
+        this.fetchedTokens = new CircularBuffer<>(16);
+        this.position = 0;
+        this.markDepth = 0;
+        this.droppedCount = 0;
+    }
+
+    @Override
+    public Token peek(int k) {
+        while (fetchedTokens.getSize() <= position + k) {
+            Token nextToken = lexer.read();
+            fetchedTokens.add(nextToken);
+        }
+        return fetchedTokens.peek(position + k);
+    }
+
+    @Override
+    public TokenKind peekKind(int k) {
+        return peek(k).getKind();
+    }
+
+    @Override
+    public Token read() {
+        if (markDepth == 0) {
+            droppedCount++;
+            if (fetchedTokens.getSize() > 0) {
+                return fetchedTokens.remove();
+            }
+            return lexer.read();
+        }
+        Token token = peek(0);
+        position++;
+        return token;
+    }
+
+    @Override
+    public void advance() {
+        read();
+    }
+
+    @Override
+    public int tokenIndex() {
+        return droppedCount + position;
+    }
+
+    @Override
+    public int mark() {
+        markDepth++;
+        return position;
+    }
+
+    @Override
+    public void reset(int marker) {
+        position = marker;
+        release(marker);
+    }
+
+    @Override
+    public void release(int marker) {
+        if (markDepth == 0) {
+            throw new IllegalStateException("No active mark to release.");
+        }
+        markDepth--;
+        if (markDepth == 0) {
+            // Consumed tokens are no longer reachable.
+            for (; position > 0; position--) {
+                fetchedTokens.remove();
+                droppedCount++;
+            }
+        }
+    }
+
+    @Override
+    public String highlightedSegment(Highlightable highlightable) {
+        return lexer.highlightedSegment(highlightable);
+    }
+}
@@ -0,0 +1,73 @@
+package parser;
+
+import parser.nodes.Node;
+
+import java.util.Arrays;
+import java.util.EmptyStackException;
+import java.util.StringJoiner;
+
+/**
+ * Unsynchronized array-backed stack of parsed nodes.
+ */
+public class NodeStack {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private Node[] nodes;
+    private int size;
+
+    public NodeStack() {
+        this.nodes = new Node[INITIAL_CAPACITY];
+        this.size = 0;
+    }
+
+    public void push(Node node) {
+        if (size == nodes.length) {
+            nodes = Arrays.copyOf(nodes, size * 2);
+        }
+        nodes[size++] = node;
+    }
+
+    public Node pop() {
+        if (size == 0) {
+            throw new EmptyStackException();
+        }
+        Node node = nodes[--size];
+        nodes[size] = null;
+        return node;
+    }
+
+    /**
+     * Pop the top nodes of the stack.
+     * The nodes are returned in the order they were pushed.
+     *
+     * @param count the number of nodes to pop.
+     * @return a new array with exactly the popped nodes.
+     */
+    public Node[] pop(int count) {
+        if (count > size) {
+            throw new EmptyStackException();
+        }
+        int start = size - count;
+        Node[] popped = Arrays.copyOfRange(nodes, start, size);
+        Arrays.fill(nodes, start, size, null);
+        size = start;
+        return popped;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        StringJoiner sj = new StringJoiner(", ", "[", "]");
+        for (int i = 0; i < size; i++) {
+            sj.add(String.valueOf(nodes[i]));
+        }
+        return sj.toString();
+    }
+}
@@ -0,0 +1,78 @@
+package parser;
+
+import parser.nodes.NodeKind;
+
+import java.util.Arrays;
+import java.util.EmptyStackException;
+
+/**
+ * Unsynchronized array-backed stack of pending operators and groups of an expression.
+ * Each entry holds the kind of the node it builds, its precedence and the number of children of that node.
+ * A group that does not build a node, like a pair of brackets, has no kind.
+ */
+class OperatorStack {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private NodeKind[] kinds;
+    private int[] precedences;
+    private int[] counts;
+    private int size;
+
+    OperatorStack() {
+        this.kinds = new NodeKind[INITIAL_CAPACITY];
+        this.precedences = new int[INITIAL_CAPACITY];
+        this.counts = new int[INITIAL_CAPACITY];
+        this.size = 0;
+    }
+
+    void push(NodeKind kind, int precedence, int count) {
+        if (size == kinds.length) {
+            int capacity = size * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            precedences = Arrays.copyOf(precedences, capacity);
+            counts = Arrays.copyOf(counts, capacity);
+        }
+        kinds[size] = kind;
+        precedences[size] = precedence;
+        counts[size] = count;
+        size++;
+    }
+
+    void pop() {
+        if (size == 0) {
+            throw new EmptyStackException();
+        }
+        kinds[--size] = null;
+    }
+
+    NodeKind peekKind() {
+        return kinds[top()];
+    }
+
+    int peekPrecedence() {
+        return precedences[top()];
+    }
+
+    int peekCount() {
+        return counts[top()];
+    }
+
+    void incrementCount() {
+        counts[top()]++;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private int top() {
+        if (size == 0) {
+            throw new EmptyStackException();
+        }
+        return size - 1;
+    }
+}
@@ -0,0 +1,101 @@
+package parser;
+
+
+import diagnostics.Highlightable;
+import lexer.PackedTokenStream;
+import lexer.tokens.Token;
+import lexer.tokens.TokenKind;
+
+/**
+ * Token reader over an already lexed packed token stream.
+ * Lookahead is a direct index into the stream.
+ * Reading past the end keeps returning the last (EOF) token.
+ */
+public class PackedTokenReader extends TokenReader {
+    private final PackedTokenStream tokens;
+    // Index of the last token of the window.
+    private final int lastIndex;
+    // Index of the EOF token of the stream, returned past the end of the window.
+    private final int eofIndex;
+    private int position;
+
+    public PackedTokenReader(PackedTokenStream tokens) {
+        this(tokens, 0);
+    }
+
+    /**
+     * Create a reader that starts at the given token index.
+     */
+    public PackedTokenReader(PackedTokenStream tokens, int position) {
+        this(tokens, position, tokens.size());
+    }
+
+    /**
+     * Create a reader over a window of the stream.
+     * Reading past the end of the window keeps returning the EOF token of the stream,
+     * so that a parser over a window stops as it would at the end of the file.
+     *
+     * @param tokens   the token stream.
+     * @param position the index of the first token of the window.
+     * @param end      the index after the last token of the window.
+     */
+    public PackedTokenReader(PackedTokenStream tokens, int position, int end) {
+        this.tokens = tokens;
+        this.eofIndex = tokens.size() - 1;
+        this.lastIndex = Math.min(end, tokens.size()) - 1;
+        this.position = Math.min(position, lastIndex);
+    }
+
+    @Override
+    public Token peek(int k) {
+        return tokens.getToken(index(k));
+    }
+
+    @Override
+    public TokenKind peekKind(int k) {
+        return tokens.getKind(index(k));
+    }
+
+    @Override
+    public Token read() {
+        Token token = tokens.getToken(index(0));
+        advance();
+        return token;
+    }
+
+    @Override
+    public void advance() {
+        if (position <= lastIndex && position < eofIndex) {
+            position++;
+        }
+    }
+
+    @Override
+    public int tokenIndex() {
+        return index(0);
+    }
+
+    @Override
+    public int mark() {
+        return position;
+    }
+
+    @Override
+    public void reset(int marker) {
+        position = marker;
+    }
+
+    @Override
+    public void release(int marker) {
+    }
+
+    @Override
+    public String highlightedSegment(Highlightable highlightable) {
+        return tokens.highlightedSegment(highlightable);
+    }
+
+    private int index(int k) {
+        int index = position + k;
+        return index <= lastIndex ? index : eofIndex;
+    }
+}
@@ -0,0 +1,29 @@
+package parser;
+
+import lexer.tokens.Token;
+import parser.nodes.NodeKind;
+
+/**
+ * Receives the nodes of a program as it is parsed, instead of a tree.
+ * The parser builds nodes bottom up, so the kind of a node is only known after its children.
+ * Events are therefore reported in postorder: the events of the children of a node,
+ * its identifier leaves included, come before the exit of the node itself.
+ * Together with the child counts, this is enough to rebuild the tree.
+ */
+public interface ParseListener {
+    /**
+     * An identifier, literal or string leaf was parsed.
+     *
+     * @param token the token of the leaf.
+     */
+    void token(Token token);
+
+    /**
+     * A node was parsed.
+     *
+     * @param kind       the kind of the node.
+     * @param childCount the number of nodes and leaves reported since the start of the node
+     *                   that are its direct children.
+     */
+    void exit(NodeKind kind, int childCount);
+}
@@ -0,0 +1,37 @@
+package parser;
+
+/**
+ * LL(1) parse table derived from a {@link Grammar}.
+ * Rows are nonterminals and columns are token kind ordinals. Every entry selects a production,
+ * whose body is stored reversed so that it can be pushed to a parse stack as it is.
+ */
+final class ParseTable {
+    static final int NO_PRODUCTION = -1;
+
+    private final int start;
+    private final int nonterminalStart;
+    private final int[] table;
+    private final int[][] reversedBodies;
+
+    ParseTable(int start, int nonterminalStart, int[] table, int[][] reversedBodies) {
+        this.start = start;
+        this.nonterminalStart = nonterminalStart;
+        this.table = table;
+        this.reversedBodies = reversedBodies;
+    }
+
+    int getStart() {
+        return start;
+    }
+
+    /**
+     * Get the reversed body of the production to expand a nonterminal to.
+     *
+     * @param nonterminal the nonterminal on top of the parse stack.
+     * @param lookahead   the ordinal of the kind of the next token.
+     * @return the symbols of the production, last symbol first.
+     */
+    int[] getExpansion(int nonterminal, int lookahead) {
+        return reversedBodies[table[(nonterminal - nonterminalStart) * Grammar.TERMINAL_COUNT + lookahead]];
+    }
+}
@@ -0,0 +1,103 @@
+package parser;
+
+import lexer.PackedTokenStream;
+import lexer.WinZigLexer;
+import lexer.tokens.TokenKind;
+import parser.nodes.NodeKind;
+
+import java.util.Arrays;
+
+/**
+ * Parser that interprets the LL(1) parse table of {@link WinZigGrammar} with an explicit stack.
+ * It builds the same trees as {@link WinZigParser} for valid programs.
+ * Malformed programs may be reported differently, since the recursive descent parser looks
+ * two tokens ahead in places, while this parser decides every expansion by the next token only.
+ */
+public class TableDrivenParser extends AbstractParser {
+    private static final TokenKind[] TOKEN_KINDS = TokenKind.values();
+    private static final NodeKind[] NODE_KINDS = NodeKind.values();
+    private static final int INITIAL_CAPACITY = 64;
+
+    private int[] symbols;
+    private int symbolCount;
+    // Item counts at the start of the nodes being built.
+    private int[] marks;
+    private int markCount;
+    // Number of nodes pushed and not yet taken as children.
+    private int itemCount;
+
+    public TableDrivenParser(WinZigLexer lexer) {
+        super(lexer);
+        this.symbols = new int[INITIAL_CAPACITY];
+        this.marks = new int[INITIAL_CAPACITY];
+    }
+
+    public TableDrivenParser(PackedTokenStream tokens) {
+        super(tokens, new PackedTokenReader(tokens));
+        this.symbols = new int[INITIAL_CAPACITY];
+        this.marks = new int[INITIAL_CAPACITY];
+    }
+
+    @Override
+    protected void parseWinZig() {
+        ParseTable table = WinZigGrammar.TABLE;
+        symbolCount = 0;
+        markCount = 0;
+        itemCount = 0;
+        push(table.getStart());
+        // Kind of the next token, until a terminal is matched.
+        int lookahead = -1;
+        while (symbolCount > 0) {
+            int symbol = symbols[--symbolCount];
+            if (Grammar.isAction(symbol)) {
+                perform(symbol);
+            } else if (Grammar.isNonterminal(symbol)) {
+                if (lookahead < 0) {
+                    lookahead = peekNextKind().ordinal();
+                }
+                int[] expansion = table.getExpansion(symbol, lookahead);
+                if (symbolCount + expansion.length > symbols.length) {
+                    symbols = Arrays.copyOf(symbols, Math.max(symbols.length * 2, symbolCount + expansion.length));
+                }
+                System.arraycopy(expansion, 0, symbols, symbolCount, expansion.length);
+                symbolCount += expansion.length;
+            } else if (Grammar.isLeaf(symbol)) {
+                itemCount += parseIdentifier(TOKEN_KINDS[symbol - Grammar.TERMINAL_COUNT]);
+                lookahead = -1;
+            } else {
+                parseToken(TOKEN_KINDS[symbol]);
+                lookahead = -1;
+            }
+        }
+    }
+
+    private void perform(int action) {
+        switch (WinZigGrammar.getActionType(action)) {
+            case WinZigGrammar.MARK:
+                if (markCount == marks.length) {
+                    marks = Arrays.copyOf(marks, markCount * 2);
+                }
+                marks[markCount++] = itemCount;
+                break;
+            case WinZigGrammar.UNMARK:
+                markCount--;
+                break;
+            case WinZigGrammar.BUILD:
+                int start = marks[--markCount];
+                buildTree(NODE_KINDS[WinZigGrammar.getActionArgument(action)], itemCount - start);
+                itemCount = start + 1;
+                break;
+            default:
+                buildTree(NODE_KINDS[WinZigGrammar.getActionArgument(action)], 2);
+                itemCount--;
+                break;
+        }
+    }
+
+    private void push(int symbol) {
+        if (symbolCount == symbols.length) {
+            symbols = Arrays.copyOf(symbols, symbolCount * 2);
+        }
+        symbols[symbolCount++] = symbol;
+    }
+}
@@ -1,37 +1,53 @@
 package parser;
 
 
-import diagnostics.Highlightable;
 import diagnostics.TextHighlighter;
-import lexer.AbstractLexer;
 import lexer.tokens.Token;
+import lexer.tokens.TokenKind;
 
-public class TokenReader implements TextHighlighter {
-    private final AbstractLexer lexer;
-    private final CircularBuffer<Token> fetchedTokens;
-
-    public TokenReader(AbstractLexer lexer) {
-        this.lexer = lexer;
-        this.fetchedTokens = new CircularBuffer<>(10);
-    }
-
-    public Token peek(int k) {
-        while (fetchedTokens.getSize() <= k) {
-            Token nextToken = lexer.read();
-            fetchedTokens.add(nextToken);
-        }
-        return fetchedTokens.peek(k);
-    }
-
-    public Token read() {
-        if (fetchedTokens.getSize() > 0) {
-            return fetchedTokens.remove();
-        }
-        return lexer.read();
-    }
-
-    @Override
-    public String highlightedSegment(Highlightable highlightable) {
-        return lexer.highlightedSegment(highlightable);
-    }
+public abstract class TokenReader implements TextHighlighter {
+    /**
+     * Get the k-th upcoming token without consuming it.
+     */
+    public abstract Token peek(int k);
+
+    /**
+     * Get the kind of the k-th upcoming token without consuming it.
+     */
+    public abstract TokenKind peekKind(int k);
+
+    /**
+     * Consume and return the next token.
+     */
+    public abstract Token read();
+
+    /**
+     * Consume the next token without returning it.
+     */
+    public abstract void advance();
+
+    /**
+     * Get the index of the next token in the token stream.
+     */
+    public abstract int tokenIndex();
+
+    /**
+     * Mark the current position so that the reader can be rewound to it.
+     * Every mark must be ended with either {@link #reset(int)} or {@link #release(int)},
+     * innermost mark first.
+     *
+     * @return the marker to pass to reset or release.
+     */
+    public abstract int mark();
+
+    /**
+     * Rewind to a marked position and end the mark.
+     * Tokens read after the mark are returned again without re-lexing.
+     */
+    public abstract void reset(int marker);
+
+    /**
+     * End a mark, keeping the current position.
+     */
+    public abstract void release(int marker);
 }
@@ -0,0 +1,251 @@
+package parser;
+
+import lexer.tokens.TokenKind;
+import parser.nodes.NodeKind;
+
+/**
+ * Grammar of WinZig for the {@link TableDrivenParser}, with the actions that build the same trees as
+ * {@link WinZigParser}. Left recursion and common prefixes are factored out into tail nonterminals.
+ * Actions are encoded as negative symbols holding an action type in the low bits and an argument above them.
+ * Build actions take their children either back to the latest mark, or the two nodes of a binary operator.
+ */
+final class WinZigGrammar {
+    static final int MARK = 0;
+    static final int UNMARK = 1;
+    static final int BUILD = 2;
+    static final int BUILD_BINARY = 3;
+    private static final int ACTION_BITS = 2;
+
+    static final ParseTable TABLE = createTable();
+
+    private WinZigGrammar() {
+    }
+
+    static int getActionType(int action) {
+        return (-action - 1) & ((1 << ACTION_BITS) - 1);
+    }
+
+    static int getActionArgument(int action) {
+        return (-action - 1) >>> ACTION_BITS;
+    }
+
+    private static int action(int type, int argument) {
+        return -((argument << ACTION_BITS | type) + 1);
+    }
+
+    private static int build(NodeKind kind) {
+        return action(BUILD, kind.ordinal());
+    }
+
+    private static int buildBinary(NodeKind kind) {
+        return action(BUILD_BINARY, kind.ordinal());
+    }
+
+    private static int token(TokenKind kind) {
+        return Grammar.token(kind);
+    }
+
+    private static ParseTable createTable() {
+        Grammar g = new Grammar();
+        int mark = action(MARK, 0);
+        int unmark = action(UNMARK, 0);
+        int name = Grammar.leaf(TokenKind.IDENTIFIER);
+        int comma = token(TokenKind.COMMA_TOKEN);
+        int semicolon = token(TokenKind.SEMICOLON_TOKEN);
+        int colon = token(TokenKind.COLON_TOKEN);
+        int open = token(TokenKind.OPEN_BRACKET_TOKEN);
+        int close = token(TokenKind.CLOSE_BRACKET_TOKEN);
+
+        int winZig = g.nonterminal("WinZig");
+        int consts = g.nonterminal("Consts");
+        int constList = g.nonterminal("ConstList");
+        int constant = g.nonterminal("Const");
+        int constValue = g.nonterminal("ConstValue");
+        int types = g.nonterminal("Types");
+        int typeList = g.nonterminal("TypeList");
+        int type = g.nonterminal("Type");
+        int litList = g.nonterminal("LitList");
+        int nameList = g.nonterminal("NameList");
+        int subProgs = g.nonterminal("SubProgs");
+        int fcnList = g.nonterminal("FcnList");
+        int fcn = g.nonterminal("Fcn");
+        int params = g.nonterminal("Params");
+        int paramList = g.nonterminal("ParamList");
+        int dclns = g.nonterminal("Dclns");
+        int dclnList = g.nonterminal("DclnList");
+        int dcln = g.nonterminal("Dcln");
+        int body = g.nonterminal("Body");
+        int statementList = g.nonterminal("StatementList");
+        int statement = g.nonterminal("Statement");
+        int elseClause = g.nonterminal("ElseClause");
+        int outExp = g.nonterminal("OutExp");
+        int outExpList = g.nonterminal("OutExpList");
+        int forStat = g.nonterminal("ForStat");
+        int forExp = g.nonterminal("ForExp");
+        int caseClauses = g.nonterminal("CaseClauses");
+        int caseClause = g.nonterminal("CaseClause");
+        int caseExpList = g.nonterminal("CaseExpList");
+        int caseExpression = g.nonterminal("CaseExpression");
+        int rangeTail = g.nonterminal("RangeTail");
+        int otherwiseClause = g.nonterminal("OtherwiseClause");
+        int assignment = g.nonterminal("Assignment");
+        int assignmentTail = g.nonterminal("AssignmentTail");
+        int expression = g.nonterminal("Expression");
+        int relationTail = g.nonterminal("RelationTail");
+        int term = g.nonterminal("Term");
+        int termTail = g.nonterminal("TermTail");
+        int factor = g.nonterminal("Factor");
+        int factorTail = g.nonterminal("FactorTail");
+        int primary = g.nonterminal("Primary");
+        int callTail = g.nonterminal("CallTail");
+        int expressionList = g.nonterminal("ExpressionList");
+
+        g.production(winZig, mark, token(TokenKind.PROGRAM_KEYWORD), name, colon,
+                consts, types, dclns, subProgs, body, name, token(TokenKind.SINGLE_DOT_TOKEN), build(NodeKind.PROGRAM));
+
+        g.production(consts, mark, build(NodeKind.CONSTS));
+        g.production(consts, mark, token(TokenKind.CONST_KEYWORD), constant, constList, semicolon,
+                build(NodeKind.CONSTS));
+        g.production(constList);
+        g.production(constList, comma, constant, constList);
+        g.production(constant, mark, name, token(TokenKind.EQUAL_TOKEN), constValue, build(NodeKind.CONST));
+        g.production(constValue, name);
+        g.production(constValue, Grammar.leaf(TokenKind.INTEGER_LITERAL));
+        g.production(constValue, Grammar.leaf(TokenKind.CHAR_LITERAL));
+
+        g.production(types, mark, build(NodeKind.TYPES));
+        g.production(types, mark, token(TokenKind.TYPE_KEYWORD), type, semicolon, typeList, build(NodeKind.TYPES));
+        g.production(typeList);
+        g.production(typeList, type, semicolon, typeList);
+        g.production(type, mark, name, token(TokenKind.EQUAL_TOKEN), litList, build(NodeKind.TYPE));
+        g.production(litList, mark, open, name, nameList, close, build(NodeKind.LIT));
+        g.production(nameList);
+        g.production(nameList, comma, name, nameList);
+
+        g.production(subProgs, mark, fcnList, build(NodeKind.SUBPROGS));
+        g.production(fcnList);
+        g.production(fcnList, fcn, fcnList);
+        g.production(fcn, mark, token(TokenKind.FUNCTION_KEYWORD), name, open, params, close, colon, name, semicolon,
+                consts, types, dclns, body, name, semicolon, build(NodeKind.FCN));
+        g.production(params, mark, dcln, paramList, build(NodeKind.PARAMS));
+        g.production(paramList);
+        g.production(paramList, semicolon, dcln, paramList);
+
+        g.production(dclns, mark, build(NodeKind.DCLNS));
+        g.production(dclns, mark, token(TokenKind.VAR_KEYWORD), dcln, semicolon, dclnList, build(NodeKind.DCLNS));
+        g.production(dclnList);
+        g.production(dclnList, dcln, semicolon, dclnList);
+        g.production(dcln, mark, name, nameList, colon, name, build(NodeKind.VAR));
+
+        g.production(body, mark, token(TokenKind.BEGIN_KEYWORD), statement, statementList,
+                token(TokenKind.END_KEYWORD), build(NodeKind.BLOCK));
+        g.production(statementList);
+        g.production(statementList, semicolon, statement, statementList);
+
+        g.production(statement, mark, build(NodeKind.NULL_STATEMENT));
+        g.production(statement, assignment);
+        g.production(statement, mark, token(TokenKind.OUTPUT_KEYWORD), open, outExp, outExpList, close,
+                build(NodeKind.OUTPUT_STATEMENT));
+        g.production(statement, mark, token(TokenKind.IF_KEYWORD), expression, token(TokenKind.THEN_KEYWORD),
+                statement, elseClause, build(NodeKind.IF_STATEMENT));
+        g.production(statement, mark, token(TokenKind.WHILE_KEYWORD), expression, token(TokenKind.DO_KEYWORD),
+                statement, build(NodeKind.WHILE_STATEMENT));
+        g.production(statement, mark, token(TokenKind.REPEAT_KEYWORD), statement, statementList,
+                token(TokenKind.UNTIL_KEYWORD), expression, build(NodeKind.REPEAT_STATEMENT));
+        g.production(statement, mark, token(TokenKind.FOR_KEYWORD), open, forStat, semicolon, forExp, semicolon,
+                forStat, close, statement, build(NodeKind.FOR_STATEMENT));
+        g.production(statement, mark, token(TokenKind.LOOP_KEYWORD), statement, statementList,
+                token(TokenKind.POOL_KEYWORD), build(NodeKind.LOOP_STATEMENT));
+        g.production(statement, mark, token(TokenKind.CASE_KEYWORD), expression, token(TokenKind.OF_KEYWORD),
+                caseClause, semicolon, caseClauses, otherwiseClause, token(TokenKind.END_KEYWORD),
+                build(NodeKind.CASE_STATEMENT));
+        g.production(statement, mark, token(TokenKind.READ_KEYWORD), open, name, nameList, close,
+                build(NodeKind.READ_STATEMENT));
+        g.production(statement, mark, token(TokenKind.EXIT_KEYWORD), build(NodeKind.EXIT_STATEMENT));
+        g.production(statement, mark, token(TokenKind.RETURN_KEYWORD), expression, build(NodeKind.RETURN_STATEMENT));
+        g.production(statement, body);
+        g.production(elseClause);
+        g.production(elseClause, token(TokenKind.ELSE_KEYWORD), statement);
+
+        g.production(outExp, mark, expression, build(NodeKind.INTEGER_OUT_EXP));
+        g.production(outExp, mark, Grammar.leaf(TokenKind.STRING_LITERAL), build(NodeKind.STRING_OUT_EXP));
+        g.production(outExpList);
+        g.production(outExpList, comma, outExp, outExpList);
+
+        g.production(forStat, assignment);
+        g.production(forStat, mark, build(NodeKind.NULL_STATEMENT));
+        g.production(forExp, expression);
+        g.production(forExp, mark, build(NodeKind.TRUE));
+
+        g.production(caseClauses);
+        g.production(caseClauses, caseClause, semicolon, caseClauses);
+        g.production(caseClause, mark, caseExpression, caseExpList, colon, statement, build(NodeKind.CASE_CLAUSE));
+        g.production(caseExpList);
+        g.production(caseExpList, comma, caseExpression, caseExpList);
+        g.production(caseExpression, constValue, rangeTail);
+        g.production(rangeTail);
+        g.production(rangeTail, token(TokenKind.DOUBLE_DOTS_TOKEN), constValue,
+                buildBinary(NodeKind.DOUBLE_DOTS_CLAUSE));
+        g.production(otherwiseClause);
+        g.production(otherwiseClause, mark, token(TokenKind.OTHERWISE_KEYWORD), statement,
+                build(NodeKind.OTHERWISE_CLAUSE));
+
+        g.production(assignment, mark, name, assignmentTail);
+        g.production(assignmentTail, token(TokenKind.SWAP_TOKEN), name, build(NodeKind.SWAP_STATEMENT));
+        g.production(assignmentTail, token(TokenKind.ASSIGNMENT_TOKEN), expression,
+                build(NodeKind.ASSIGNMENT_STATEMENT));
+
+        g.production(expression, term, relationTail);
+        g.production(relationTail);
+        binary(g, relationTail, TokenKind.LT_EQUAL_TOKEN, term, NodeKind.LT_EQUAL_EXPRESSION, false);
+        binary(g, relationTail, TokenKind.LT_TOKEN, term, NodeKind.LT_EXPRESSION, false);
+        binary(g, relationTail, TokenKind.GT_EQUAL_TOKEN, term, NodeKind.GT_EQUAL_EXPRESSION, false);
+        binary(g, relationTail, TokenKind.GT_TOKEN, term, NodeKind.GT_EXPRESSION, false);
+        binary(g, relationTail, TokenKind.EQUAL_TOKEN, term, NodeKind.EQUALS_EXPRESSION, false);
+        binary(g, relationTail, TokenKind.NOT_EQUAL_TOKEN, term, NodeKind.NOT_EQUALS_EXPRESSION, false);
+        g.production(term, factor, termTail);
+        g.production(termTail);
+        binary(g, termTail, TokenKind.PLUS_TOKEN, factor, NodeKind.ADD_EXPRESSION, true);
+        binary(g, termTail, TokenKind.MINUS_TOKEN, factor, NodeKind.SUBTRACT_EXPRESSION, true);
+        binary(g, termTail, TokenKind.OR_KEYWORD, factor, NodeKind.OR_EXPRESSION, true);
+        g.production(factor, primary, factorTail);
+        g.production(factorTail);
+        binary(g, factorTail, TokenKind.MULTIPLY_TOKEN, primary, NodeKind.MULTIPLY_EXPRESSION, true);
+        binary(g, factorTail, TokenKind.DIVIDE_TOKEN, primary, NodeKind.DIVIDE_EXPRESSION, true);
+        binary(g, factorTail, TokenKind.AND_KEYWORD, primary, NodeKind.AND_EXPRESSION, true);
+        binary(g, factorTail, TokenKind.MOD_KEYWORD, primary, NodeKind.MOD_EXPRESSION, true);
+
+        g.production(primary, mark, name, callTail);
+        g.production(primary, mark, token(TokenKind.MINUS_TOKEN), primary, build(NodeKind.NEGATIVE_EXPRESSION));
+        g.production(primary, token(TokenKind.PLUS_TOKEN), primary);
+        g.production(primary, mark, token(TokenKind.NOT_KEYWORD), primary, build(NodeKind.NOT_EXPRESSION));
+        g.production(primary, mark, token(TokenKind.EOF_KEYWORD), build(NodeKind.EOF_EXPRESSION));
+        g.production(primary, Grammar.leaf(TokenKind.INTEGER_LITERAL));
+        g.production(primary, Grammar.leaf(TokenKind.CHAR_LITERAL));
+        g.production(primary, open, expression, close);
+        builtin(g, primary, TokenKind.SUCC_KEYWORD, expression, NodeKind.SUCC_EXPRESSION);
+        builtin(g, primary, TokenKind.PRED_KEYWORD, expression, NodeKind.PRED_EXPRESSION);
+        builtin(g, primary, TokenKind.CHR_KEYWORD, expression, NodeKind.CHR_EXPRESSION);
+        builtin(g, primary, TokenKind.ORD_KEYWORD, expression, NodeKind.ORD_EXPRESSION);
+        g.production(callTail, unmark);
+        g.production(callTail, open, expression, expressionList, close, build(NodeKind.CALL_EXPRESSION));
+        g.production(expressionList);
+        g.production(expressionList, comma, expression, expressionList);
+
+        return g.buildTable(winZig);
+    }
+
+    private static void binary(Grammar g, int tail, TokenKind operator, int operand, NodeKind kind,
+                               boolean repeated) {
+        if (repeated) {
+            g.production(tail, token(operator), operand, buildBinary(kind), tail);
+        } else {
+            g.production(tail, token(operator), operand, buildBinary(kind));
+        }
+    }
+
+    private static void builtin(Grammar g, int primary, TokenKind keyword, int expression, NodeKind kind) {
+        g.production(primary, action(MARK, 0), token(keyword), token(TokenKind.OPEN_BRACKET_TOKEN), expression,
+                token(TokenKind.CLOSE_BRACKET_TOKEN), build(kind));
+    }
+}
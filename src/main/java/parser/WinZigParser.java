@@ -1,29 +1,127 @@
 package parser;
 
+import lexer.PackedTokenStream;
 import lexer.WinZigLexer;
 import lexer.tokens.TokenKind;
 import parser.nodes.ASTNode;
-import parser.nodes.Node;
+import parser.nodes.LazyASTNode;
 import parser.nodes.NodeKind;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
 public class WinZigParser extends AbstractParser {
+    // More batches than workers, so that a batch of long bodies does not keep the other workers idle.
+    private static final int BATCHES_PER_WORKER = 4;
+    // Precedences of the entries of the operator stack. Brackets are groups that no operator reduces past.
+    private static final int GROUP = 0;
+    private static final int RELATIONAL = 1;
+    private static final int ADDITIVE = 2;
+    private static final int MULTIPLICATIVE = 3;
+    private static final int PREFIX = 4;
+
+    // Set while parsing without function bodies.
+    private boolean skeleton;
+    // Bodies skipped by the last skeleton parse, in source order.
+    private final List<SkippedBody> skippedBodies;
+    private final OperatorStack operators;
+
     public WinZigParser(WinZigLexer lexer) {
         super(lexer);
+        this.skippedBodies = new ArrayList<>();
+        this.operators = new OperatorStack();
     }
 
-    @Override
-    public ASTNode parse() {
-        parseWinZig();
-        Node winZigNode = nodeStack.pop();
-        if (winZigNode instanceof ASTNode) {
-            if (!nodeStack.isEmpty()) addError(winZigNode, "Internal error: More items left in parser stack.");
-            return (ASTNode) winZigNode;
+    public WinZigParser(PackedTokenStream tokens) {
+        this(tokens, 0, tokens.size());
+    }
+
+    private WinZigParser(PackedTokenStream tokens, int startIndex, int endIndex) {
+        super(tokens, new PackedTokenReader(tokens, startIndex, endIndex));
+        this.skippedBodies = new ArrayList<>();
+        this.operators = new OperatorStack();
+    }
+
+    /**
+     * Parse the program without parsing the bodies of its functions.
+     * Each function body is skipped up to its matching end, and is parsed over that window of tokens
+     * when its children are first accessed. Diagnostics of a body are added to this parser at that point.
+     * Trees of valid programs are the same as those of {@link #parse()}. A malformed body may be recovered
+     * differently, since it always ends at its matching end, while the eager parser may leave it earlier.
+     * Only available when parsing a packed token stream, since the bodies are parsed again from it.
+     *
+     * @return the AST of the program with lazy function bodies.
+     */
+    public ASTNode parseSkeleton() {
+        if (tokens == null) {
+            throw new IllegalStateException("Skeletons can only be parsed from a packed token stream.");
+        }
+        skippedBodies.clear();
+        skeleton = true;
+        try {
+            return parse();
+        } finally {
+            skeleton = false;
+        }
+    }
+
+    public ASTNode parseParallel() {
+        return parseParallel(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Parse the program, parsing the function bodies concurrently.
+     * A skeleton parse finds the bodies first. Function bodies do not nest, so each body is then parsed
+     * independently over its own window of tokens, in batches on the pool.
+     * Diagnostics of each body are placed where the body was skipped, so they come out in source order.
+     * Only available when parsing a packed token stream.
+     *
+     * @param pool the pool to parse the bodies on.
+     * @return the AST of the program.
+     */
+    public ASTNode parseParallel(ForkJoinPool pool) {
+        ASTNode program = parseSkeleton();
+        int bodyCount = skippedBodies.size();
+        WinZigParser[] bodyParsers = new WinZigParser[bodyCount];
+        int batchCount = Math.min(bodyCount, pool.getParallelism() * BATCHES_PER_WORKER);
+        if (pool.getParallelism() == 1 || batchCount <= 1) {
+            // A single worker gains nothing from the pool, so the bodies are then parsed on the calling thread.
+            parseBodies(0, bodyCount, bodyParsers);
+        } else {
+            // Batches are split by token count rather than by number of bodies.
+            int firstToken = skippedBodies.get(0).startIndex;
+            long totalTokens = skippedBodies.get(bodyCount - 1).endIndex - firstToken;
+            List<ForkJoinTask<?>> tasks = new ArrayList<>();
+            int batchStart = 0;
+            for (int batch = 1; batch <= batchCount && batchStart < bodyCount; batch++) {
+                long targetToken = firstToken + totalTokens * batch / batchCount;
+                int batchEnd = batchStart + 1;
+                while (batchEnd < bodyCount && skippedBodies.get(batchEnd).startIndex < targetToken) {
+                    batchEnd++;
+                }
+                int start = batchStart;
+                int end = batchEnd;
+                tasks.add(pool.submit(() -> parseBodies(start, end, bodyParsers)));
+                batchStart = batchEnd;
+            }
+            tasks.forEach(ForkJoinTask::join);
+        }
+
+        // Later bodies first, so that the diagnostic positions of earlier bodies stay valid.
+        for (int i = bodyCount - 1; i >= 0; i--) {
+            SkippedBody body = skippedBodies.get(i);
+            WinZigParser bodyParser = bodyParsers[i];
+            body.node.setParsed((ASTNode) bodyParser.nodeStack.pop());
+            insertDiagnostics(body.diagnosticIndex, bodyParser);
         }
-        // This should not reach.
-        throw new IllegalStateException(String.format("[%s] but remaining %s.", winZigNode, nodeStack));
+        skippedBodies.clear();
+        return program;
     }
 
-    private void parseWinZig() {
+    @Override
+    protected void parseWinZig() {
         int itemCount = 0;
         itemCount += parseToken(TokenKind.PROGRAM_KEYWORD);
         itemCount += parseName();
@@ -81,9 +179,12 @@ public class WinZigParser extends AbstractParser {
             while (tokenKind != TokenKind.VAR_KEYWORD
                     && tokenKind != TokenKind.FUNCTION_KEYWORD
                     && tokenKind != TokenKind.BEGIN_KEYWORD) {
+                int tokenIndex = tokenReader.tokenIndex();
                 itemCount += parseType();
                 itemCount += parseToken(TokenKind.SEMICOLON_TOKEN);
                 tokenKind = peekNextKind();
+                // Nothing was consumed, so the next token cannot start an item. Leave it to the caller.
+                if (tokenReader.tokenIndex() == tokenIndex) break;
             }
         }
         return buildTree(NodeKind.TYPES, itemCount);
@@ -128,7 +229,7 @@ public class WinZigParser extends AbstractParser {
         itemCount += parseConsts();
         itemCount += parseTypes();
         itemCount += parseDclns();
-        itemCount += parseBody();
+        itemCount += skeleton ? skipBody() : parseBody();
         itemCount += parseName();
         itemCount += parseToken(TokenKind.SEMICOLON_TOKEN);
         return buildTree(NodeKind.FCN, itemCount);
@@ -152,9 +253,12 @@ public class WinZigParser extends AbstractParser {
             tokenKind = peekNextKind();
             while (tokenKind != TokenKind.FUNCTION_KEYWORD
                     && tokenKind != TokenKind.BEGIN_KEYWORD) {
+                int tokenIndex = tokenReader.tokenIndex();
                 itemCount += parseDcln();
                 itemCount += parseToken(TokenKind.SEMICOLON_TOKEN);
                 tokenKind = peekNextKind();
+                // Nothing was consumed, so the next token cannot start an item. Leave it to the caller.
+                if (tokenReader.tokenIndex() == tokenIndex) break;
             }
         }
         return buildTree(NodeKind.DCLNS, itemCount);
@@ -176,6 +280,49 @@ public class WinZigParser extends AbstractParser {
         return buildTree(NodeKind.BLOCK, itemCount);
     }
 
+    private int skipBody() {
+        if (peekNextKind() != TokenKind.BEGIN_KEYWORD) {
+            // Not a body. Let the body parser report it.
+            return parseBody();
+        }
+        // Only begin and case are closed by end.
+        int bodyStart = tokenReader.tokenIndex();
+        int diagnosticIndex = getDiagnosticCount();
+        int depth = 0;
+        do {
+            TokenKind tokenKind = peekNextKind();
+            if (tokenKind == TokenKind.EOF_TOKEN) break;
+            if (tokenKind == TokenKind.BEGIN_KEYWORD || tokenKind == TokenKind.CASE_KEYWORD) {
+                depth++;
+            } else if (tokenKind == TokenKind.END_KEYWORD) {
+                depth--;
+            }
+            tokenReader.advance();
+        } while (depth > 0);
+        int bodyEnd = tokenReader.tokenIndex();
+        LazyASTNode body = new LazyASTNode(NodeKind.BLOCK, () -> {
+            WinZigParser bodyParser = parseBody(bodyStart, bodyEnd);
+            addDiagnostics(bodyParser);
+            return (ASTNode) bodyParser.nodeStack.pop();
+        });
+        skippedBodies.add(new SkippedBody(body, bodyStart, bodyEnd, diagnosticIndex));
+        nodeStack.push(body);
+        return 1;
+    }
+
+    private WinZigParser parseBody(int bodyStart, int bodyEnd) {
+        WinZigParser bodyParser = new WinZigParser(tokens, bodyStart, bodyEnd);
+        bodyParser.parseBody();
+        return bodyParser;
+    }
+
+    private void parseBodies(int start, int end, WinZigParser[] bodyParsers) {
+        for (int i = start; i < end; i++) {
+            SkippedBody body = skippedBodies.get(i);
+            bodyParsers[i] = parseBody(body.startIndex, body.endIndex);
+        }
+    }
+
     private int parseStatement() {
         TokenKind tokenKind = peekNextKind();
         if (tokenKind == TokenKind.OUTPUT_KEYWORD) {
@@ -332,9 +479,12 @@ public class WinZigParser extends AbstractParser {
         TokenKind tokenKind = peekNextKind();
         while (tokenKind != TokenKind.OTHERWISE_KEYWORD
                 && tokenKind != TokenKind.END_KEYWORD) {
+            int tokenIndex = tokenReader.tokenIndex();
             itemCount += parseCaseClause();
             itemCount += parseToken(TokenKind.SEMICOLON_TOKEN);
             tokenKind = peekNextKind();
+            // Nothing was consumed, so the next token cannot start an item. Leave it to the caller.
+            if (tokenReader.tokenIndex() == tokenIndex) break;
         }
         return itemCount;
     }
@@ -405,145 +555,174 @@ public class WinZigParser extends AbstractParser {
         }
     }
 
+    /**
+     * Parse an expression by precedence climbing.
+     * Pending operators and open brackets are kept on an explicit stack instead of the call stack,
+     * so the depth of nesting is only bounded by the heap. The trees are the same as those of the grammar
+     * Expression -> Term [relop Term], Term -> Factor {addop Factor}, Factor -> Primary {mulop Primary}.
+     */
     private int parseExpression() {
-        int itemCount = 0;
-        itemCount += parseTerm();
-        TokenKind tokenKind = peekNextKind();
-        if (tokenKind == TokenKind.LT_EQUAL_TOKEN) {
-            itemCount += parseToken(TokenKind.LT_EQUAL_TOKEN);
-            itemCount += parseTerm();
-            return buildTree(NodeKind.LT_EQUAL_EXPRESSION, itemCount);
-        } else if (tokenKind == TokenKind.LT_TOKEN) {
-            itemCount += parseToken(TokenKind.LT_TOKEN);
-            itemCount += parseTerm();
-            return buildTree(NodeKind.LT_EXPRESSION, itemCount);
-        } else if (tokenKind == TokenKind.GT_EQUAL_TOKEN) {
-            itemCount += parseToken(TokenKind.GT_EQUAL_TOKEN);
-            itemCount += parseTerm();
-            return buildTree(NodeKind.GT_EQUAL_EXPRESSION, itemCount);
-        } else if (tokenKind == TokenKind.GT_TOKEN) {
-            itemCount += parseToken(TokenKind.GT_TOKEN);
-            itemCount += parseTerm();
-            return buildTree(NodeKind.GT_EXPRESSION, itemCount);
-        } else if (tokenKind == TokenKind.EQUAL_TOKEN) {
-            itemCount += parseToken(TokenKind.EQUAL_TOKEN);
-            itemCount += parseTerm();
-            return buildTree(NodeKind.EQUALS_EXPRESSION, itemCount);
-        } else if (tokenKind == TokenKind.NOT_EQUAL_TOKEN) {
-            itemCount += parseToken(TokenKind.NOT_EQUAL_TOKEN);
-            itemCount += parseTerm();
-            return buildTree(NodeKind.NOT_EQUALS_EXPRESSION, itemCount);
+        // Entries below the base belong to an enclosing expression.
+        int base = operators.size();
+        while (true) {
+            parseOperand();
+            while (true) {
+                reduceOperators(base, PREFIX);
+                TokenKind tokenKind = peekNextKind();
+                int precedence = getBinaryPrecedence(tokenKind);
+                if (precedence != GROUP) {
+                    reduceOperators(base, Math.max(precedence, ADDITIVE));
+                    // Relational operators do not associate, so a second one ends the expression.
+                    boolean repeated = precedence == RELATIONAL && operators.size() > base
+                            && operators.peekPrecedence() == RELATIONAL;
+                    if (!repeated) {
+                        parseToken(tokenKind);
+                        operators.push(getBinaryNodeKind(tokenKind), precedence, 2);
+                        break;
+                    }
+                }
+
+                // The innermost open expression ends here.
+                reduceOperators(base, RELATIONAL);
+                if (operators.size() == base) {
+                    return 1;
+                }
+                if (tokenKind == TokenKind.COMMA_TOKEN && operators.peekKind() == NodeKind.CALL_EXPRESSION) {
+                    parseToken(TokenKind.COMMA_TOKEN);
+                    operators.incrementCount();
+                    break;
+                }
+                parseToken(TokenKind.CLOSE_BRACKET_TOKEN);
+                NodeKind kind = operators.peekKind();
+                int count = operators.peekCount();
+                operators.pop();
+                if (kind != null) {
+                    buildTree(kind, count);
+                }
+            }
         }
-        return itemCount;
     }
 
-    private int parseTerm() {
-        int itemCount = 0;
-        itemCount += parseFactor();
-        TokenKind tokenKind = peekNextKind();
-        while (tokenKind == TokenKind.PLUS_TOKEN
-                || tokenKind == TokenKind.MINUS_TOKEN
-                || tokenKind == TokenKind.OR_KEYWORD) {
-            if (tokenKind == TokenKind.PLUS_TOKEN) {
-                itemCount += parseToken(TokenKind.PLUS_TOKEN);
-                itemCount += parseFactor();
-                itemCount = buildTree(NodeKind.ADD_EXPRESSION, itemCount);
-            } else if (tokenKind == TokenKind.MINUS_TOKEN) {
-                itemCount += parseToken(TokenKind.MINUS_TOKEN);
-                itemCount += parseFactor();
-                itemCount = buildTree(NodeKind.SUBTRACT_EXPRESSION, itemCount);
+    /**
+     * Parse the prefix operators and opening brackets before an operand, up to the first operand.
+     * They are pushed to the operator stack and closed by {@link #parseExpression()}.
+     */
+    private void parseOperand() {
+        while (true) {
+            TokenKind tokenKind = peekNextKind();
+            if (tokenKind == TokenKind.MINUS_TOKEN) {
+                parseToken(TokenKind.MINUS_TOKEN);
+                operators.push(NodeKind.NEGATIVE_EXPRESSION, PREFIX, 1);
+            } else if (tokenKind == TokenKind.PLUS_TOKEN) {
+                // Unary plus does not build a node.
+                parseToken(TokenKind.PLUS_TOKEN);
+            } else if (tokenKind == TokenKind.NOT_KEYWORD) {
+                parseToken(TokenKind.NOT_KEYWORD);
+                operators.push(NodeKind.NOT_EXPRESSION, PREFIX, 1);
+            } else if (tokenKind == TokenKind.EOF_KEYWORD) {
+                parseEofExpression();
+                return;
+            } else if (tokenKind == TokenKind.INTEGER_LITERAL) {
+                parseIdentifier(TokenKind.INTEGER_LITERAL);
+                return;
+            } else if (tokenKind == TokenKind.CHAR_LITERAL) {
+                parseIdentifier(TokenKind.CHAR_LITERAL);
+                return;
+            } else if (tokenKind == TokenKind.OPEN_BRACKET_TOKEN) {
+                parseToken(TokenKind.OPEN_BRACKET_TOKEN);
+                operators.push(null, GROUP, 0);
+            } else if (tokenKind == TokenKind.SUCC_KEYWORD) {
+                parseBuiltinCall(TokenKind.SUCC_KEYWORD, NodeKind.SUCC_EXPRESSION);
+            } else if (tokenKind == TokenKind.PRED_KEYWORD) {
+                parseBuiltinCall(TokenKind.PRED_KEYWORD, NodeKind.PRED_EXPRESSION);
+            } else if (tokenKind == TokenKind.CHR_KEYWORD) {
+                parseBuiltinCall(TokenKind.CHR_KEYWORD, NodeKind.CHR_EXPRESSION);
+            } else if (tokenKind == TokenKind.ORD_KEYWORD) {
+                parseBuiltinCall(TokenKind.ORD_KEYWORD, NodeKind.ORD_EXPRESSION);
+            } else if (tokenKind == TokenKind.IDENTIFIER && peekNextKind(1) == TokenKind.OPEN_BRACKET_TOKEN) {
+                // The name and the first argument.
+                parseName();
+                parseToken(TokenKind.OPEN_BRACKET_TOKEN);
+                operators.push(NodeKind.CALL_EXPRESSION, GROUP, 2);
             } else {
-                itemCount += parseToken(TokenKind.OR_KEYWORD);
-                itemCount += parseFactor();
-                itemCount = buildTree(NodeKind.OR_EXPRESSION, itemCount);
+                parseIdentifier(TokenKind.IDENTIFIER);
+                return;
             }
-            tokenKind = peekNextKind();
         }
-        return itemCount;
     }
 
-    private int parseFactor() {
-        int itemCount = 0;
-        itemCount += parsePrimary();
-        TokenKind tokenKind = peekNextKind();
-        while (tokenKind == TokenKind.MULTIPLY_TOKEN
-                || tokenKind == TokenKind.DIVIDE_TOKEN
-                || tokenKind == TokenKind.AND_KEYWORD
-                || tokenKind == TokenKind.MOD_KEYWORD) {
-            if (tokenKind == TokenKind.MULTIPLY_TOKEN) {
-                itemCount += parseToken(TokenKind.MULTIPLY_TOKEN);
-                itemCount += parsePrimary();
-                itemCount = buildTree(NodeKind.MULTIPLY_EXPRESSION, itemCount);
-            } else if (tokenKind == TokenKind.DIVIDE_TOKEN) {
-                itemCount += parseToken(TokenKind.DIVIDE_TOKEN);
-                itemCount += parsePrimary();
-                itemCount = buildTree(NodeKind.DIVIDE_EXPRESSION, itemCount);
-            } else if (tokenKind == TokenKind.AND_KEYWORD) {
-                itemCount += parseToken(TokenKind.AND_KEYWORD);
-                itemCount += parsePrimary();
-                itemCount = buildTree(NodeKind.AND_EXPRESSION, itemCount);
-            } else {
-                itemCount += parseToken(TokenKind.MOD_KEYWORD);
-                itemCount += parsePrimary();
-                itemCount = buildTree(NodeKind.MOD_EXPRESSION, itemCount);
-            }
-            tokenKind = peekNextKind();
-        }
-        return itemCount;
+    private void parseBuiltinCall(TokenKind keyword, NodeKind kind) {
+        parseToken(keyword);
+        parseToken(TokenKind.OPEN_BRACKET_TOKEN);
+        operators.push(kind, GROUP, 1);
     }
 
-    private int parsePrimary() {
-        int itemCount = 0;
-        TokenKind tokenKind = peekNextKind();
-        if (tokenKind == TokenKind.MINUS_TOKEN) {
-            itemCount += parseNegativeExpression();
-        } else if (tokenKind == TokenKind.PLUS_TOKEN) {
-            itemCount += parseToken(TokenKind.PLUS_TOKEN);
-            itemCount += parsePrimary();
-        } else if (tokenKind == TokenKind.NOT_KEYWORD) {
-            itemCount += parseNotExpression();
-        } else if (tokenKind == TokenKind.EOF_KEYWORD) {
-            itemCount += parseEofExpression();
-        } else if (tokenKind == TokenKind.INTEGER_LITERAL) {
-            itemCount += parseIdentifier(TokenKind.INTEGER_LITERAL);
-        } else if (tokenKind == TokenKind.CHAR_LITERAL) {
-            itemCount += parseIdentifier(TokenKind.CHAR_LITERAL);
-        } else if (tokenKind == TokenKind.OPEN_BRACKET_TOKEN) {
-            itemCount += parseToken(TokenKind.OPEN_BRACKET_TOKEN);
-            itemCount += parseExpression();
-            itemCount += parseToken(TokenKind.CLOSE_BRACKET_TOKEN);
-        } else if (tokenKind == TokenKind.SUCC_KEYWORD) {
-            itemCount += parseSuccExpression();
-        } else if (tokenKind == TokenKind.PRED_KEYWORD) {
-            itemCount += parsePredExpression();
-        } else if (tokenKind == TokenKind.CHR_KEYWORD) {
-            itemCount += parseChrExpression();
-        } else if (tokenKind == TokenKind.ORD_KEYWORD) {
-            itemCount += parseOrdExpression();
-        } else {
-            TokenKind nextNextKind = peekNextKind(1);
-            // Is this correct?
-            if (nextNextKind == TokenKind.OPEN_BRACKET_TOKEN) {
-                itemCount += parseCallExpression();
-            } else {
-                itemCount += parseIdentifier(TokenKind.IDENTIFIER);
-            }
+    /**
+     * Build the nodes of the pending operators that bind at least as tight as the given precedence.
+     */
+    private void reduceOperators(int base, int precedence) {
+        while (operators.size() > base && operators.peekPrecedence() >= precedence) {
+            NodeKind kind = operators.peekKind();
+            int count = operators.peekCount();
+            operators.pop();
+            buildTree(kind, count);
         }
-        return itemCount;
     }
 
-    private int parseNegativeExpression() {
-        int itemCount = 0;
-        itemCount += parseToken(TokenKind.MINUS_TOKEN);
-        itemCount += parsePrimary();
-        return buildTree(NodeKind.NEGATIVE_EXPRESSION, itemCount);
+    private static int getBinaryPrecedence(TokenKind tokenKind) {
+        switch (tokenKind) {
+            case LT_EQUAL_TOKEN:
+            case LT_TOKEN:
+            case GT_EQUAL_TOKEN:
+            case GT_TOKEN:
+            case EQUAL_TOKEN:
+            case NOT_EQUAL_TOKEN:
+                return RELATIONAL;
+            case PLUS_TOKEN:
+            case MINUS_TOKEN:
+            case OR_KEYWORD:
+                return ADDITIVE;
+            case MULTIPLY_TOKEN:
+            case DIVIDE_TOKEN:
+            case AND_KEYWORD:
+            case MOD_KEYWORD:
+                return MULTIPLICATIVE;
+            default:
+                return GROUP;
+        }
     }
 
-    private int parseNotExpression() {
-        int itemCount = 0;
-        itemCount += parseToken(TokenKind.NOT_KEYWORD);
-        itemCount += parsePrimary();
-        return buildTree(NodeKind.NOT_EXPRESSION, itemCount);
+    private static NodeKind getBinaryNodeKind(TokenKind tokenKind) {
+        switch (tokenKind) {
+            case LT_EQUAL_TOKEN:
+                return NodeKind.LT_EQUAL_EXPRESSION;
+            case LT_TOKEN:
+                return NodeKind.LT_EXPRESSION;
+            case GT_EQUAL_TOKEN:
+                return NodeKind.GT_EQUAL_EXPRESSION;
+            case GT_TOKEN:
+                return NodeKind.GT_EXPRESSION;
+            case EQUAL_TOKEN:
+                return NodeKind.EQUALS_EXPRESSION;
+            case NOT_EQUAL_TOKEN:
+                return NodeKind.NOT_EQUALS_EXPRESSION;
+            case PLUS_TOKEN:
+                return NodeKind.ADD_EXPRESSION;
+            case MINUS_TOKEN:
+                return NodeKind.SUBTRACT_EXPRESSION;
+            case OR_KEYWORD:
+                return NodeKind.OR_EXPRESSION;
+            case MULTIPLY_TOKEN:
+                return NodeKind.MULTIPLY_EXPRESSION;
+            case DIVIDE_TOKEN:
+                return NodeKind.DIVIDE_EXPRESSION;
+            case AND_KEYWORD:
+                return NodeKind.AND_EXPRESSION;
+            case MOD_KEYWORD:
+                return NodeKind.MOD_EXPRESSION;
+            default:
+                throw new IllegalArgumentException("Not a binary operator: " + tokenKind);
+        }
     }
 
     private int parseEofExpression() {
@@ -552,54 +731,22 @@ public class WinZigParser extends AbstractParser {
         return buildTree(NodeKind.EOF_EXPRESSION, itemCount);
     }
 
-    private int parseCallExpression() {
-        int itemCount = 0;
-        itemCount += parseName();
-        itemCount += parseToken(TokenKind.OPEN_BRACKET_TOKEN);
-        itemCount += parseList(this::parseExpression, TokenKind.COMMA_TOKEN);
-        itemCount += parseToken(TokenKind.CLOSE_BRACKET_TOKEN);
-        return buildTree(NodeKind.CALL_EXPRESSION, itemCount);
-    }
-
-    private int parseSuccExpression() {
-        int itemCount = 0;
-        itemCount += parseToken(TokenKind.SUCC_KEYWORD);
-        itemCount += parseToken(TokenKind.OPEN_BRACKET_TOKEN);
-        itemCount += parseExpression();
-        itemCount += parseToken(TokenKind.CLOSE_BRACKET_TOKEN);
-        return buildTree(NodeKind.SUCC_EXPRESSION, itemCount);
-    }
-
-    private int parsePredExpression() {
-        int itemCount = 0;
-        itemCount += parseToken(TokenKind.PRED_KEYWORD);
-        itemCount += parseToken(TokenKind.OPEN_BRACKET_TOKEN);
-        itemCount += parseExpression();
-        itemCount += parseToken(TokenKind.CLOSE_BRACKET_TOKEN);
-        return buildTree(NodeKind.PRED_EXPRESSION, itemCount);
-    }
-
-    private int parseChrExpression() {
-        int itemCount = 0;
-        itemCount += parseToken(TokenKind.CHR_KEYWORD);
-        itemCount += parseToken(TokenKind.OPEN_BRACKET_TOKEN);
-        itemCount += parseExpression();
-        itemCount += parseToken(TokenKind.CLOSE_BRACKET_TOKEN);
-        return buildTree(NodeKind.CHR_EXPRESSION, itemCount);
-    }
-
-    private int parseOrdExpression() {
-        int itemCount = 0;
-        itemCount += parseToken(TokenKind.ORD_KEYWORD);
-        itemCount += parseToken(TokenKind.OPEN_BRACKET_TOKEN);
-        itemCount += parseExpression();
-        itemCount += parseToken(TokenKind.CLOSE_BRACKET_TOKEN);
-        return buildTree(NodeKind.ORD_EXPRESSION, itemCount);
-    }
-
     private int parseName() {
         parseIdentifier(TokenKind.IDENTIFIER);
         return 1;
     }
 
+    private static class SkippedBody {
+        private final LazyASTNode node;
+        private final int startIndex;
+        private final int endIndex;
+        private final int diagnosticIndex;
+
+        private SkippedBody(LazyASTNode node, int startIndex, int endIndex, int diagnosticIndex) {
+            this.node = node;
+            this.startIndex = startIndex;
+            this.endIndex = endIndex;
+            this.diagnosticIndex = diagnosticIndex;
+        }
+    }
 }
@@ -1,28 +1,59 @@
 package parser.nodes;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 public class ASTNode implements Node {
     private final NodeKind kind;
-    private final List<Node> children;
+    private final Node[] children;
+    // Span of the node, cached when it is built since the children never change.
+    private int startOffset;
+    private int endOffset;
 
-    public ASTNode(NodeKind kind) {
+    public ASTNode(NodeKind kind, Node[] children) {
         this.kind = kind;
-        this.children = new ArrayList<>();
+        this.children = children;
+        if (children != null) {
+            setSpan(children);
+        }
     }
 
-    public void addChild(Node node) {
-        this.children.add(node);
+    /**
+     * Cache the span of the node from its children. Empty children, such as the null statement of a trailing
+     * semicolon, do not span any source, so the span runs from the first to the last child that does.
+     */
+    protected void setSpan(Node[] children) {
+        this.startOffset = -1;
+        this.endOffset = -1;
+        for (Node child : children) {
+            if (child.getStartOffset() >= 0) {
+                this.startOffset = child.getStartOffset();
+                break;
+            }
+        }
+        for (int i = children.length - 1; i >= 0; i--) {
+            if (children[i].getEndOffset() >= 0) {
+                this.endOffset = children[i].getEndOffset();
+                break;
+            }
+        }
     }
 
-    public List<Node> getChildren() {
+    /**
+     * Get the children array. Every access to the children goes through this method.
+     */
+    protected Node[] children() {
         return children;
     }
 
+    public List<Node> getChildren() {
+        return Collections.unmodifiableList(Arrays.asList(children()));
+    }
+
     @Override
     public String toString() {
-        return String.format("%s(%s)", kind.getValue(), children.size());
+        return String.format("%s(%s)", kind.getValue(), getSize());
     }
 
     public NodeKind getKind() {
@@ -30,26 +61,71 @@ public class ASTNode implements Node {
     }
 
     public Node getChild(int i) {
-        return children.get(i);
+        return children()[i];
     }
 
     public int getSize() {
-        return children.size();
+        return children().length;
     }
 
     @Override
     public int getStartOffset() {
-        if (getSize() > 0) {
-            return children.get(0).getStartOffset();
-        }
-        return -1;
+        return startOffset;
     }
 
     @Override
     public int getEndOffset() {
-        if (getSize() > 0) {
-            return children.get(getSize() - 1).getEndOffset();
+        return endOffset;
+    }
+
+    /**
+     * Get the innermost node whose span contains an offset.
+     * Children are in source order, so each level is a binary search over the cached spans.
+     *
+     * @param offset the offset in the source.
+     * @return the innermost node containing the offset, or null if this node does not contain it.
+     */
+    public Node getNodeAt(int offset) {
+        if (!contains(this, offset)) {
+            return null;
+        }
+        ASTNode node = this;
+        while (true) {
+            Node child = findChildAt(node.children(), offset);
+            if (child == null) {
+                return node;
+            }
+            if (!(child instanceof ASTNode)) {
+                return child;
+            }
+            node = (ASTNode) child;
+        }
+    }
+
+    private static Node findChildAt(Node[] children, int offset) {
+        int low = 0;
+        int high = children.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            // Empty children do not span any source, so search by the nearest child that does.
+            int probe = middle;
+            while (probe <= high && children[probe].getStartOffset() < 0) {
+                probe++;
+            }
+            if (probe > high) {
+                high = middle - 1;
+            } else if (offset < children[probe].getStartOffset()) {
+                high = middle - 1;
+            } else if (offset >= children[probe].getEndOffset()) {
+                low = probe + 1;
+            } else {
+                return children[probe];
+            }
         }
-        return -1;
+        return null;
+    }
+
+    private static boolean contains(Node node, int offset) {
+        return node.getStartOffset() >= 0 && offset >= node.getStartOffset() && offset < node.getEndOffset();
     }
 }
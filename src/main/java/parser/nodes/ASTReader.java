@@ -0,0 +1,188 @@
+package parser.nodes;
+
+import lexer.NameTable;
+import lexer.tokens.IdentifierToken;
+import lexer.tokens.LiteralToken;
+import lexer.tokens.Minutiae;
+import lexer.tokens.Token;
+import lexer.tokens.TokenKind;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads an AST written by {@link ASTWriter}.
+ * Files are memory mapped and decoded in place, so the bytes of the file are never copied to the heap.
+ * Check {@link #matches(byte[])} against the hash of the current source before reading the tree.
+ */
+public class ASTReader {
+    private static final TokenKind[] TOKEN_KINDS = TokenKind.values();
+    private static final NodeKind[] NODE_KINDS = NodeKind.values();
+
+    private final ByteBuffer buffer;
+    private final byte[] sourceHash;
+    // Position of the string table.
+    private final int bodyStart;
+    // Read position of the current read. Absolute gets avoid updating the position of the buffer per byte.
+    private int position;
+
+    public ASTReader(ByteBuffer buffer) {
+        this.buffer = buffer.duplicate();
+        if (this.buffer.remaining() < 6 || this.buffer.getInt() != ASTWriter.MAGIC) {
+            throw new IllegalArgumentException("Not a serialized AST.");
+        }
+        int version = this.buffer.get() & 0xFF;
+        if (version != ASTWriter.VERSION) {
+            throw new IllegalArgumentException("Unsupported serialized AST version: " + version);
+        }
+        this.sourceHash = new byte[this.buffer.get() & 0xFF];
+        this.buffer.get(sourceHash);
+        this.bodyStart = this.buffer.position();
+    }
+
+    /**
+     * Map a file written by {@link ASTWriter#write(ASTNode, byte[], Path)}.
+     *
+     * @param path the file to read.
+     * @return a reader over the mapped file.
+     * @throws IOException if the file cannot be mapped.
+     */
+    public static ASTReader open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed.
+            return new ASTReader(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Check whether the AST was written for a source with the given hash.
+     */
+    public boolean matches(byte[] sourceHash) {
+        return Arrays.equals(this.sourceHash, sourceHash);
+    }
+
+    /**
+     * Read the AST.
+     *
+     * @param names the name table identifiers are interned into.
+     * @return the root of the AST.
+     */
+    public ASTNode read(NameTable names) {
+        position = bodyStart;
+        int stringCount = readVarint();
+        int[] stringStarts = new int[stringCount];
+        int[] stringLengths = new int[stringCount];
+        for (int i = 0; i < stringCount; i++) {
+            stringLengths[i] = readVarint();
+            stringStarts[i] = position;
+            position += stringLengths[i];
+        }
+        // Values are decoded when first used, identifiers are interned at most once.
+        String[] strings = new String[stringCount];
+        int[] nameIds = new int[stringCount];
+        Arrays.fill(nameIds, -1);
+        List<Minutiae> noMinutiae = Collections.emptyList();
+
+        int nodeCount = readVarint();
+        // Children of the open inner nodes, innermost last.
+        Node[][] openChildren = new Node[64][];
+        NodeKind[] openKinds = new NodeKind[64];
+        int[] filled = new int[64];
+        int depth = 0;
+        int previousEnd = 0;
+        ASTNode root = null;
+        for (int n = 0; n < nodeCount; n++) {
+            int tag = buffer.get(position++) & 0xFF;
+            Node node;
+            if ((tag & ASTWriter.LEAF_TAG) != 0) {
+                TokenKind kind = TOKEN_KINDS[tag & ~ASTWriter.LEAF_TAG];
+                int value = readVarint();
+                int startOffset = previousEnd + unzigzag(readVarint());
+                int endOffset = startOffset + readVarint();
+                previousEnd = endOffset;
+                Token token;
+                if (kind == TokenKind.IDENTIFIER) {
+                    if (nameIds[value] < 0) {
+                        nameIds[value] = names.intern(decode(stringStarts[value], stringLengths[value]));
+                    }
+                    token = new IdentifierToken(names, nameIds[value], noMinutiae, noMinutiae, startOffset, endOffset);
+                } else if (kind == TokenKind.INTEGER_LITERAL || kind == TokenKind.CHAR_LITERAL
+                        || kind == TokenKind.STRING_LITERAL) {
+                    if (strings[value] == null) {
+                        strings[value] = decode(stringStarts[value], stringLengths[value]);
+                    }
+                    token = new LiteralToken(kind, strings[value], noMinutiae, noMinutiae, startOffset, endOffset);
+                } else {
+                    // Only trees with syntax errors have leaves of other tokens.
+                    token = new Token(kind, noMinutiae, noMinutiae, startOffset, endOffset);
+                }
+                node = new IdentifierNode(token);
+            } else {
+                NodeKind kind = NODE_KINDS[tag];
+                int childCount = readVarint();
+                if (childCount > 0) {
+                    if (depth == openKinds.length) {
+                        openChildren = Arrays.copyOf(openChildren, depth * 2);
+                        openKinds = Arrays.copyOf(openKinds, depth * 2);
+                        filled = Arrays.copyOf(filled, depth * 2);
+                    }
+                    openChildren[depth] = new Node[childCount];
+                    openKinds[depth] = kind;
+                    filled[depth] = 0;
+                    depth++;
+                    continue;
+                }
+                node = new ASTNode(kind, new Node[0]);
+            }
+
+            // Close every inner node this node completes.
+            while (true) {
+                if (depth == 0) {
+                    root = (ASTNode) node;
+                    break;
+                }
+                Node[] children = openChildren[depth - 1];
+                children[filled[depth - 1]++] = node;
+                if (filled[depth - 1] < children.length) {
+                    break;
+                }
+                depth--;
+                node = new ASTNode(openKinds[depth], children);
+                openChildren[depth] = null;
+            }
+        }
+        if (root == null || depth != 0) {
+            throw new IllegalArgumentException("Truncated serialized AST.");
+        }
+        return root;
+    }
+
+    private String decode(int start, int length) {
+        ByteBuffer bytes = buffer.duplicate();
+        bytes.position(start);
+        bytes.limit(start + length);
+        return StandardCharsets.UTF_8.decode(bytes).toString();
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private int readVarint() {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buffer.get(position++);
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+}
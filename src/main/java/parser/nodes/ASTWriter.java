@@ -0,0 +1,164 @@
+package parser.nodes;
+
+import lexer.tokens.Token;
+import lexer.tokens.TokenKind;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes an AST in a compact binary form, so that a program whose source did not change need not be parsed again.
+ * The file starts with a header holding the hash of the source, followed by a table of the distinct token values
+ * and the nodes in preorder. Inner nodes are their kind ordinal and child count.
+ * Leaves are their token kind, the index of their value and their offsets as varints relative to the previous leaf.
+ * Read it back with {@link ASTReader}.
+ */
+public class ASTWriter {
+    static final int MAGIC = 0x575A4153;
+    static final int VERSION = 1;
+    // Tags of leaves have the high bit set, and the token kind ordinal below it.
+    static final int LEAF_TAG = 0x80;
+
+    static {
+        // Every kind ordinal must fit below the leaf bit, or tags of inner nodes and leaves become ambiguous.
+        if (NodeKind.values().length > LEAF_TAG || TokenKind.values().length > LEAF_TAG) {
+            throw new IllegalStateException(String.format("Kinds do not fit in a tag: %d node kinds, %d token kinds.",
+                    NodeKind.values().length, TokenKind.values().length));
+        }
+    }
+
+    private final ByteArrayOutputStream out;
+    private final Map<String, Integer> strings;
+    private final ByteArrayOutputStream stringTable;
+
+    private ASTWriter() {
+        this.out = new ByteArrayOutputStream();
+        this.strings = new HashMap<>();
+        this.stringTable = new ByteArrayOutputStream();
+    }
+
+    /**
+     * Hash the source of a program, to check whether a written AST is still current.
+     *
+     * @param source the source file.
+     * @return the SHA-256 digest of the file.
+     * @throws IOException if the file cannot be read.
+     */
+    public static byte[] hashSource(Path source) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e);
+        }
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            digest.update(buffer);
+        }
+        return digest.digest();
+    }
+
+    /**
+     * Write an AST to a file.
+     *
+     * @param root       the root of the AST. Lazy subtrees are parsed.
+     * @param sourceHash the hash of the source the AST was parsed from.
+     * @param path       the file to write.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void write(ASTNode root, byte[] sourceHash, Path path) throws IOException {
+        Files.write(path, write(root, sourceHash));
+    }
+
+    /**
+     * Write an AST to a byte array.
+     *
+     * @param root       the root of the AST. Lazy subtrees are parsed.
+     * @param sourceHash the hash of the source the AST was parsed from.
+     * @return the written bytes.
+     */
+    public static byte[] write(ASTNode root, byte[] sourceHash) {
+        ASTWriter writer = new ASTWriter();
+        int nodeCount = writer.writeNodes(root);
+
+        ByteArrayOutputStream file = new ByteArrayOutputStream(writer.out.size() + writer.stringTable.size() + 64);
+        file.writeBytes(ByteBuffer.allocate(4).putInt(MAGIC).array());
+        file.write(VERSION);
+        file.write(sourceHash.length);
+        file.writeBytes(sourceHash);
+        writeVarint(file, writer.strings.size());
+        file.writeBytes(writer.stringTable.toByteArray());
+        writeVarint(file, nodeCount);
+        file.writeBytes(writer.out.toByteArray());
+        return file.toByteArray();
+    }
+
+    private int writeNodes(ASTNode root) {
+        int nodeCount = 0;
+        int previousEnd = 0;
+        // Iterative, since expressions can be nested deeper than the call stack allows.
+        Deque<Node> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            nodeCount++;
+            if (node instanceof IdentifierNode) {
+                Token token = ((IdentifierNode) node).getToken();
+                out.write(LEAF_TAG | token.getKind().ordinal());
+                writeVarint(out, intern(token.getValue()));
+                writeVarint(out, zigzag(token.getStartOffset() - previousEnd));
+                writeVarint(out, token.getEndOffset() - token.getStartOffset());
+                previousEnd = token.getEndOffset();
+            } else if (node instanceof ASTNode) {
+                ASTNode astNode = (ASTNode) node;
+                List<Node> children = astNode.getChildren();
+                out.write(astNode.getKind().ordinal());
+                writeVarint(out, children.size());
+                for (int i = children.size() - 1; i >= 0; i--) {
+                    pending.push(children.get(i));
+                }
+            } else {
+                throw new IllegalStateException("Unknown node type: " + node.toString());
+            }
+        }
+        return nodeCount;
+    }
+
+    private int intern(String value) {
+        Integer index = strings.get(value);
+        if (index == null) {
+            index = strings.size();
+            strings.put(value, index);
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(stringTable, bytes.length);
+            stringTable.writeBytes(bytes);
+        }
+        return index;
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+}
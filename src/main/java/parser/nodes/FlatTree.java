@@ -0,0 +1,196 @@
+package parser.nodes;
+
+import lexer.NameTable;
+import lexer.PackedTokenStream;
+import lexer.tokens.TokenKind;
+
+/**
+ * Syntax tree stored as parallel primitive arrays, laid out in preorder.
+ * Nodes are addressed by their index and the root is node 0.
+ * The first child of a node is the node right after it, and siblings are linked by index,
+ * so walking the tree in order reads the arrays front to back.
+ * Identifier leaves refer to their token in a packed token stream.
+ */
+public class FlatTree {
+    public static final int NONE = -1;
+    static final short IDENTIFIER = -1;
+    private static final NodeKind[] NODE_KINDS = NodeKind.values();
+
+    private final PackedTokenStream tokens;
+    private final short[] kinds;
+    private final int[] nextSiblings;
+    // Child count of inner nodes and token index of identifiers.
+    private final int[] data;
+
+    FlatTree(PackedTokenStream tokens, short[] kinds, int[] nextSiblings, int[] data) {
+        this.tokens = tokens;
+        this.kinds = kinds;
+        this.nextSiblings = nextSiblings;
+        this.data = data;
+    }
+
+    public PackedTokenStream getTokens() {
+        return tokens;
+    }
+
+    public int getRoot() {
+        return 0;
+    }
+
+    public int size() {
+        return kinds.length;
+    }
+
+    public boolean isIdentifier(int node) {
+        return kinds[node] == IDENTIFIER;
+    }
+
+    /**
+     * Get the kind of an inner node. Identifiers do not have a node kind.
+     */
+    public NodeKind getKind(int node) {
+        return NODE_KINDS[kinds[node]];
+    }
+
+    public int getSize(int node) {
+        return isIdentifier(node) ? 0 : data[node];
+    }
+
+    public int getFirstChild(int node) {
+        return getSize(node) > 0 ? node + 1 : NONE;
+    }
+
+    public int getNextSibling(int node) {
+        return nextSiblings[node];
+    }
+
+    /**
+     * Get the i-th child of a node. This walks the sibling links, so prefer
+     * {@link #getFirstChild(int)} and {@link #getNextSibling(int)} to iterate over children.
+     */
+    public int getChild(int node, int i) {
+        if (i < 0 || i >= getSize(node)) {
+            throw new IndexOutOfBoundsException(i);
+        }
+        int child = node + 1;
+        for (; i > 0; i--) {
+            child = nextSiblings[child];
+        }
+        return child;
+    }
+
+    public int getLastChild(int node) {
+        int child = getFirstChild(node);
+        if (child == NONE) {
+            return NONE;
+        }
+        while (nextSiblings[child] != NONE) {
+            child = nextSiblings[child];
+        }
+        return child;
+    }
+
+    public int getTokenIndex(int node) {
+        return data[node];
+    }
+
+    public TokenKind getTokenKind(int node) {
+        return tokens.getKind(data[node]);
+    }
+
+    public String getIdentifierValue(int node) {
+        return tokens.getValue(data[node]);
+    }
+
+    /**
+     * Get the id of the name of an identifier in the given table.
+     * Tokens interned into another table, or tokens without a value, are interned by their value.
+     *
+     * @param node  the identifier node.
+     * @param names the name table of the compilation.
+     * @return the name id.
+     */
+    public int getNameId(int node, NameTable names) {
+        int nameId = tokens.getNameId(data[node]);
+        if (nameId >= 0 && tokens.getNameTable() == names) {
+            return nameId;
+        }
+        return names.intern(getIdentifierValue(node));
+    }
+
+    /**
+     * Get the start offset of the first identifier of a node, or -1 if the node has none.
+     * Empty children do not span any source, so they are skipped.
+     */
+    public int getStartOffset(int node) {
+        // Subtrees are contiguous in preorder, so scan it instead of recursing into expressions nested too deep.
+        int last = getLastDescendant(node);
+        for (int i = node; i <= last; i++) {
+            if (isIdentifier(i)) {
+                return tokens.getStartOffset(data[i]);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Get the end offset of the last identifier of a node, or -1 if the node has none.
+     */
+    public int getEndOffset(int node) {
+        for (int i = getLastDescendant(node); i >= node; i--) {
+            if (isIdentifier(i)) {
+                return tokens.getEndOffset(data[i]);
+            }
+        }
+        return -1;
+    }
+
+    private int getLastDescendant(int node) {
+        while (getSize(node) > 0) {
+            node = getLastChild(node);
+        }
+        return node;
+    }
+
+    /**
+     * Get a view of a node that can be highlighted in diagnostics.
+     */
+    public Node getNode(int node) {
+        return new FlatNode(this, node);
+    }
+
+    /**
+     * Lightweight reference to a node of a flat tree.
+     */
+    public static final class FlatNode implements Node {
+        private final FlatTree tree;
+        private final int node;
+
+        private FlatNode(FlatTree tree, int node) {
+            this.tree = tree;
+            this.node = node;
+        }
+
+        public int getIndex() {
+            return node;
+        }
+
+        @Override
+        public int getStartOffset() {
+            return tree.getStartOffset(node);
+        }
+
+        @Override
+        public int getEndOffset() {
+            return tree.getEndOffset(node);
+        }
+
+        @Override
+        public String toString() {
+            if (tree.isIdentifier(node)) {
+                return String.format("%s(1)", tree.getTokenKind(node).getValue());
+            }
+            return String.format("%s(%s)", tree.getKind(node).getValue(), tree.getSize(node));
+        }
+    }
+}
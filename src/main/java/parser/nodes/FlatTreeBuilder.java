@@ -0,0 +1,189 @@
+package parser.nodes;
+
+import diagnostics.TextHighlighter;
+import lexer.NameTable;
+import lexer.PackedTokenStream;
+
+import java.util.Arrays;
+
+/**
+ * Builds a {@link FlatTree} bottom up, the same way the parser builds AST nodes.
+ * Nodes are appended in postorder and kept on a stack until their parent is built.
+ * {@link #build()} lays the finished tree out again in preorder.
+ */
+public class FlatTreeBuilder {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final PackedTokenStream tokens;
+    private short[] kinds;
+    private int[] data;
+    private int[] firstChildren;
+    private int[] nextSiblings;
+    private int[] subtreeSizes;
+    private int size;
+    private int[] stack;
+    private int stackSize;
+
+    public FlatTreeBuilder(PackedTokenStream tokens) {
+        this.tokens = tokens;
+        this.kinds = new short[INITIAL_CAPACITY];
+        this.data = new int[INITIAL_CAPACITY];
+        this.firstChildren = new int[INITIAL_CAPACITY];
+        this.nextSiblings = new int[INITIAL_CAPACITY];
+        this.subtreeSizes = new int[INITIAL_CAPACITY];
+        this.size = 0;
+        this.stack = new int[64];
+        this.stackSize = 0;
+    }
+
+    /**
+     * Convert an AST into a flat tree.
+     * The tokens of the identifiers are copied into a new packed token stream.
+     *
+     * @param root        the root of the AST.
+     * @param highlighter the highlighter of the source.
+     * @param names       the name table the token values are interned into.
+     * @return the flat tree.
+     */
+    public static FlatTree from(ASTNode root, TextHighlighter highlighter, NameTable names) {
+        FlatTreeBuilder builder = new FlatTreeBuilder(new PackedTokenStream(highlighter, names));
+        builder.add(root);
+        return builder.build();
+    }
+
+    /**
+     * Push an identifier leaf.
+     *
+     * @param tokenIndex the index of its token in the token stream.
+     */
+    public void pushIdentifier(int tokenIndex) {
+        push(append(FlatTree.IDENTIFIER, tokenIndex, FlatTree.NONE, 1));
+    }
+
+    /**
+     * Pop the top nodes of the stack and push a new node with them as its children.
+     *
+     * @param kind          the kind of the new node.
+     * @param childrenCount the number of children.
+     */
+    public void build(NodeKind kind, int childrenCount) {
+        if (childrenCount > stackSize) {
+            throw new IllegalStateException("Not enough nodes to build " + kind + ".");
+        }
+        int start = stackSize - childrenCount;
+        int subtreeSize = 1;
+        for (int i = start; i < stackSize; i++) {
+            int child = stack[i];
+            nextSiblings[child] = i + 1 < stackSize ? stack[i + 1] : FlatTree.NONE;
+            subtreeSize += subtreeSizes[child];
+        }
+        int firstChild = childrenCount > 0 ? stack[start] : FlatTree.NONE;
+        stackSize = start;
+        push(append((short) kind.ordinal(), childrenCount, firstChild, subtreeSize));
+    }
+
+    public boolean isEmpty() {
+        return stackSize == 0;
+    }
+
+    /**
+     * Pop the top node of the stack and lay its subtree out in preorder.
+     *
+     * @return the flat tree rooted at the popped node.
+     */
+    public FlatTree build() {
+        if (stackSize == 0) {
+            throw new IllegalStateException("No node to build the tree from.");
+        }
+        int root = stack[--stackSize];
+        int treeSize = subtreeSizes[root];
+        short[] treeKinds = new short[treeSize];
+        int[] treeNextSiblings = new int[treeSize];
+        int[] treeData = new int[treeSize];
+
+        // Pairs of (postorder node, preorder index). The first child of a node goes right after it,
+        // and its next sibling goes right after its subtree, so the order of the work list does not matter.
+        int[] work = new int[64];
+        int workSize = 0;
+        work[workSize++] = root;
+        work[workSize++] = 0;
+        while (workSize > 0) {
+            int index = work[--workSize];
+            int node = work[--workSize];
+            treeKinds[index] = kinds[node];
+            treeData[index] = data[node];
+            int nextSibling = nextSiblings[node];
+            treeNextSiblings[index] = nextSibling == FlatTree.NONE ? FlatTree.NONE : index + subtreeSizes[node];
+            if (workSize + 4 > work.length) {
+                work = Arrays.copyOf(work, work.length * 2);
+            }
+            if (nextSibling != FlatTree.NONE) {
+                work[workSize++] = nextSibling;
+                work[workSize++] = index + subtreeSizes[node];
+            }
+            if (firstChildren[node] != FlatTree.NONE) {
+                work[workSize++] = firstChildren[node];
+                work[workSize++] = index + 1;
+            }
+        }
+        return new FlatTree(tokens, treeKinds, treeNextSiblings, treeData);
+    }
+
+    private void add(ASTNode root) {
+        // Open ancestors and the index of their next child, innermost last.
+        // The tree is walked iteratively, since expressions can nest too deep to recurse.
+        ASTNode[] parents = new ASTNode[64];
+        int[] nextChild = new int[64];
+        int depth = 0;
+        parents[depth] = root;
+        nextChild[depth] = 0;
+        depth++;
+        while (depth > 0) {
+            ASTNode parent = parents[depth - 1];
+            if (nextChild[depth - 1] == parent.getSize()) {
+                build(parent.getKind(), parent.getSize());
+                parents[--depth] = null;
+                continue;
+            }
+            Node node = parent.getChild(nextChild[depth - 1]++);
+            if (node instanceof IdentifierNode) {
+                tokens.add(((IdentifierNode) node).getToken());
+                pushIdentifier(tokens.size() - 1);
+            } else if (node instanceof ASTNode) {
+                if (depth == parents.length) {
+                    parents = Arrays.copyOf(parents, depth * 2);
+                    nextChild = Arrays.copyOf(nextChild, depth * 2);
+                }
+                parents[depth] = (ASTNode) node;
+                nextChild[depth] = 0;
+                depth++;
+            } else {
+                throw new IllegalStateException("Unknown node type: " + node.toString());
+            }
+        }
+    }
+
+    private int append(short kind, int value, int firstChild, int subtreeSize) {
+        if (size == kinds.length) {
+            int capacity = size * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            data = Arrays.copyOf(data, capacity);
+            firstChildren = Arrays.copyOf(firstChildren, capacity);
+            nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+            subtreeSizes = Arrays.copyOf(subtreeSizes, capacity);
+        }
+        kinds[size] = kind;
+        data[size] = value;
+        firstChildren[size] = firstChild;
+        nextSiblings[size] = FlatTree.NONE;
+        subtreeSizes[size] = subtreeSize;
+        return size++;
+    }
+
+    private void push(int node) {
+        if (stackSize == stack.length) {
+            stack = Arrays.copyOf(stack, stackSize * 2);
+        }
+        stack[stackSize++] = node;
+    }
+}
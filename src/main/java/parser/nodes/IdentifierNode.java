@@ -1,12 +1,14 @@
 package parser.nodes;
 
+import lexer.NameTable;
+import lexer.tokens.IdentifierToken;
 import lexer.tokens.Token;
 
 public class IdentifierNode extends TokenNode {
     private final TokenNode child;
 
     public IdentifierNode(Token token) {
-        super(token.getKind(), token.getKind().getValue(), token);
+        super(token);
         this.child = new TokenNode(token);
     }
 
@@ -14,12 +16,27 @@ public class IdentifierNode extends TokenNode {
         return child.getValue();
     }
 
+    /**
+     * Get the id of the name in the given table.
+     * Tokens interned into another table, or non-identifier tokens, are interned by their value.
+     *
+     * @param names the name table of the compilation.
+     * @return the name id.
+     */
+    public int getNameId(NameTable names) {
+        if (token instanceof IdentifierToken && ((IdentifierToken) token).getNameTable() == names) {
+            return ((IdentifierToken) token).getNameId();
+        }
+        return names.intern(getIdentifierValue());
+    }
+
     @Override
     public String toString() {
-        return String.format("%s(1)", value);
+        return String.format("%s(1)", getValue());
     }
 
+    @Override
     public String getValue() {
-        return value;
+        return kind.getValue();
     }
 }
@@ -0,0 +1,54 @@
+package parser.nodes;
+
+import java.util.function.Supplier;
+
+/**
+ * AST node whose subtree is parsed only when its children are first accessed.
+ * The parser supplies a node of the same kind, and its children are adopted.
+ */
+public class LazyASTNode extends ASTNode {
+    private Supplier<ASTNode> parser;
+    private Node[] children;
+
+    public LazyASTNode(NodeKind kind, Supplier<ASTNode> parser) {
+        super(kind, null);
+        this.parser = parser;
+        this.children = null;
+    }
+
+    public boolean isParsed() {
+        return children != null;
+    }
+
+    /**
+     * Adopt the children of a node that was parsed elsewhere, instead of running the parser.
+     */
+    public void setParsed(ASTNode node) {
+        if (node.getKind() != getKind()) {
+            throw new IllegalStateException(String.format("Expected %s but parsed %s.", getKind(), node));
+        }
+        children = node.children();
+        setSpan(children);
+        parser = null;
+    }
+
+    @Override
+    protected Node[] children() {
+        if (children == null) {
+            setParsed(parser.get());
+        }
+        return children;
+    }
+
+    @Override
+    public int getStartOffset() {
+        children();
+        return super.getStartOffset();
+    }
+
+    @Override
+    public int getEndOffset() {
+        children();
+        return super.getEndOffset();
+    }
+}
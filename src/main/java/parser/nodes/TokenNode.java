@@ -5,16 +5,10 @@ import lexer.tokens.TokenKind;
 
 public class TokenNode implements Node {
     protected final TokenKind kind;
-    protected final String value;
     protected final Token token;
 
     public TokenNode(Token token) {
-        this(token.getKind(), token.getValue(), token);
-    }
-
-    protected TokenNode(TokenKind kind, String value, Token token) {
-        this.kind = kind;
-        this.value = value;
+        this.kind = token.getKind();
         this.token = token;
     }
 
@@ -22,13 +16,17 @@ public class TokenNode implements Node {
         return kind;
     }
 
+    public Token getToken() {
+        return token;
+    }
+
     public String getValue() {
-        return value;
+        return token.getValue();
     }
 
     @Override
     public String toString() {
-        return String.format("%s(0)", value);
+        return String.format("%s(0)", getValue());
     }
 
     @Override
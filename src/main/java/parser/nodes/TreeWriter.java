@@ -0,0 +1,149 @@
+package parser.nodes;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Writes a syntax tree as text, one node per line indented by ". " per level,
+ * with the value of each identifier leaf on a line of its own below it.
+ * Lines go to a buffered writer and the indentation is sliced from a single buffer,
+ * so that dumping a large tree does not write to the output or allocate per node.
+ */
+public class TreeWriter {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final String INDENT = ". ";
+
+    private final Writer out;
+    // Indentation for the deepest level written so far. Shallower levels use a prefix of it.
+    private char[] indentation;
+
+    public TreeWriter(Writer out) {
+        this.out = new BufferedWriter(out, BUFFER_SIZE);
+        this.indentation = new char[0];
+    }
+
+    public TreeWriter(OutputStream out) {
+        this(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Write a flat tree. The tree is walked iteratively, so its depth is not limited by the call stack.
+     *
+     * @param tree the tree to write.
+     * @throws IOException if the output cannot be written.
+     */
+    public void write(FlatTree tree) throws IOException {
+        // Next siblings of the open ancestors, innermost last.
+        int[] pending = new int[64];
+        int depth = 0;
+        int node = tree.getRoot();
+        while (true) {
+            if (tree.isIdentifier(node)) {
+                writeLeaf(depth, tree.getTokenKind(node).getValue(), tree.getIdentifierValue(node));
+            } else {
+                writeLine(depth, tree.getKind(node).getValue(), tree.getSize(node));
+                if (tree.getSize(node) > 0) {
+                    if (depth == pending.length) {
+                        pending = Arrays.copyOf(pending, depth * 2);
+                    }
+                    // The root is written alone, whatever follows it in the arrays.
+                    pending[depth] = depth == 0 ? FlatTree.NONE : tree.getNextSibling(node);
+                    depth++;
+                    node = tree.getFirstChild(node);
+                    continue;
+                }
+            }
+            node = depth == 0 ? FlatTree.NONE : tree.getNextSibling(node);
+            while (node == FlatTree.NONE && depth > 0) {
+                node = pending[--depth];
+            }
+            if (node == FlatTree.NONE) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Write a tree of nodes. Lazy subtrees are parsed.
+     * The tree is walked iteratively, so its depth is not limited by the call stack.
+     *
+     * @param root the root of the tree.
+     * @throws IOException if the output cannot be written.
+     */
+    public void write(ASTNode root) throws IOException {
+        // Open ancestors and the index of their next child, innermost last.
+        ASTNode[] parents = new ASTNode[64];
+        int[] nextChild = new int[64];
+        int depth = 0;
+        Node node = root;
+        while (true) {
+            if (node instanceof ASTNode) {
+                ASTNode astNode = (ASTNode) node;
+                writeLine(depth, astNode.getKind().getValue(), astNode.getSize());
+                if (depth == parents.length) {
+                    parents = Arrays.copyOf(parents, depth * 2);
+                    nextChild = Arrays.copyOf(nextChild, depth * 2);
+                }
+                parents[depth] = astNode;
+                nextChild[depth] = 0;
+                depth++;
+            } else if (node instanceof IdentifierNode) {
+                IdentifierNode identifierNode = (IdentifierNode) node;
+                writeLeaf(depth, identifierNode.getValue(), identifierNode.getIdentifierValue());
+            }
+
+            node = null;
+            while (node == null && depth > 0) {
+                ASTNode parent = parents[depth - 1];
+                if (nextChild[depth - 1] < parent.getSize()) {
+                    node = parent.getChild(nextChild[depth - 1]++);
+                } else {
+                    parents[--depth] = null;
+                }
+            }
+            if (node == null) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Write any buffered lines to the output.
+     *
+     * @throws IOException if the output cannot be written.
+     */
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    private void writeLeaf(int depth, String kind, String value) throws IOException {
+        writeLine(depth, kind, 1);
+        writeLine(depth + 1, value, 0);
+    }
+
+    private void writeLine(int depth, String label, int size) throws IOException {
+        int length = depth * INDENT.length();
+        if (length > indentation.length) {
+            growIndentation(length);
+        }
+        out.write(indentation, 0, length);
+        out.write(label);
+        out.write('(');
+        out.write(Integer.toString(size));
+        out.write(")\n");
+    }
+
+    private void growIndentation(int length) {
+        int capacity = Math.max(length, indentation.length * 2);
+        char[] grown = new char[capacity - capacity % INDENT.length()];
+        for (int i = 0; i < grown.length; i += INDENT.length()) {
+            INDENT.getChars(0, INDENT.length(), grown, i);
+        }
+        indentation = grown;
+    }
+}
@@ -0,0 +1,69 @@
+package semantic;
+
+import semantic.attrs.Instruction;
+import semantic.attrs.Label;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Final pass that replaces labels by the addresses of the instructions they are attached to.
+ * Addresses are 0-indexed positions in the code, so a machine can branch to an operand without a label table.
+ * Resolved code has no labels left, so keep the symbolic code if it is meant to be read.
+ */
+public class AddressResolver {
+    private static final int UNATTACHED = -1;
+
+    private AddressResolver() {
+    }
+
+    /**
+     * Resolve the labels of generated code.
+     *
+     * @param code the code, with its labels attached.
+     * @return new instructions where every label operand is replaced by its address.
+     * @throws IllegalStateException if an operand refers to a label that is not attached to any instruction.
+     */
+    public static List<Instruction> resolve(List<Instruction> code) {
+        int maxIndex = -1;
+        for (Instruction instruction : code) {
+            if (instruction.getLabel() != null) {
+                maxIndex = Math.max(maxIndex, instruction.getLabel().getIndex());
+            }
+        }
+        // Addresses by label index. Labels attached to the same instruction share an index.
+        int[] addresses = new int[maxIndex + 1];
+        Arrays.fill(addresses, UNATTACHED);
+        for (int address = 0; address < code.size(); address++) {
+            Label label = code.get(address).getLabel();
+            if (label != null) {
+                addresses[label.getIndex()] = address;
+            }
+        }
+
+        List<Instruction> resolved = new ArrayList<>(code.size());
+        for (Instruction instruction : code) {
+            Object[] args = instruction.getArgs();
+            Object[] resolvedArgs = args;
+            for (int i = 0; i < args.length; i++) {
+                if (args[i] instanceof Label) {
+                    if (resolvedArgs == args) {
+                        resolvedArgs = args.clone();
+                    }
+                    resolvedArgs[i] = getAddress(addresses, (Label) args[i]);
+                }
+            }
+            resolved.add(new Instruction(instruction.getInstructionMnemonic(), resolvedArgs));
+        }
+        return resolved;
+    }
+
+    private static int getAddress(int[] addresses, Label label) {
+        int index = label.getIndex();
+        if (index >= addresses.length || addresses[index] == UNATTACHED) {
+            throw new IllegalStateException("Label " + label + " is not attached to an instruction.");
+        }
+        return addresses[index];
+    }
+}
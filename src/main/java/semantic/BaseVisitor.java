@@ -1,25 +1,38 @@
 package semantic;
 
 import diagnostics.DiagnosticCollector;
-import parser.nodes.ASTNode;
-import parser.nodes.IdentifierNode;
-import parser.nodes.Node;
+import parser.nodes.FlatTree;
 
+/**
+ * Visitor over a flat syntax tree. Nodes are passed around as their indexes in {@link #tree}.
+ */
 public abstract class BaseVisitor extends DiagnosticCollector {
-    protected Node currentNode;
+    protected FlatTree tree;
+    protected int currentNode;
 
     protected BaseVisitor() {
-        this.currentNode = null;
+        this.tree = null;
+        this.currentNode = FlatTree.NONE;
     }
 
-    public void visit(Node node) {
-        Node currentNode = this.currentNode;
+    /**
+     * Visit a tree from its root.
+     */
+    public void visitTree(FlatTree tree) {
+        FlatTree currentTree = this.tree;
+        this.tree = tree;
+        visit(tree.getRoot());
+        this.tree = currentTree;
+    }
+
+    public void visit(int node) {
+        int currentNode = this.currentNode;
         this.currentNode = node;
-        if (node instanceof IdentifierNode) {
-            visitIdentifier((IdentifierNode) node);
-        } else if (node instanceof ASTNode) {
-            ASTNode astNode = (ASTNode) node;
-            switch (astNode.getKind()) {
+        if (tree.isIdentifier(node)) {
+            visitIdentifier(node);
+        } else {
+            int astNode = node;
+            switch (tree.getKind(astNode)) {
                 case PROGRAM:
                     visitProgram(astNode);
                     break;
@@ -177,117 +190,115 @@ public abstract class BaseVisitor extends DiagnosticCollector {
                     visitOrdExpression(astNode);
                     break;
                 default:
-                    throw new IllegalArgumentException("Unknown AST node type: " + astNode.getKind());
+                    throw new IllegalArgumentException("Unknown AST node type: " + tree.getKind(astNode));
             }
-        } else {
-            throw new IllegalStateException("Unknown node type: " + node.toString());
         }
         this.currentNode = currentNode;
     }
 
-    protected abstract void visitProgram(ASTNode astNode);
+    protected abstract void visitProgram(int astNode);
 
-    protected abstract void visitConsts(ASTNode astNode);
+    protected abstract void visitConsts(int astNode);
 
-    protected abstract void visitConst(ASTNode astNode);
+    protected abstract void visitConst(int astNode);
 
-    protected abstract void visitTypes(ASTNode astNode);
+    protected abstract void visitTypes(int astNode);
 
-    protected abstract void visitType(ASTNode astNode);
+    protected abstract void visitType(int astNode);
 
-    protected abstract void visitLit(ASTNode astNode);
+    protected abstract void visitLit(int astNode);
 
-    protected abstract void visitSubprogs(ASTNode astNode);
+    protected abstract void visitSubprogs(int astNode);
 
-    protected abstract void visitFcn(ASTNode astNode);
+    protected abstract void visitFcn(int astNode);
 
-    protected abstract void visitParams(ASTNode astNode);
+    protected abstract void visitParams(int astNode);
 
-    protected abstract void visitDclns(ASTNode astNode);
+    protected abstract void visitDclns(int astNode);
 
-    protected abstract void visitVar(ASTNode astNode);
+    protected abstract void visitVar(int astNode);
 
-    protected abstract void visitBlock(ASTNode astNode);
+    protected abstract void visitBlock(int astNode);
 
-    protected abstract void visitOutputStatement(ASTNode astNode);
+    protected abstract void visitOutputStatement(int astNode);
 
-    protected abstract void visitIfStatement(ASTNode astNode);
+    protected abstract void visitIfStatement(int astNode);
 
-    protected abstract void visitWhileStatement(ASTNode astNode);
+    protected abstract void visitWhileStatement(int astNode);
 
-    protected abstract void visitRepeatStatement(ASTNode astNode);
+    protected abstract void visitRepeatStatement(int astNode);
 
-    protected abstract void visitForStatement(ASTNode astNode);
+    protected abstract void visitForStatement(int astNode);
 
-    protected abstract void visitLoopStatement(ASTNode astNode);
+    protected abstract void visitLoopStatement(int astNode);
 
-    protected abstract void visitCaseStatement(ASTNode astNode);
+    protected abstract void visitCaseStatement(int astNode);
 
-    protected abstract void visitReadStatement(ASTNode astNode);
+    protected abstract void visitReadStatement(int astNode);
 
-    protected abstract void visitExitStatement(ASTNode astNode);
+    protected abstract void visitExitStatement(int astNode);
 
-    protected abstract void visitReturnStatement(ASTNode astNode);
+    protected abstract void visitReturnStatement(int astNode);
 
-    protected abstract void visitNullStatement(ASTNode astNode);
+    protected abstract void visitNullStatement(int astNode);
 
-    protected abstract void visitIntegerOutExp(ASTNode astNode);
+    protected abstract void visitIntegerOutExp(int astNode);
 
-    protected abstract void visitStringOutExp(ASTNode astNode);
+    protected abstract void visitStringOutExp(int astNode);
 
-    protected abstract void visitCaseClause(ASTNode astNode);
+    protected abstract void visitCaseClause(int astNode);
 
-    protected abstract void visitDoubleDotsClause(ASTNode astNode);
+    protected abstract void visitDoubleDotsClause(int astNode);
 
-    protected abstract void visitOtherwiseClause(ASTNode astNode);
+    protected abstract void visitOtherwiseClause(int astNode);
 
-    protected abstract void visitAssignmentStatement(ASTNode astNode);
+    protected abstract void visitAssignmentStatement(int astNode);
 
-    protected abstract void visitSwapStatement(ASTNode astNode);
+    protected abstract void visitSwapStatement(int astNode);
 
-    protected abstract void visitTrue(ASTNode astNode);
+    protected abstract void visitTrue(int astNode);
 
-    protected abstract void visitLtEqualExpression(ASTNode astNode);
+    protected abstract void visitLtEqualExpression(int astNode);
 
-    protected abstract void visitLtExpression(ASTNode astNode);
+    protected abstract void visitLtExpression(int astNode);
 
-    protected abstract void visitGtEqualExpression(ASTNode astNode);
+    protected abstract void visitGtEqualExpression(int astNode);
 
-    protected abstract void visitGtExpression(ASTNode astNode);
+    protected abstract void visitGtExpression(int astNode);
 
-    protected abstract void visitEqualsExpression(ASTNode astNode);
+    protected abstract void visitEqualsExpression(int astNode);
 
-    protected abstract void visitNotEqualsExpression(ASTNode astNode);
+    protected abstract void visitNotEqualsExpression(int astNode);
 
-    protected abstract void visitAddExpression(ASTNode astNode);
+    protected abstract void visitAddExpression(int astNode);
 
-    protected abstract void visitSubtractExpression(ASTNode astNode);
+    protected abstract void visitSubtractExpression(int astNode);
 
-    protected abstract void visitOrExpression(ASTNode astNode);
+    protected abstract void visitOrExpression(int astNode);
 
-    protected abstract void visitMultiplyExpression(ASTNode astNode);
+    protected abstract void visitMultiplyExpression(int astNode);
 
-    protected abstract void visitDivideExpression(ASTNode astNode);
+    protected abstract void visitDivideExpression(int astNode);
 
-    protected abstract void visitAndExpression(ASTNode astNode);
+    protected abstract void visitAndExpression(int astNode);
 
-    protected abstract void visitModExpression(ASTNode astNode);
+    protected abstract void visitModExpression(int astNode);
 
-    protected abstract void visitNegativeExpression(ASTNode astNode);
+    protected abstract void visitNegativeExpression(int astNode);
 
-    protected abstract void visitNotExpression(ASTNode astNode);
+    protected abstract void visitNotExpression(int astNode);
 
-    protected abstract void visitEofExpression(ASTNode astNode);
+    protected abstract void visitEofExpression(int astNode);
 
-    protected abstract void visitCallExpression(ASTNode astNode);
+    protected abstract void visitCallExpression(int astNode);
 
-    protected abstract void visitSuccExpression(ASTNode astNode);
+    protected abstract void visitSuccExpression(int astNode);
 
-    protected abstract void visitPredExpression(ASTNode astNode);
+    protected abstract void visitPredExpression(int astNode);
 
-    protected abstract void visitChrExpression(ASTNode astNode);
+    protected abstract void visitChrExpression(int astNode);
 
-    protected abstract void visitOrdExpression(ASTNode astNode);
+    protected abstract void visitOrdExpression(int astNode);
 
-    public abstract void visitIdentifier(IdentifierNode identifierNode);
+    public abstract void visitIdentifier(int identifierNode);
 }
@@ -0,0 +1,83 @@
+package semantic;
+
+import semantic.attrs.BinaryOpType;
+import semantic.attrs.UnaryOpType;
+
+/**
+ * Evaluates operators on constant operands at compile time, with the semantics of the abstract machine.
+ * Division and modulo round towards negative infinity, and the logical operators return one of their
+ * operands, as in the machine. Operations the machine would compute differently on ints, because a result
+ * overflows, or that fail at runtime, like a division by zero, are not folded.
+ */
+final class ConstantFolder {
+    private ConstantFolder() {
+    }
+
+    /**
+     * Evaluate a binary operator.
+     *
+     * @return the result, or null if the operation is left to runtime.
+     */
+    static Integer fold(BinaryOpType operator, int left, int right) {
+        try {
+            switch (operator) {
+                case BAND:
+                    return left == 0 ? left : right;
+                case BOR:
+                    return left != 0 ? left : right;
+                case BPLUS:
+                    return Math.addExact(left, right);
+                case BMINUS:
+                    return Math.subtractExact(left, right);
+                case BMULT:
+                    return Math.multiplyExact(left, right);
+                case BDIV:
+                    if (right == 0 || left == Integer.MIN_VALUE && right == -1) return null;
+                    return Math.floorDiv(left, right);
+                case BMOD:
+                    if (right == 0) return null;
+                    return Math.floorMod(left, right);
+                case BEQ:
+                    return left == right ? 1 : 0;
+                case BNE:
+                    return left != right ? 1 : 0;
+                case BLE:
+                    return left <= right ? 1 : 0;
+                case BGE:
+                    return left >= right ? 1 : 0;
+                case BLT:
+                    return left < right ? 1 : 0;
+                case BGT:
+                    return left > right ? 1 : 0;
+                default:
+                    return null;
+            }
+        } catch (ArithmeticException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Evaluate a unary operator.
+     *
+     * @return the result, or null if the operation is left to runtime.
+     */
+    static Integer fold(UnaryOpType operator, int operand) {
+        try {
+            switch (operator) {
+                case UNOT:
+                    return operand == 0 ? 1 : 0;
+                case UNEG:
+                    return Math.negateExact(operand);
+                case USUCC:
+                    return Math.incrementExact(operand);
+                case UPRED:
+                    return Math.decrementExact(operand);
+                default:
+                    return null;
+            }
+        } catch (ArithmeticException e) {
+            return null;
+        }
+    }
+}
@@ -9,10 +9,10 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class Context {
-    // All the new variables.
-    public List<String> newVarNames;
-    // All the new literals of the current type.
-    public List<String> newTypeLiteralNames;
+    // Name ids of all the new variables.
+    public List<Integer> newVarNameIds;
+    // Name ids of all the new literals of the current type.
+    public List<Integer> newTypeLiteralNameIds;
     // String out expression in output statement.
     public String stringExpression;
     // The expression type of the last met expression.
@@ -28,8 +28,8 @@ public class Context {
     public int top;
 
     public Context() {
-        newVarNames = new ArrayList<>();
-        newTypeLiteralNames = new ArrayList<>();
+        newVarNameIds = new ArrayList<>();
+        newTypeLiteralNameIds = new ArrayList<>();
         paramTypeSymbols = new ArrayList<>();
         stringExpression = "";
         exprTypeSymbol = SymbolTable.UNDEFINED_TYPE;
@@ -0,0 +1,127 @@
+package semantic;
+
+import semantic.attrs.Instruction;
+import semantic.attrs.InstructionMnemonic;
+import semantic.attrs.Label;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Optimization pass that rewrites short sequences of generated code by a set of {@link PeepholeRule}s.
+ * Instructions are moved one at a time from the input to the output, and the rules are matched against
+ * the end of the output. Replacements are put back in front of the input, so that they are matched again
+ * together with the instructions before them. A window never spans a label other than on its first
+ * instruction, since a branch may enter there. The label of a window moves to its replacement,
+ * or to the next instruction if the window is removed.
+ * Counts how many times each rule applied.
+ */
+public class PeepholeOptimizer {
+    private final Set<PeepholeRule> rules;
+    private final int[] hits;
+
+    // Every label object by index, so that merged labels can be renamed together.
+    private Map<Integer, List<Label>> labels;
+
+    public PeepholeOptimizer() {
+        this(EnumSet.allOf(PeepholeRule.class));
+    }
+
+    public PeepholeOptimizer(Set<PeepholeRule> rules) {
+        this.rules = EnumSet.copyOf(rules);
+        this.hits = new int[PeepholeRule.values().length];
+    }
+
+    /**
+     * Optimize generated code. Labels of the code may be renamed, when two of them end up on the same instruction.
+     *
+     * @param code the code, with its labels attached.
+     * @return the optimized code.
+     */
+    public List<Instruction> optimize(List<Instruction> code) {
+        labels = new HashMap<>();
+        for (Instruction instruction : code) {
+            addLabel(instruction.getLabel());
+            for (Object arg : instruction.getArgs()) {
+                if (arg instanceof Label) addLabel((Label) arg);
+            }
+        }
+
+        Deque<Instruction> input = new ArrayDeque<>(code);
+        List<Instruction> output = new ArrayList<>(code.size());
+        while (!input.isEmpty()) {
+            output.add(input.removeFirst());
+            rewriteEnd(output, input);
+        }
+        labels = null;
+        return output;
+    }
+
+    /**
+     * Get the number of times a rule applied, over all the code optimized by this optimizer.
+     */
+    public int getHits(PeepholeRule rule) {
+        return hits[rule.ordinal()];
+    }
+
+    private void rewriteEnd(List<Instruction> output, Deque<Instruction> input) {
+        for (PeepholeRule rule : rules) {
+            int start = output.size() - rule.getWindowSize();
+            if (start < 0 || hasLabel(output, start + 1)) continue;
+            List<Instruction> window = output.subList(start, output.size());
+            List<Instruction> replacement = rule.rewrite(window, input.peekFirst());
+            if (replacement == null) continue;
+
+            hits[rule.ordinal()]++;
+            Label label = window.get(0).getLabel();
+            window.clear();
+            for (int i = replacement.size() - 1; i >= 0; i--) {
+                input.addFirst(replacement.get(i));
+            }
+            if (label != null) {
+                moveLabel(label, input);
+            }
+            return;
+        }
+    }
+
+    /**
+     * Attach a label to the first instruction of the input, merging it into the label that is already there.
+     */
+    private void moveLabel(Label label, Deque<Instruction> input) {
+        Instruction next = input.pollFirst();
+        if (next == null) {
+            next = new Instruction(InstructionMnemonic.NOP);
+        }
+        Label nextLabel = next.getLabel();
+        if (nextLabel == null) {
+            next = new Instruction(label, next.getInstructionMnemonic(), next.getArgs());
+        } else if (!nextLabel.equals(label)) {
+            List<Label> merged = labels.remove(label.getIndex());
+            for (Label mergedLabel : merged) {
+                mergedLabel.setIndex(nextLabel.getIndex());
+            }
+            labels.get(nextLabel.getIndex()).addAll(merged);
+        }
+        input.addFirst(next);
+    }
+
+    private void addLabel(Label label) {
+        if (label != null) {
+            labels.computeIfAbsent(label.getIndex(), index -> new ArrayList<>()).add(label);
+        }
+    }
+
+    private static boolean hasLabel(List<Instruction> instructions, int from) {
+        for (int i = from; i < instructions.size(); i++) {
+            if (instructions.get(i).getLabel() != null) return true;
+        }
+        return false;
+    }
+}
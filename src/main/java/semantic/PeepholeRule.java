@@ -0,0 +1,124 @@
+package semantic;
+
+import semantic.attrs.BinaryOpType;
+import semantic.attrs.Instruction;
+import semantic.attrs.InstructionMnemonic;
+import semantic.attrs.OperatingSystemOpType;
+import semantic.attrs.UnaryOpType;
+
+import java.util.List;
+
+/**
+ * Rewrites of short instruction sequences applied by {@link PeepholeOptimizer}.
+ * A rule sees a window of consecutive instructions, where only the first may carry a label,
+ * and returns new instructions that do the same, or null if it does not apply.
+ */
+public enum PeepholeRule {
+    // SLV i; LLV i -> DUP; SLV i (and the same for globals). Keeps the value instead of loading it again.
+    STORE_LOAD(2) {
+        @Override
+        List<Instruction> rewrite(List<Instruction> window, Instruction next) {
+            Instruction store = window.get(0);
+            Instruction load = window.get(1);
+            InstructionMnemonic loadMnemonic;
+            if (store.getInstructionMnemonic() == InstructionMnemonic.SLV) {
+                loadMnemonic = InstructionMnemonic.LLV;
+            } else if (store.getInstructionMnemonic() == InstructionMnemonic.SGV) {
+                loadMnemonic = InstructionMnemonic.LGV;
+            } else {
+                return null;
+            }
+            if (!is(load, loadMnemonic, store.getArgs()[0])) return null;
+            return List.of(new Instruction(InstructionMnemonic.DUP),
+                    new Instruction(store.getInstructionMnemonic(), store.getArgs()));
+        }
+    },
+    // LIT 0; BOP BPLUS|BMINUS and LIT 1; BOP BMULT|BDIV leave the operand as it is.
+    IDENTITY_OPERATION(2) {
+        @Override
+        List<Instruction> rewrite(List<Instruction> window, Instruction next) {
+            Instruction literal = window.get(0);
+            Instruction operation = window.get(1);
+            boolean identity = is(literal, InstructionMnemonic.LIT, 0)
+                    && (is(operation, InstructionMnemonic.BOP, BinaryOpType.BPLUS)
+                    || is(operation, InstructionMnemonic.BOP, BinaryOpType.BMINUS))
+                    || is(literal, InstructionMnemonic.LIT, 1)
+                    && (is(operation, InstructionMnemonic.BOP, BinaryOpType.BMULT)
+                    || is(operation, InstructionMnemonic.BOP, BinaryOpType.BDIV));
+            return identity ? List.of() : null;
+        }
+    },
+    // LIT 1; BOP BPLUS|BMINUS -> UOP USUCC|UPRED.
+    INCREMENT(2) {
+        @Override
+        List<Instruction> rewrite(List<Instruction> window, Instruction next) {
+            if (!is(window.get(0), InstructionMnemonic.LIT, 1)) return null;
+            if (is(window.get(1), InstructionMnemonic.BOP, BinaryOpType.BPLUS)) {
+                return List.of(new Instruction(InstructionMnemonic.UOP, UnaryOpType.USUCC));
+            }
+            if (is(window.get(1), InstructionMnemonic.BOP, BinaryOpType.BMINUS)) {
+                return List.of(new Instruction(InstructionMnemonic.UOP, UnaryOpType.UPRED));
+            }
+            return null;
+        }
+    },
+    // GOTO L, where L is attached to the next instruction, falls through anyway.
+    JUMP_TO_NEXT(1) {
+        @Override
+        List<Instruction> rewrite(List<Instruction> window, Instruction next) {
+            Instruction jump = window.get(0);
+            if (jump.getInstructionMnemonic() != InstructionMnemonic.GOTO || next == null) return null;
+            return jump.getArgs()[0].equals(next.getLabel()) ? List.of() : null;
+        }
+    },
+    // Digits of a string are written as characters one by one: LIT '1'; SOS OUTPUTC; LIT '2'; SOS OUTPUTC.
+    // Consecutive digits are written as a single number instead, once the number has no leading zero.
+    OUTPUT_DIGITS(4) {
+        @Override
+        List<Instruction> rewrite(List<Instruction> window, Instruction next) {
+            if (window.get(0).getInstructionMnemonic() != InstructionMnemonic.LIT
+                    || window.get(2).getInstructionMnemonic() != InstructionMnemonic.LIT
+                    || !is(window.get(3), InstructionMnemonic.SOS, OperatingSystemOpType.OUTPUTC)) {
+                return null;
+            }
+            int number;
+            int first = (Integer) window.get(0).getArgs()[0];
+            if (is(window.get(1), InstructionMnemonic.SOS, OperatingSystemOpType.OUTPUTC)
+                    && first >= '1' && first <= '9') {
+                number = first - '0';
+            } else if (is(window.get(1), InstructionMnemonic.SOS, OperatingSystemOpType.OUTPUT) && first > 0) {
+                number = first;
+            } else {
+                return null;
+            }
+            int digit = (Integer) window.get(2).getArgs()[0];
+            if (digit < '0' || digit > '9' || number > (Integer.MAX_VALUE - 9) / 10) return null;
+            return List.of(new Instruction(InstructionMnemonic.LIT, number * 10 + digit - '0'),
+                    new Instruction(InstructionMnemonic.SOS, OperatingSystemOpType.OUTPUT));
+        }
+    };
+
+    private final int windowSize;
+
+    PeepholeRule(int windowSize) {
+        this.windowSize = windowSize;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    /**
+     * Rewrite a window of instructions.
+     *
+     * @param window the instructions, of which only the first may carry a label.
+     * @param next   the instruction after the window, or null at the end of the code.
+     * @return new unlabelled instructions that replace the window, or null if the rule does not apply.
+     */
+    abstract List<Instruction> rewrite(List<Instruction> window, Instruction next);
+
+    private static boolean is(Instruction instruction, InstructionMnemonic mnemonic, Object arg) {
+        return instruction.getInstructionMnemonic() == mnemonic
+                && instruction.getArgs().length == 1 && instruction.getArgs()[0].equals(arg);
+    }
+}
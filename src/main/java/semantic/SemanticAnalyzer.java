@@ -2,10 +2,11 @@ package semantic;
 
 import diagnostics.Highlightable;
 import diagnostics.TextHighlighter;
+import lexer.NameTable;
 import lexer.tokens.TokenKind;
 import parser.nodes.ASTNode;
-import parser.nodes.IdentifierNode;
-import parser.nodes.Node;
+import parser.nodes.FlatTree;
+import parser.nodes.FlatTreeBuilder;
 import parser.nodes.NodeKind;
 import semantic.attrs.BinaryOpType;
 import semantic.attrs.Instruction;
@@ -28,22 +29,47 @@ import java.util.Objects;
 
 public class SemanticAnalyzer extends BaseVisitor {
     private final TextHighlighter highlighter;
+    private final NameTable names;
     private final SymbolTable symbolTable;
     private final Map<Label, Integer> attachmentPositions;
+    // Index of the next label of this compilation.
+    private int labelCount;
 
     private final Context context;
     private final List<Instruction> code;
+    // Frames of the expressions being compiled, innermost last. Frames above the count are kept for reuse.
+    private final List<ExpressionFrame> frames;
+    private int frameCount;
 
     public SemanticAnalyzer(TextHighlighter highlighter) {
+        this(highlighter, new NameTable());
+    }
+
+    /**
+     * Create an analyzer that uses the given name table for symbol lookups.
+     * Identifiers interned into the same table are looked up by their ids without touching their names.
+     *
+     * @param highlighter the highlighter of the source.
+     * @param names       the name table of the compilation.
+     */
+    public SemanticAnalyzer(TextHighlighter highlighter, NameTable names) {
         this.highlighter = highlighter;
+        this.names = names;
         this.context = new Context();
-        this.symbolTable = new SymbolTable();
+        this.symbolTable = new SymbolTable(names);
         this.code = new ArrayList<>();
         this.attachmentPositions = new HashMap<>();
+        this.labelCount = 0;
+        this.frames = new ArrayList<>();
+        this.frameCount = 0;
     }
 
     public List<Instruction> codeGenerate(ASTNode astNode) {
-        visit(astNode);
+        return codeGenerate(FlatTreeBuilder.from(astNode, highlighter, names));
+    }
+
+    public List<Instruction> codeGenerate(FlatTree tree) {
+        visitTree(tree);
         attachLabels();
         return code;
     }
@@ -51,36 +77,37 @@ public class SemanticAnalyzer extends BaseVisitor {
     // ---------------------------------------- Program ----------------------------------------------------------------
 
     @Override
-    protected void visitProgram(ASTNode astNode) {
-        String programName = ((IdentifierNode) astNode.getChild(0)).getIdentifierValue(); // Name
-        if (doesEndTokenMismatch(programName, (IdentifierNode) astNode.getChild(6))) return;
-
-        visit(astNode.getChild(1)); // Consts
-        visit(astNode.getChild(2)); // Types
-        visit(astNode.getChild(3)); // Dclns
-        visit(astNode.getChild(4)); // SubProgs
-        visit(astNode.getChild(5)); // Body
+    protected void visitProgram(int astNode) {
+        int programNameNode = tree.getChild(astNode, 0); // Name
+        if (doesEndTokenMismatch(programNameNode, tree.getChild(astNode, 6))) return;
+
+        visit(tree.getChild(astNode, 1)); // Consts
+        visit(tree.getChild(astNode, 2)); // Types
+        visit(tree.getChild(astNode, 3)); // Dclns
+        visit(tree.getChild(astNode, 4)); // SubProgs
+        visit(tree.getChild(astNode, 5)); // Body
         addCode(InstructionMnemonic.HALT);
     }
 
     // ---------------------------------------- Consts -----------------------------------------------------------------
 
     @Override
-    protected void visitConsts(ASTNode astNode) {
-        for (int i = 0; i < astNode.getSize(); i++) { // list
-            visit(astNode.getChild(i)); // Const
+    protected void visitConsts(int astNode) {
+        for (int child = tree.getFirstChild(astNode); child != FlatTree.NONE; // list
+             child = tree.getNextSibling(child)) {
+            visit(child); // Const
         }
     }
 
     @Override
-    protected void visitConst(ASTNode astNode) {
-        IdentifierNode identifierNode = (IdentifierNode) astNode.getChild(0); // Name
-        IdentifierNode valueNode = (IdentifierNode) astNode.getChild(1); // ConstValue
-        String identifier = identifierNode.getIdentifierValue();
+    protected void visitConst(int astNode) {
+        int identifierNode = tree.getChild(astNode, 0); // Name
+        int valueNode = tree.getChild(astNode, 1); // ConstValue
+        int identifier = tree.getNameId(identifierNode, names);
 
         // Constants cannot be defined twice in the same scope.
         if (symbolTable.alreadyDefinedInScope(identifier)) {
-            addError("Variable '%s' is already defined.", identifier);
+            addError("Variable '%s' is already defined.", tree.getIdentifierValue(identifierNode));
             return;
         }
 
@@ -98,20 +125,20 @@ public class SemanticAnalyzer extends BaseVisitor {
     // ---------------------------------------- Types ------------------------------------------------------------------
 
     @Override
-    protected void visitTypes(ASTNode astNode) {
-        for (int i = 0; i < astNode.getSize(); i++) { // +
-            visit(astNode.getChild(i)); // Type
+    protected void visitTypes(int astNode) {
+        for (int child = tree.getFirstChild(astNode); child != FlatTree.NONE; child = tree.getNextSibling(child)) { // +
+            visit(child); // Type
         }
     }
 
     @Override
-    protected void visitType(ASTNode astNode) {
-        String typeName = ((IdentifierNode) astNode.getChild(0)).getIdentifierValue(); // Name
+    protected void visitType(int astNode) {
+        int typeName = tree.getNameId(tree.getChild(astNode, 0), names); // Name
 
         // Following is used to find the literals that are defined in the type.
         // We clear it, so it would not have previously calculated values.
-        context.newTypeLiteralNames.clear();
-        visit(astNode.getChild(1)); // ListList
+        context.newTypeLiteralNameIds.clear();
+        visit(tree.getChild(astNode, 1)); // ListList
 
         // Define type and retrieve it to use for constant declaration.
         // User defined types will be simply a collection of names.
@@ -121,39 +148,40 @@ public class SemanticAnalyzer extends BaseVisitor {
         TypeSymbol typeSymbol = symbolTable.enterTypeSymbol(typeName);
 
         // Define all the values that are assignable to this type as constants.
-        List<String> newVars = context.newTypeLiteralNames;
+        List<Integer> newVars = context.newTypeLiteralNameIds;
         for (int i = 0; i < newVars.size(); i++) {
-            String newVar = newVars.get(i);
+            int newVar = newVars.get(i);
             symbolTable.enterConstantSymbol(newVar, typeSymbol, i);
         }
     }
 
     @Override
-    protected void visitLit(ASTNode astNode) {
-        for (int i = 0; i < astNode.getSize(); i++) { // list
-            context.newTypeLiteralNames.add(((IdentifierNode) astNode.getChild(i)).getIdentifierValue()); // Name
+    protected void visitLit(int astNode) {
+        for (int child = tree.getFirstChild(astNode); child != FlatTree.NONE; // list
+             child = tree.getNextSibling(child)) {
+            context.newTypeLiteralNameIds.add(tree.getNameId(child, names)); // Name
         }
     }
 
     // ---------------------------------------- SubProgs ---------------------------------------------------------------
 
     @Override
-    protected void visitSubprogs(ASTNode astNode) {
-        if (astNode.getSize() == 0) return; // Empty
+    protected void visitSubprogs(int astNode) {
+        if (tree.getSize(astNode) == 0) return; // Empty
 
         // Go to exit of subprogs and skip sub program section.
         // Otherwise, will enter sub program first since they will be in the top.
         // The exit point label will be attached to the correct position afterwards.
-        Label subProgsExitLabel = new Label();
+        Label subProgsExitLabel = newLabel();
         addCode(InstructionMnemonic.GOTO, subProgsExitLabel);
 
         // Stores the current global top.
         // Inside the functions, all the addresses will be relative to function start position.
         // After the function definitions are over, the global will need to be restored.
         int globalTop = context.top;
-        for (int i = 0; i < astNode.getSize(); i++) { // *
+        for (int child = tree.getFirstChild(astNode); child != FlatTree.NONE; child = tree.getNextSibling(child)) { // *
             context.top = 0;
-            visit(astNode.getChild(i)); // Fcn
+            visit(child); // Fcn
         }
         context.top = globalTop;
 
@@ -161,12 +189,12 @@ public class SemanticAnalyzer extends BaseVisitor {
     }
 
     @Override
-    protected void visitFcn(ASTNode astNode) {
-        String functionName = ((IdentifierNode) astNode.getChild(0)).getIdentifierValue(); // Name
-        String returnTypeName = ((IdentifierNode) astNode.getChild(2)).getIdentifierValue(); // Name
-        if (doesEndTokenMismatch(functionName, (IdentifierNode) astNode.getChild(7))) return;
+    protected void visitFcn(int astNode) {
+        int functionNameNode = tree.getChild(astNode, 0); // Name
+        int returnTypeName = tree.getNameId(tree.getChild(astNode, 2), names); // Name
+        if (doesEndTokenMismatch(functionNameNode, tree.getChild(astNode, 7))) return;
 
-        Label functionEntryLabel = new Label();
+        Label functionEntryLabel = newLabel();
         attachLabel(functionEntryLabel);
         // Get the return type from the function definition.
         // The return value is required to determine the type of the values of calls.
@@ -179,19 +207,20 @@ public class SemanticAnalyzer extends BaseVisitor {
 
         // Begins a new scope. (A new local symbol table)
         symbolTable.beginLocalScope();
-        visit(astNode.getChild(1)); // Params
-        visit(astNode.getChild(3)); // Consts
-        visit(astNode.getChild(4)); // Types
-        visit(astNode.getChild(5)); // Dclns
+        visit(tree.getChild(astNode, 1)); // Params
+        visit(tree.getChild(astNode, 3)); // Consts
+        visit(tree.getChild(astNode, 4)); // Types
+        visit(tree.getChild(astNode, 5)); // Dclns
 
         // Before entering body, create function symbols to enable recursive calls.
         // The entry point label is used to generate the function call instructions.
         // Param types are copied to remove side effects of clearing the array.
         // Even if this is entered while in local scope, functions are always global.
         List<TypeSymbol> paramTypeSymbols = new ArrayList<>(context.paramTypeSymbols);
+        int functionName = tree.getNameId(functionNameNode, names);
         context.activeFcnSymbol = symbolTable.enterFcnSymbol(functionName, functionEntryLabel,
                 paramTypeSymbols, returnTypeSymbol);
-        visit(astNode.getChild(6)); // Body
+        visit(tree.getChild(astNode, 6)); // Body
         context.activeFcnSymbol = null;
 
         // Always add a return instruction at the end of the function.
@@ -204,19 +233,20 @@ public class SemanticAnalyzer extends BaseVisitor {
     }
 
     @Override
-    protected void visitParams(ASTNode astNode) {
+    protected void visitParams(int astNode) {
         // Parameter for each function incoming variable.
         // Following will be used to get the newly created parameters.
-        context.newVarNames.clear();
-        for (int i = 0; i < astNode.getSize(); i++) { // list
-            visit(astNode.getChild(i)); // Dcln
+        context.newVarNameIds.clear();
+        for (int child = tree.getFirstChild(astNode); child != FlatTree.NONE; // list
+             child = tree.getNextSibling(child)) {
+            visit(child); // Dcln
         }
 
         // Generate code for the new parameters.
         // All parameters are loaded from local frame.
         // Parameters will not have explicit value storage.
         // So, no instructions will be generated.
-        for (String identifier : context.newVarNames) {
+        for (int identifier : context.newVarNameIds) {
             VariableSymbol newVarSymbol = lookupVariable(identifier);
             if (newVarSymbol == null) continue;
             // Top is already increased by variable declaration.
@@ -228,18 +258,18 @@ public class SemanticAnalyzer extends BaseVisitor {
     // ---------------------------------------- Dcln -------------------------------------------------------------------
 
     @Override
-    protected void visitDclns(ASTNode astNode) {
+    protected void visitDclns(int astNode) {
         // Find all the defined variables and add them to the scope.
         // Following will be used to get the newly created variables.
-        context.newVarNames.clear();
-        for (int i = 0; i < astNode.getSize(); i++) { // +
-            visit(astNode.getChild(i)); // Dcln
+        context.newVarNameIds.clear();
+        for (int child = tree.getFirstChild(astNode); child != FlatTree.NONE; child = tree.getNextSibling(child)) { // +
+            visit(child); // Dcln
         }
 
         // Generate code for the new variables.
         // All dclns are treated as new variables initialized with 0.
         // These will be explicitly stored, so instructions will be generated.
-        for (String identifier : context.newVarNames) {
+        for (int identifier : context.newVarNameIds) {
             VariableSymbol newVarSymbol = lookupVariable(identifier);
             if (newVarSymbol == null) continue;
             // Top is already increased by variable declaration.
@@ -249,45 +279,44 @@ public class SemanticAnalyzer extends BaseVisitor {
     }
 
     @Override
-    protected void visitVar(ASTNode astNode) {
-        List<IdentifierNode> identifierNodes = new ArrayList<>();
-        for (int i = 0; i < astNode.getSize() - 1; i++) { // list
-            identifierNodes.add((IdentifierNode) astNode.getChild(i)); // Name
-        }
-        IdentifierNode typeNode = (IdentifierNode) astNode.getChild(astNode.getSize() - 1); // Name (Type)
+    protected void visitVar(int astNode) {
+        int typeNode = tree.getLastChild(astNode); // Name (Type)
 
         // Get the type symbol for the variable from symbol table.
-        TypeSymbol typeSymbol = lookupType(typeNode.getIdentifierValue());
+        TypeSymbol typeSymbol = lookupType(tree.getNameId(typeNode, names));
         if (typeSymbol == null) return;
 
         // Define new variables in the symbol table.
         // Here, no new machine instructions are generated.
         // The above node (either dcln or param) is expected to deal with them.
         // The variables will simply be added to the symbol table.
-        for (IdentifierNode identifierNode : identifierNodes) {
-            String identifier = identifierNode.getIdentifierValue();
+        for (int identifierNode = tree.getFirstChild(astNode); identifierNode != typeNode; // list
+             identifierNode = tree.getNextSibling(identifierNode)) {
+            int identifier = tree.getNameId(identifierNode, names);
             if (symbolTable.alreadyDefinedInScope(identifier)) {
-                addError("Variable '%s' already defined.", identifier);
+                addError("Variable '%s' already defined.", tree.getIdentifierValue(identifierNode));
                 continue;
             }
             symbolTable.enterVariableSymbol(identifier, context.top++, typeSymbol);
-            context.newVarNames.add(identifier);
+            context.newVarNameIds.add(identifier);
         }
     }
 
     // ---------------------------------------- Statements -------------------------------------------------------------
 
     @Override
-    protected void visitBlock(ASTNode astNode) {
-        for (int i = 0; i < astNode.getSize(); i++) { // list
-            visit(astNode.getChild(i)); // Statement
+    protected void visitBlock(int astNode) {
+        for (int child = tree.getFirstChild(astNode); child != FlatTree.NONE; // list
+             child = tree.getNextSibling(child)) {
+            visit(child); // Statement
         }
     }
 
     @Override
-    protected void visitOutputStatement(ASTNode astNode) {
-        for (int i = 0; i < astNode.getSize(); i++) { // list
-            visit(astNode.getChild(i)); // OutExp
+    protected void visitOutputStatement(int astNode) {
+        for (int child = tree.getFirstChild(astNode); child != FlatTree.NONE; // list
+             child = tree.getNextSibling(child)) {
+            visit(child); // OutExp
 
             // Generate correct output depending on the expression type.
             if (context.exprTypeSymbol.isInteger()) {
@@ -309,7 +338,7 @@ public class SemanticAnalyzer extends BaseVisitor {
 
             // Assumption: For every value, except the last, manually insert a space.
             // This will not change top.
-            if (i < astNode.getSize() - 1) {
+            if (tree.getNextSibling(child) != FlatTree.NONE) {
                 addCode(InstructionMnemonic.LIT, (int) ' ');
                 addCode(InstructionMnemonic.SOS, OperatingSystemOpType.OUTPUTC);
             }
@@ -319,13 +348,13 @@ public class SemanticAnalyzer extends BaseVisitor {
     }
 
     @Override
-    protected void visitIfStatement(ASTNode astNode) {
-        visit(astNode.getChild(0)); // Expression
+    protected void visitIfStatement(int astNode) {
+        visit(tree.getChild(astNode, 0)); // Expression
         if (!context.exprTypeSymbol.isBoolean()) addError("Invalid type for if condition.");
 
-        Label thenEntryLabel = new Label();
-        Label elseEntryLabel = astNode.getSize() == 3 ? new Label() : null;
-        Label ifExitLabel = new Label();
+        Label thenEntryLabel = newLabel();
+        Label elseEntryLabel = tree.getSize(astNode) == 3 ? newLabel() : null;
+        Label ifExitLabel = newLabel();
 
         // Evaluate the condition. (Pops one value off the stack)
         // Here, depending on the else clause, go to either else or end of if.
@@ -336,25 +365,25 @@ public class SemanticAnalyzer extends BaseVisitor {
         // Then statement.
         // After then, go to the end of statement.
         attachLabel(thenEntryLabel);
-        visit(astNode.getChild(1)); // Statement
+        visit(tree.getChild(astNode, 1)); // Statement
         addCode(InstructionMnemonic.GOTO, ifExitLabel);
 
         if (elseEntryLabel != null) { // ?
             attachLabel(elseEntryLabel);
-            visit(astNode.getChild(2)); // Statement
+            visit(tree.getChild(astNode, 2)); // Statement
         }
 
         attachLabel(ifExitLabel);
     }
 
     @Override
-    protected void visitWhileStatement(ASTNode astNode) {
-        Label whileConditionLabel = new Label();
-        Label whileBodyLabel = new Label();
-        Label whileExitLabel = new Label();
+    protected void visitWhileStatement(int astNode) {
+        Label whileConditionLabel = newLabel();
+        Label whileBodyLabel = newLabel();
+        Label whileExitLabel = newLabel();
 
         attachLabel(whileConditionLabel);
-        visit(astNode.getChild(0)); // Expression
+        visit(tree.getChild(astNode, 0)); // Expression
         if (!context.exprTypeSymbol.isBoolean()) addError("Invalid type for while condition.");
 
         // Depending on the condition value, go to either the body or the end of while.
@@ -364,24 +393,26 @@ public class SemanticAnalyzer extends BaseVisitor {
 
         // Execute the body and go back to the condition.
         attachLabel(whileBodyLabel);
-        visit(astNode.getChild(1)); // Statement
+        visit(tree.getChild(astNode, 1)); // Statement
         addCode(InstructionMnemonic.GOTO, whileConditionLabel);
 
         attachLabel(whileExitLabel);
     }
 
     @Override
-    protected void visitRepeatStatement(ASTNode astNode) {
-        Label repeatBodyLabel = new Label();
-        Label repeatExitLabel = new Label();
+    protected void visitRepeatStatement(int astNode) {
+        Label repeatBodyLabel = newLabel();
+        Label repeatExitLabel = newLabel();
 
         // Execute the body and go back to the condition.
         attachLabel(repeatBodyLabel);
-        for (int i = 0; i < astNode.getSize() - 1; i++) { // list
-            visit(astNode.getChild(i)); // Statement
+        int expressionNode = tree.getLastChild(astNode);
+        for (int child = tree.getFirstChild(astNode); child != expressionNode; // list
+             child = tree.getNextSibling(child)) {
+            visit(child); // Statement
         }
 
-        visit(astNode.getChild(astNode.getSize() - 1)); // Expression
+        visit(expressionNode); // Expression
         if (!context.exprTypeSymbol.isBoolean()) addError("Invalid type for repeat condition.");
 
         // Depending on the condition value, go to either the body or the end of while.
@@ -393,18 +424,18 @@ public class SemanticAnalyzer extends BaseVisitor {
     }
 
     @Override
-    protected void visitForStatement(ASTNode astNode) {
+    protected void visitForStatement(int astNode) {
         // First statement is the initialization.
         // This is run only once.
-        visit(astNode.getChild(0)); // ForStat
+        visit(tree.getChild(astNode, 0)); // ForStat
 
-        Label forConditionLabel = new Label();
-        Label forBodyLabel = new Label();
-        Label forExitLabel = new Label();
+        Label forConditionLabel = newLabel();
+        Label forBodyLabel = newLabel();
+        Label forExitLabel = newLabel();
 
         // Second statement is the condition.
         attachLabel(forConditionLabel);
-        visit(astNode.getChild(1)); // ForExp
+        visit(tree.getChild(astNode, 1)); // ForExp
         if (!context.exprTypeSymbol.isBoolean()) addError("Invalid type for loop condition.");
 
         // If the condition is true, go to the body.
@@ -415,28 +446,29 @@ public class SemanticAnalyzer extends BaseVisitor {
         // Third statement is the update.
         // But first we run the body, then we run the update.
         attachLabel(forBodyLabel);
-        visit(astNode.getChild(3)); // Statement
-        visit(astNode.getChild(2)); // ForStat
+        visit(tree.getChild(astNode, 3)); // Statement
+        visit(tree.getChild(astNode, 2)); // ForStat
         addCode(InstructionMnemonic.GOTO, forConditionLabel);
 
         attachLabel(forExitLabel);
     }
 
     @Override
-    protected void visitLoopStatement(ASTNode astNode) {
-        Label loopStartLabel = new Label();
+    protected void visitLoopStatement(int astNode) {
+        Label loopStartLabel = newLabel();
         attachLabel(loopStartLabel);
 
         // Execute the body and go back to the condition.
-        for (int i = 0; i < astNode.getSize(); i++) { // list
-            visit(astNode.getChild(i)); // Statement
+        for (int child = tree.getFirstChild(astNode); child != FlatTree.NONE; // list
+             child = tree.getNextSibling(child)) {
+            visit(child); // Statement
         }
         addCode(InstructionMnemonic.GOTO, loopStartLabel);
     }
 
     @Override
-    protected void visitCaseStatement(ASTNode astNode) {
-        visit(astNode.getChild(0)); // Expression
+    protected void visitCaseStatement(int astNode) {
+        visit(tree.getChild(astNode, 0)); // Expression
 
         // Create a pseudo variable to keep track of expression.
         // If there is a previous case variable, we track it. (Can be nested case statements)
@@ -447,18 +479,18 @@ public class SemanticAnalyzer extends BaseVisitor {
         // If the last node is of kind otherwise, there is an otherwise clause.
         // There will always be at least one node, so no checking is required.
         // Number of case clauses will depend on whether there is an otherwise clause.
-        ASTNode lastNode = (ASTNode) astNode.getChild(astNode.getSize() - 1);
-        boolean hasOtherwise = NodeKind.OTHERWISE_CLAUSE.equals(lastNode.getKind());
-        int nCaseClauses = hasOtherwise ? astNode.getSize() - 2 : astNode.getSize() - 1;
+        int lastNode = tree.getLastChild(astNode);
+        boolean hasOtherwise = NodeKind.OTHERWISE_CLAUSE.equals(tree.getKind(lastNode));
+        int nCaseClauses = hasOtherwise ? tree.getSize(astNode) - 2 : tree.getSize(astNode) - 1;
 
         // Case clauses except expression and otherwise (if exists).
         // Add a label for each case and end of cases.
         // The end case label will be used by final case clause.
         List<Label> caseClausesLabels = new ArrayList<>();
-        Label caseClausesEndLabel = new Label();
-        Label caseOtherwiseLabel = hasOtherwise ? new Label() : caseClausesEndLabel;
+        Label caseClausesEndLabel = newLabel();
+        Label caseOtherwiseLabel = hasOtherwise ? newLabel() : caseClausesEndLabel;
         for (int i = 0; i < nCaseClauses; i++) {
-            caseClausesLabels.add(new Label());
+            caseClausesLabels.add(newLabel());
         }
         caseClausesLabels.add(caseOtherwiseLabel);
 
@@ -467,16 +499,18 @@ public class SemanticAnalyzer extends BaseVisitor {
         // Assumption: Cases break. After first case block, the second will not be checked.
         // So, only one block will execute. (The first one that matches)
         // Otherwise clause if non matches.
+        int caseClauseNode = tree.getNextSibling(tree.getFirstChild(astNode));
         for (int i = 0; i < nCaseClauses; i++) { // Caseclauses +
             attachLabel(caseClausesLabels.get(i));
             context.nextCaseLabel = caseClausesLabels.get(i + 1);
-            visit(astNode.getChild(i + 1)); // Caseclause
+            visit(caseClauseNode); // Caseclause
             addCode(InstructionMnemonic.GOTO, caseClausesEndLabel);
+            caseClauseNode = tree.getNextSibling(caseClauseNode);
         }
 
         // Visit otherwise clause.
         attachLabel(caseOtherwiseLabel);
-        visit(astNode.getChild(astNode.getSize() - 1)); // OtherwiseClause
+        visit(lastNode); // OtherwiseClause
 
         // Restore previous case variable and pop the case expression value.
         attachLabel(caseClausesEndLabel);
@@ -486,10 +520,11 @@ public class SemanticAnalyzer extends BaseVisitor {
     }
 
     @Override
-    protected void visitReadStatement(ASTNode astNode) {
-        for (int i = 0; i < astNode.getSize(); i++) { // list
+    protected void visitReadStatement(int astNode) {
+        for (int child = tree.getFirstChild(astNode); child != FlatTree.NONE; // list
+             child = tree.getNextSibling(child)) {
             // Generate instruction to save in local/global variable.
-            String identifier = ((IdentifierNode) astNode.getChild(i)).getIdentifierValue();
+            int identifier = tree.getNameId(child, names);
             VariableSymbol variableSymbol = lookupVariable(identifier);
             if (variableSymbol == null) continue;
 
@@ -511,13 +546,13 @@ public class SemanticAnalyzer extends BaseVisitor {
     }
 
     @Override
-    protected void visitExitStatement(ASTNode astNode) {
+    protected void visitExitStatement(int astNode) {
         addCode(InstructionMnemonic.HALT);
     }
 
     @Override
-    protected void visitReturnStatement(ASTNode astNode) {
-        visit(astNode.getChild(0)); // Expression
+    protected void visitReturnStatement(int astNode) {
+        visit(tree.getChild(astNode, 0)); // Expression
         FcnSymbol activeFcnSymbol = context.activeFcnSymbol;
         if (activeFcnSymbol == null) {
             addError("Return statement outside of function.");
@@ -530,39 +565,39 @@ public class SemanticAnalyzer extends BaseVisitor {
     }
 
     @Override
-    protected void visitNullStatement(ASTNode astNode) {
+    protected void visitNullStatement(int astNode) {
         // Do nothing.
     }
 
     @Override
-    protected void visitIntegerOutExp(ASTNode astNode) {
-        visit(astNode.getChild(0)); // Expression
+    protected void visitIntegerOutExp(int astNode) {
+        visit(tree.getChild(astNode, 0)); // Expression
         // Expression type does not change.
     }
 
     @Override
-    protected void visitStringOutExp(ASTNode astNode) {
-        String literalWithQuotes = ((IdentifierNode) astNode.getChild(0)).getIdentifierValue();
+    protected void visitStringOutExp(int astNode) {
+        String literalWithQuotes = tree.getIdentifierValue(tree.getChild(astNode, 0));
         context.stringExpression = literalWithQuotes.substring(1, literalWithQuotes.length() - 1); // StringNode
         context.exprTypeSymbol = SymbolTable.STRING_TYPE;
     }
 
     @Override
-    protected void visitCaseClause(ASTNode astNode) {
+    protected void visitCaseClause(int astNode) {
         // This uses the puedo variable created using the case expression value.
         // Each case expression becomes equality checks combined with or operators.
         // Finally, depending on the expression result, this will go to case body or next case.
 
-        Label caseBodyLabel = new Label();
+        Label caseBodyLabel = newLabel();
         Label nextCaseLabel = context.nextCaseLabel;
         VariableSymbol caseVariableSymbol = context.currentCaseVariableSymbol;
 
         // Push n variable loads and equality operators.
-        int nCaseExpressions = astNode.getSize() - 1;
-        for (int i = 0; i < nCaseExpressions; i++) { // list
-            Node caseExprBaseNode = astNode.getChild(i); // CaseExpression
-            if (caseExprBaseNode instanceof IdentifierNode) {
-                IdentifierNode caseExprNode = (IdentifierNode) caseExprBaseNode;
+        int nCaseExpressions = tree.getSize(astNode) - 1;
+        int statementNode = tree.getLastChild(astNode);
+        for (int caseExprNode = tree.getFirstChild(astNode); caseExprNode != statementNode; // list
+             caseExprNode = tree.getNextSibling(caseExprNode)) { // CaseExpression
+            if (tree.isIdentifier(caseExprNode)) {
                 TypeSymbol caseExprTypeSymbol = getConstantType(caseExprNode);
                 if (caseExprTypeSymbol == null) continue;
                 if (typeMismatch(caseVariableSymbol.typeSymbol, caseExprTypeSymbol)) continue;
@@ -574,7 +609,7 @@ public class SemanticAnalyzer extends BaseVisitor {
             } else {
                 // Process double dot case expression.
                 // Top will increase by one.
-                visit(caseExprBaseNode); // ..
+                visit(caseExprNode); // ..
             }
         }
 
@@ -589,13 +624,13 @@ public class SemanticAnalyzer extends BaseVisitor {
         context.top--;
         // The code of body.
         attachLabel(caseBodyLabel);
-        visit(astNode.getChild(astNode.getSize() - 1)); // Statement
+        visit(statementNode); // Statement
     }
 
     @Override
-    protected void visitDoubleDotsClause(ASTNode astNode) {
-        IdentifierNode caseExprNode1 = (IdentifierNode) astNode.getChild(0); // ConstValue
-        IdentifierNode caseExprNode2 = (IdentifierNode) astNode.getChild(1); // ConstValue
+    protected void visitDoubleDotsClause(int astNode) {
+        int caseExprNode1 = tree.getChild(astNode, 0); // ConstValue
+        int caseExprNode2 = tree.getChild(astNode, 1); // ConstValue
 
         // Check if both case expressions are of correct type.
         VariableSymbol caseVariableSymbol = context.currentCaseVariableSymbol;
@@ -622,14 +657,14 @@ public class SemanticAnalyzer extends BaseVisitor {
     }
 
     @Override
-    protected void visitOtherwiseClause(ASTNode astNode) {
-        visit(astNode.getChild(0)); // Statement
+    protected void visitOtherwiseClause(int astNode) {
+        visit(tree.getChild(astNode, 0)); // Statement
     }
 
     @Override
-    protected void visitAssignmentStatement(ASTNode astNode) {
-        String identifier = ((IdentifierNode) astNode.getChild(0)).getIdentifierValue(); // Name
-        visit(astNode.getChild(1)); // Expression
+    protected void visitAssignmentStatement(int astNode) {
+        int identifier = tree.getNameId(tree.getChild(astNode, 0), names); // Name
+        visit(tree.getChild(astNode, 1)); // Expression
 
         // Assumption: Currently, if the variable is not defined,
         // the result of the expression is discarded.
@@ -662,9 +697,9 @@ public class SemanticAnalyzer extends BaseVisitor {
     }
 
     @Override
-    protected void visitSwapStatement(ASTNode astNode) {
-        String identifier1 = ((IdentifierNode) astNode.getChild(0)).getIdentifierValue();
-        String identifier2 = ((IdentifierNode) astNode.getChild(1)).getIdentifierValue();
+    protected void visitSwapStatement(int astNode) {
+        int identifier1 = tree.getNameId(tree.getChild(astNode, 0), names);
+        int identifier2 = tree.getNameId(tree.getChild(astNode, 1), names);
 
         // Get the variable symbols and check their types.
         VariableSymbol variableSymbol1 = lookupVariable(identifier1);
@@ -685,7 +720,7 @@ public class SemanticAnalyzer extends BaseVisitor {
     }
 
     @Override
-    protected void visitTrue(ASTNode astNode) {
+    protected void visitTrue(int astNode) {
         // Simply add truthy value to stack.
         addCode(InstructionMnemonic.LIT, 1);
         context.exprTypeSymbol = SymbolTable.BOOLEAN_TYPE;
@@ -694,263 +729,370 @@ public class SemanticAnalyzer extends BaseVisitor {
 
     // ---------------------------------------------- Expressions ------------------------------------------------------
 
-    // -----------------------------------------------------------------------------------------------------------------
+    // The parser reads expressions without recursion, so they can nest deeper than the call stack allows.
+    // Each expression is compiled with an explicit stack of frames instead, and its operands that are
+    // expressions themselves are not visited recursively.
 
     @Override
-    protected void visitLtEqualExpression(ASTNode astNode) {
-        visit(astNode.getChild(0)); // Term
-        TypeSymbol firstType = context.exprTypeSymbol;
-        visit(astNode.getChild(1)); // Term
-        TypeSymbol secondType = context.exprTypeSymbol;
-        addCode(InstructionMnemonic.BOP, BinaryOpType.BLE);
-        context.exprTypeSymbol = createConditionOperator(firstType, secondType);
-        // Two results are popped from the stack and one result is pushed.
-        // So the top index is decreased by one for binary operators.
-        context.top--;
+    protected void visitLtEqualExpression(int astNode) {
+        compileExpression(astNode);
     }
 
     @Override
-    protected void visitLtExpression(ASTNode astNode) {
-        visit(astNode.getChild(0)); // Term
-        TypeSymbol firstType = context.exprTypeSymbol;
-        visit(astNode.getChild(1)); // Term
-        TypeSymbol secondType = context.exprTypeSymbol;
-        addCode(InstructionMnemonic.BOP, BinaryOpType.BLT);
-        context.exprTypeSymbol = createConditionOperator(firstType, secondType);
-        context.top--;
+    protected void visitLtExpression(int astNode) {
+        compileExpression(astNode);
     }
 
     @Override
-    protected void visitGtEqualExpression(ASTNode astNode) {
-        visit(astNode.getChild(0)); // Term
-        TypeSymbol firstType = context.exprTypeSymbol;
-        visit(astNode.getChild(1)); // Term
-        TypeSymbol secondType = context.exprTypeSymbol;
-        addCode(InstructionMnemonic.BOP, BinaryOpType.BGE);
-        context.exprTypeSymbol = createConditionOperator(firstType, secondType);
-        context.top--;
+    protected void visitGtEqualExpression(int astNode) {
+        compileExpression(astNode);
     }
 
     @Override
-    protected void visitGtExpression(ASTNode astNode) {
-        visit(astNode.getChild(0)); // Term
-        TypeSymbol firstType = context.exprTypeSymbol;
-        visit(astNode.getChild(1)); // Term
-        TypeSymbol secondType = context.exprTypeSymbol;
-        addCode(InstructionMnemonic.BOP, BinaryOpType.BGT);
-        context.exprTypeSymbol = createConditionOperator(firstType, secondType);
-        context.top--;
+    protected void visitGtExpression(int astNode) {
+        compileExpression(astNode);
     }
 
     // -----------------------------------------------------------------------------------------------------------------
 
     @Override
-    protected void visitEqualsExpression(ASTNode astNode) {
-        visit(astNode.getChild(0)); // Term
-        TypeSymbol firstType = context.exprTypeSymbol;
-        visit(astNode.getChild(1)); // Term
-        TypeSymbol secondType = context.exprTypeSymbol;
-        addCode(InstructionMnemonic.BOP, BinaryOpType.BEQ);
-        context.exprTypeSymbol = createEqualityOperator(firstType, secondType);
-        context.top--;
+    protected void visitEqualsExpression(int astNode) {
+        compileExpression(astNode);
     }
 
     @Override
-    protected void visitNotEqualsExpression(ASTNode astNode) {
-        visit(astNode.getChild(0)); // Term
-        TypeSymbol firstType = context.exprTypeSymbol;
-        visit(astNode.getChild(1)); // Term
-        TypeSymbol secondType = context.exprTypeSymbol;
-        addCode(InstructionMnemonic.BOP, BinaryOpType.BNE);
-        context.exprTypeSymbol = createEqualityOperator(firstType, secondType);
-        context.top--;
+    protected void visitNotEqualsExpression(int astNode) {
+        compileExpression(astNode);
     }
 
     // -----------------------------------------------------------------------------------------------------------------
 
     @Override
-    protected void visitAddExpression(ASTNode astNode) {
-        visit(astNode.getChild(0)); // Term
-        TypeSymbol firstType = context.exprTypeSymbol;
-        visit(astNode.getChild(1)); // Term
-        TypeSymbol secondType = context.exprTypeSymbol;
-        addCode(InstructionMnemonic.BOP, BinaryOpType.BPLUS);
-        context.exprTypeSymbol = createArithmeticOperator(firstType, secondType);
-        context.top--;
+    protected void visitAddExpression(int astNode) {
+        compileExpression(astNode);
     }
 
     @Override
-    protected void visitSubtractExpression(ASTNode astNode) {
-        visit(astNode.getChild(0)); // Term
-        TypeSymbol firstType = context.exprTypeSymbol;
-        visit(astNode.getChild(1)); // Term
-        TypeSymbol secondType = context.exprTypeSymbol;
-        addCode(InstructionMnemonic.BOP, BinaryOpType.BMINUS);
-        context.exprTypeSymbol = createArithmeticOperator(firstType, secondType);
-        context.top--;
+    protected void visitSubtractExpression(int astNode) {
+        compileExpression(astNode);
     }
 
     @Override
-    protected void visitMultiplyExpression(ASTNode astNode) {
-        visit(astNode.getChild(0)); // Term
-        TypeSymbol firstType = context.exprTypeSymbol;
-        visit(astNode.getChild(1)); // Term
-        TypeSymbol secondType = context.exprTypeSymbol;
-        addCode(InstructionMnemonic.BOP, BinaryOpType.BMULT);
-        context.exprTypeSymbol = createArithmeticOperator(firstType, secondType);
-        context.top--;
+    protected void visitMultiplyExpression(int astNode) {
+        compileExpression(astNode);
     }
 
     @Override
-    protected void visitDivideExpression(ASTNode astNode) {
-        visit(astNode.getChild(0)); // Term
-        TypeSymbol firstType = context.exprTypeSymbol;
-        visit(astNode.getChild(1)); // Term
-        TypeSymbol secondType = context.exprTypeSymbol;
-        addCode(InstructionMnemonic.BOP, BinaryOpType.BDIV);
-        context.exprTypeSymbol = createArithmeticOperator(firstType, secondType);
-        context.top--;
+    protected void visitDivideExpression(int astNode) {
+        compileExpression(astNode);
     }
 
     @Override
-    protected void visitModExpression(ASTNode astNode) {
-        visit(astNode.getChild(0)); // Term
-        TypeSymbol firstType = context.exprTypeSymbol;
-        visit(astNode.getChild(1)); // Term
-        TypeSymbol secondType = context.exprTypeSymbol;
-        addCode(InstructionMnemonic.BOP, BinaryOpType.BMOD);
-        context.exprTypeSymbol = createArithmeticOperator(firstType, secondType);
-        context.top--;
+    protected void visitModExpression(int astNode) {
+        compileExpression(astNode);
     }
 
     // -----------------------------------------------------------------------------------------------------------------
 
     @Override
-    protected void visitOrExpression(ASTNode astNode) {
-        visit(astNode.getChild(0)); // Term
-        TypeSymbol firstType = context.exprTypeSymbol;
-        visit(astNode.getChild(1)); // Term
-        TypeSymbol secondType = context.exprTypeSymbol;
-        addCode(InstructionMnemonic.BOP, BinaryOpType.BOR);
-        context.exprTypeSymbol = isLogicalOperatorDefined(firstType, secondType);
-        context.top--;
+    protected void visitOrExpression(int astNode) {
+        compileExpression(astNode);
     }
 
     @Override
-    protected void visitAndExpression(ASTNode astNode) {
-        visit(astNode.getChild(0)); // Term
-        TypeSymbol firstType = context.exprTypeSymbol;
-        visit(astNode.getChild(1)); // Term
-        TypeSymbol secondType = context.exprTypeSymbol;
-        addCode(InstructionMnemonic.BOP, BinaryOpType.BAND);
-        context.exprTypeSymbol = isLogicalOperatorDefined(firstType, secondType);
-        context.top--;
+    protected void visitAndExpression(int astNode) {
+        compileExpression(astNode);
     }
 
     // -----------------------------------------------------------------------------------------------------------------
 
     @Override
-    protected void visitNegativeExpression(ASTNode astNode) {
-        visit(astNode.getChild(0)); // Primary
-        addCode(InstructionMnemonic.UOP, UnaryOpType.UNEG);
-        context.exprTypeSymbol = createNegativeOperator(context.exprTypeSymbol);
-        // One result is popped from the stack and one result is pushed.
-        // So the top index does not change for unary operators.
+    protected void visitNegativeExpression(int astNode) {
+        compileExpression(astNode);
     }
 
     @Override
-    protected void visitNotExpression(ASTNode astNode) {
-        visit(astNode.getChild(0)); // Primary
-        addCode(InstructionMnemonic.UOP, UnaryOpType.UNOT);
-        context.exprTypeSymbol = createNotOperator(context.exprTypeSymbol);
+    protected void visitNotExpression(int astNode) {
+        compileExpression(astNode);
     }
 
     // -----------------------------------------------------------------------------------------------------------------
 
     @Override
-    protected void visitEofExpression(ASTNode astNode) {
-        addCode(InstructionMnemonic.SOS, OperatingSystemOpType.EOF);
-        context.exprTypeSymbol = SymbolTable.BOOLEAN_TYPE;
-        context.top++;
+    protected void visitEofExpression(int astNode) {
+        compileExpression(astNode);
+    }
+
+    @Override
+    protected void visitCallExpression(int astNode) {
+        compileExpression(astNode);
     }
 
+    // -----------------------------------------------------------------------------------------------------------------
+
     @Override
-    protected void visitCallExpression(ASTNode astNode) {
-        String fcnName = ((IdentifierNode) astNode.getChild(0)).getIdentifierValue();
+    protected void visitSuccExpression(int astNode) {
+        compileExpression(astNode);
+    }
+
+    @Override
+    protected void visitPredExpression(int astNode) {
+        compileExpression(astNode);
+    }
+
+    @Override
+    protected void visitChrExpression(int astNode) {
+        compileExpression(astNode);
+    }
+
+    @Override
+    protected void visitOrdExpression(int astNode) {
+        compileExpression(astNode);
+    }
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    private void compileExpression(int expression) {
+        // Frames below the base belong to an expression that is being compiled already.
+        int base = frameCount;
+        int currentNode = this.currentNode;
+        enterExpression(expression);
+        while (frameCount > base) {
+            ExpressionFrame frame = frames.get(frameCount - 1);
+            int operand = frame.nextOperand;
+            if (operand == FlatTree.NONE) {
+                frameCount--;
+                this.currentNode = frame.node;
+                exitExpression(frame);
+                if (frameCount > base) {
+                    endOperand(frames.get(frameCount - 1));
+                }
+                continue;
+            }
+            frame.nextOperand = tree.getNextSibling(operand);
+            startOperand(frame);
+            if (!tree.isIdentifier(operand) && isExpression(tree.getKind(operand))) {
+                enterExpression(operand);
+            } else {
+                visit(operand);
+                endOperand(frame);
+            }
+        }
+        this.currentNode = currentNode;
+    }
 
-        // Check if the function is defined.
-        FcnSymbol fcnSymbol = lookupFcn(fcnName);
-        if (fcnSymbol == null) return;
+    /**
+     * Push the frame of an expression, and add the code that comes before its operands.
+     */
+    private void enterExpression(int astNode) {
+        if (frameCount == frames.size()) {
+            frames.add(new ExpressionFrame());
+        }
+        ExpressionFrame frame = frames.get(frameCount++);
+        frame.node = astNode;
+        frame.kind = tree.getKind(astNode);
+        frame.operandCount = 0;
+        frame.fcnSymbol = null;
+        frame.paramTypes = null;
+        this.currentNode = astNode;
+        if (frame.kind != NodeKind.CALL_EXPRESSION) {
+            frame.nextOperand = tree.getFirstChild(astNode);
+            return;
+        }
+
+        // Check if the function is defined. Its arguments are not compiled otherwise.
+        frame.nextOperand = FlatTree.NONE;
+        int fcnName = tree.getNameId(tree.getChild(astNode, 0), names);
+        frame.fcnSymbol = lookupFcn(fcnName);
+        if (frame.fcnSymbol == null) return;
 
         // Push return value storage to the stack first.
         // This will increase the stack by one.
         addCode(InstructionMnemonic.LIT, 0);
         context.top++;
         // After the function is called, we have to restore the top.
-        int top = context.top;
-
-        // Push parameters and check if the parameters are correct.
-        List<TypeSymbol> typeSymbols = new ArrayList<>();
-        for (int i = 1; i < astNode.getSize(); i++) { // list
-            visit(astNode.getChild(i)); // Expression
-            typeSymbols.add(context.exprTypeSymbol);
-        }
-        if (!isFunctionAssignable(fcnSymbol, typeSymbols)) return;
-
-        // Restore the top and call the function.
-        context.top = top;
-        addCode(InstructionMnemonic.CODE, fcnSymbol.label);
-        addCode(InstructionMnemonic.CALL, context.top);
-        context.exprTypeSymbol = fcnSymbol.returnTypeSymbol;
+        frame.top = context.top;
+        frame.paramTypes = new ArrayList<>();
+        frame.nextOperand = tree.getNextSibling(tree.getFirstChild(astNode));
     }
 
-    // -----------------------------------------------------------------------------------------------------------------
-
-    @Override
-    protected void visitSuccExpression(ASTNode astNode) {
-        visit(astNode.getChild(0)); // Primary
-        addCode(InstructionMnemonic.UOP, UnaryOpType.USUCC);
-        createSuccPredOperator(context.exprTypeSymbol);
-        // Expression type does not change.
+    private void startOperand(ExpressionFrame frame) {
+        if (frame.operandCount == 0) {
+            frame.firstStart = code.size();
+        } else if (frame.operandCount == 1) {
+            frame.secondStart = code.size();
+        }
     }
 
-    @Override
-    protected void visitPredExpression(ASTNode astNode) {
-        visit(astNode.getChild(0)); // Primary
-        addCode(InstructionMnemonic.UOP, UnaryOpType.UPRED);
-        createSuccPredOperator(context.exprTypeSymbol);
-        // Expression type does not change.
+    private void endOperand(ExpressionFrame frame) {
+        if (frame.operandCount == 0) {
+            frame.firstType = context.exprTypeSymbol;
+        }
+        if (frame.paramTypes != null) {
+            frame.paramTypes.add(context.exprTypeSymbol);
+        }
+        frame.operandCount++;
+    }
+
+    /**
+     * Add the code of an expression that comes after its operands, and set its type.
+     * The type of the last operand is still in the context.
+     */
+    private void exitExpression(ExpressionFrame frame) {
+        TypeSymbol lastType = context.exprTypeSymbol;
+        switch (frame.kind) {
+            case LT_EQUAL_EXPRESSION:
+                addBinaryOperation(frame, BinaryOpType.BLE);
+                context.exprTypeSymbol = createConditionOperator(frame.firstType, lastType);
+                break;
+            case LT_EXPRESSION:
+                addBinaryOperation(frame, BinaryOpType.BLT);
+                context.exprTypeSymbol = createConditionOperator(frame.firstType, lastType);
+                break;
+            case GT_EQUAL_EXPRESSION:
+                addBinaryOperation(frame, BinaryOpType.BGE);
+                context.exprTypeSymbol = createConditionOperator(frame.firstType, lastType);
+                break;
+            case GT_EXPRESSION:
+                addBinaryOperation(frame, BinaryOpType.BGT);
+                context.exprTypeSymbol = createConditionOperator(frame.firstType, lastType);
+                break;
+            case EQUALS_EXPRESSION:
+                addBinaryOperation(frame, BinaryOpType.BEQ);
+                context.exprTypeSymbol = createEqualityOperator(frame.firstType, lastType);
+                break;
+            case NOT_EQUALS_EXPRESSION:
+                addBinaryOperation(frame, BinaryOpType.BNE);
+                context.exprTypeSymbol = createEqualityOperator(frame.firstType, lastType);
+                break;
+            case ADD_EXPRESSION:
+                addBinaryOperation(frame, BinaryOpType.BPLUS);
+                context.exprTypeSymbol = createArithmeticOperator(frame.firstType, lastType);
+                break;
+            case SUBTRACT_EXPRESSION:
+                addBinaryOperation(frame, BinaryOpType.BMINUS);
+                context.exprTypeSymbol = createArithmeticOperator(frame.firstType, lastType);
+                break;
+            case MULTIPLY_EXPRESSION:
+                addBinaryOperation(frame, BinaryOpType.BMULT);
+                context.exprTypeSymbol = createArithmeticOperator(frame.firstType, lastType);
+                break;
+            case DIVIDE_EXPRESSION:
+                addBinaryOperation(frame, BinaryOpType.BDIV);
+                context.exprTypeSymbol = createArithmeticOperator(frame.firstType, lastType);
+                break;
+            case MOD_EXPRESSION:
+                addBinaryOperation(frame, BinaryOpType.BMOD);
+                context.exprTypeSymbol = createArithmeticOperator(frame.firstType, lastType);
+                break;
+            case OR_EXPRESSION:
+                addBinaryOperation(frame, BinaryOpType.BOR);
+                context.exprTypeSymbol = isLogicalOperatorDefined(frame.firstType, lastType);
+                break;
+            case AND_EXPRESSION:
+                addBinaryOperation(frame, BinaryOpType.BAND);
+                context.exprTypeSymbol = isLogicalOperatorDefined(frame.firstType, lastType);
+                break;
+            case NEGATIVE_EXPRESSION:
+                // One result is popped from the stack and one result is pushed.
+                // So the top index does not change for unary operators.
+                addUnaryOperation(UnaryOpType.UNEG, frame.firstStart);
+                context.exprTypeSymbol = createNegativeOperator(lastType);
+                break;
+            case NOT_EXPRESSION:
+                addUnaryOperation(UnaryOpType.UNOT, frame.firstStart);
+                context.exprTypeSymbol = createNotOperator(lastType);
+                break;
+            case EOF_EXPRESSION:
+                addCode(InstructionMnemonic.SOS, OperatingSystemOpType.EOF);
+                context.exprTypeSymbol = SymbolTable.BOOLEAN_TYPE;
+                context.top++;
+                break;
+            case CALL_EXPRESSION:
+                if (frame.fcnSymbol == null) return;
+                if (!isFunctionAssignable(frame.fcnSymbol, frame.paramTypes)) return;
+                // Restore the top and call the function.
+                context.top = frame.top;
+                addCode(InstructionMnemonic.CODE, frame.fcnSymbol.label);
+                addCode(InstructionMnemonic.CALL, context.top);
+                context.exprTypeSymbol = frame.fcnSymbol.returnTypeSymbol;
+                break;
+            case SUCC_EXPRESSION:
+                // Expression type does not change.
+                addUnaryOperation(UnaryOpType.USUCC, frame.firstStart);
+                createSuccPredOperator(lastType);
+                break;
+            case PRED_EXPRESSION:
+                addUnaryOperation(UnaryOpType.UPRED, frame.firstStart);
+                createSuccPredOperator(lastType);
+                break;
+            case CHR_EXPRESSION:
+                // Simply change the expression type to char.
+                createChrOperator(lastType);
+                context.exprTypeSymbol = SymbolTable.CHAR_TYPE;
+                break;
+            case ORD_EXPRESSION:
+                // Simply change the expression type to integer.
+                createOrdOperator(lastType);
+                context.exprTypeSymbol = SymbolTable.INTEGER_TYPE;
+                break;
+            default:
+                throw new IllegalArgumentException("Not an expression: " + frame.kind);
+        }
     }
 
-    @Override
-    protected void visitChrExpression(ASTNode astNode) {
-        visit(astNode.getChild(0)); // Expression
-        createChrOperator(context.exprTypeSymbol);
-        // Simply change the expression type to char.
-        context.exprTypeSymbol = SymbolTable.CHAR_TYPE;
+    /**
+     * Add the operator of a binary expression over its two operands.
+     * Two results are popped from the stack and one result is pushed.
+     * So the top index is decreased by one for binary operators.
+     */
+    private void addBinaryOperation(ExpressionFrame frame, BinaryOpType operator) {
+        addBinaryOperation(operator, frame.firstStart, frame.secondStart);
+        context.top--;
     }
 
-    @Override
-    protected void visitOrdExpression(ASTNode astNode) {
-        visit(astNode.getChild(0)); // Expression
-        createOrdOperator(context.exprTypeSymbol);
-        // Simply change the expression type to integer.
-        context.exprTypeSymbol = SymbolTable.INTEGER_TYPE;
+    private static boolean isExpression(NodeKind kind) {
+        switch (kind) {
+            case LT_EQUAL_EXPRESSION:
+            case LT_EXPRESSION:
+            case GT_EQUAL_EXPRESSION:
+            case GT_EXPRESSION:
+            case EQUALS_EXPRESSION:
+            case NOT_EQUALS_EXPRESSION:
+            case ADD_EXPRESSION:
+            case SUBTRACT_EXPRESSION:
+            case MULTIPLY_EXPRESSION:
+            case DIVIDE_EXPRESSION:
+            case MOD_EXPRESSION:
+            case OR_EXPRESSION:
+            case AND_EXPRESSION:
+            case NEGATIVE_EXPRESSION:
+            case NOT_EXPRESSION:
+            case EOF_EXPRESSION:
+            case CALL_EXPRESSION:
+            case SUCC_EXPRESSION:
+            case PRED_EXPRESSION:
+            case CHR_EXPRESSION:
+            case ORD_EXPRESSION:
+                return true;
+            default:
+                return false;
+        }
     }
 
     // -----------------------------------------------------------------------------------------------------------------
 
     @Override
-    public void visitIdentifier(IdentifierNode identifierNode) {
+    public void visitIdentifier(int identifierNode) {
         // Simple literals.
-        if (TokenKind.CHAR_LITERAL.equals(identifierNode.getKind())) {
-            addCode(InstructionMnemonic.LIT, identifierNode.getIdentifierValue().codePointAt(1));
+        if (TokenKind.CHAR_LITERAL.equals(tree.getTokenKind(identifierNode))) {
+            addCode(InstructionMnemonic.LIT, tree.getIdentifierValue(identifierNode).codePointAt(1));
             context.exprTypeSymbol = SymbolTable.CHAR_TYPE;
             context.top++;
             return;
         }
-        if (TokenKind.INTEGER_LITERAL.equals(identifierNode.getKind())) {
-            addCode(InstructionMnemonic.LIT, Integer.parseInt(identifierNode.getIdentifierValue()));
+        if (TokenKind.INTEGER_LITERAL.equals(tree.getTokenKind(identifierNode))) {
+            addCode(InstructionMnemonic.LIT, Integer.parseInt(tree.getIdentifierValue(identifierNode)));
             context.exprTypeSymbol = SymbolTable.INTEGER_TYPE;
             context.top++;
             return;
@@ -958,7 +1100,7 @@ public class SemanticAnalyzer extends BaseVisitor {
 
         // If it is a variable, then we have to load it from the stack.
         // Variables are handled depending on whether they are global or local.
-        Symbol symbol = symbolTable.lookup(identifierNode.getIdentifierValue());
+        Symbol symbol = symbolTable.lookup(tree.getNameId(identifierNode, names));
         if (symbol instanceof VariableSymbol) {
             VariableSymbol variableSymbol = (VariableSymbol) symbol;
             addCode(variableSymbol.isGlobal ? InstructionMnemonic.LGV : InstructionMnemonic.LLV,
@@ -975,16 +1117,15 @@ public class SemanticAnalyzer extends BaseVisitor {
             context.top++;
             return;
         }
-        addError("Identifier '%s' is not defined.", identifierNode.getIdentifierValue());
+        addError("Identifier '%s' is not defined.", tree.getIdentifierValue(identifierNode));
     }
 
     // -----------------------------------------------------------------------------------------------------------------
 
-    private boolean doesEndTokenMismatch(String name, IdentifierNode endNode) {
+    private boolean doesEndTokenMismatch(int nameNode, int endNode) {
         String errorMessage = "Expected '%s' for the end token, but found '%s'.";
-        String endName = endNode.getIdentifierValue();
-        if (!name.equals(endName)) {
-            addError(errorMessage, name, endName);
+        if (tree.getNameId(nameNode, names) != tree.getNameId(endNode, names)) {
+            addError(errorMessage, tree.getIdentifierValue(nameNode), tree.getIdentifierValue(endNode));
             return true;
         }
         return false;
@@ -1103,60 +1244,59 @@ public class SemanticAnalyzer extends BaseVisitor {
 
     // -----------------------------------------------------------------------------------------------------------------
 
-    public VariableSymbol lookupVariable(String name) {
-        Symbol symbol = symbolTable.lookup(name);
+    public VariableSymbol lookupVariable(int nameId) {
+        Symbol symbol = symbolTable.lookup(nameId);
         if (symbol instanceof VariableSymbol) return (VariableSymbol) symbol;
-        addError("Variable '%s' is not defined.", name);
+        addError("Variable '%s' is not defined.", names.getName(nameId));
         return null;
     }
 
-    public ConstantSymbol lookupConstant(String name) {
-        Symbol symbol = symbolTable.lookup(name);
+    public ConstantSymbol lookupConstant(int nameId) {
+        Symbol symbol = symbolTable.lookup(nameId);
         if (symbol instanceof ConstantSymbol) return (ConstantSymbol) symbol;
-        addError("Constant '%s' is not defined.", name);
+        addError("Constant '%s' is not defined.", names.getName(nameId));
         return null;
     }
 
-    public TypeSymbol lookupType(String name) {
-        Symbol symbol = symbolTable.lookup(name);
+    public TypeSymbol lookupType(int nameId) {
+        Symbol symbol = symbolTable.lookup(nameId);
         if (symbol instanceof TypeSymbol) return (TypeSymbol) symbol;
-        addError("Type '%s' is not defined.", name);
+        addError("Type '%s' is not defined.", names.getName(nameId));
         return null;
     }
 
-    public FcnSymbol lookupFcn(String name) {
-        Symbol symbol = symbolTable.lookup(name);
+    public FcnSymbol lookupFcn(int nameId) {
+        Symbol symbol = symbolTable.lookup(nameId);
         if (symbol instanceof FcnSymbol) return (FcnSymbol) symbol;
-        addError("Function '%s' is not defined.", name);
+        addError("Function '%s' is not defined.", names.getName(nameId));
         return null;
     }
 
     // -----------------------------------------------------------------------------------------------------------------
 
-    public int getConstantValue(IdentifierNode constantValueNode) {
-        String value = constantValueNode.getIdentifierValue();
-        TokenKind tokenKind = constantValueNode.getKind();
+    public int getConstantValue(int constantValueNode) {
+        String value = tree.getIdentifierValue(constantValueNode);
+        TokenKind tokenKind = tree.getTokenKind(constantValueNode);
 
         // Constant has simple literal values.
         if (tokenKind == TokenKind.CHAR_LITERAL) return value.codePointAt(1);
         if (tokenKind == TokenKind.INTEGER_LITERAL) return Integer.parseInt(value);
 
         // Constant is defined using another constant.
-        ConstantSymbol constSymbol = lookupConstant(value);
+        ConstantSymbol constSymbol = lookupConstant(tree.getNameId(constantValueNode, names));
         if (constSymbol == null) return 0;
         return constSymbol.value;
     }
 
-    public TypeSymbol getConstantType(IdentifierNode constantValueNode) {
-        String value = constantValueNode.getIdentifierValue();
-        TokenKind tokenKind = constantValueNode.getKind();
+    public TypeSymbol getConstantType(int constantValueNode) {
+        TokenKind tokenKind = tree.getTokenKind(constantValueNode);
 
         // Constant has simple literal values.
         if (tokenKind == TokenKind.CHAR_LITERAL) return SymbolTable.CHAR_TYPE;
         if (tokenKind == TokenKind.INTEGER_LITERAL) return SymbolTable.INTEGER_TYPE;
 
         // Constant is defined using another constant.
-        ConstantSymbol constSymbol = lookupConstant(value);
+        ConstantSymbol constSymbol = lookupConstant(tree.getNameId(constantValueNode, names));
         if (constSymbol == null) return null;
         return constSymbol.type;
     }
@@ -1170,8 +1310,59 @@ public class SemanticAnalyzer extends BaseVisitor {
         code.add(new Instruction(mnemonic, register));
     }
 
+    /**
+     * Add a binary operator, or fold it into a literal if both operands were compiled to literals.
+     *
+     * @param firstStart  the position of the code of the first operand.
+     * @param secondStart the position of the code of the second operand, which ends the code so far.
+     */
+    private void addBinaryOperation(BinaryOpType operator, int firstStart, int secondStart) {
+        if (secondStart == firstStart + 1 && isLiteral(firstStart) && isLiteral(secondStart)
+                && code.size() == secondStart + 1) {
+            Integer value = ConstantFolder.fold(operator, getLiteral(firstStart), getLiteral(secondStart));
+            if (value != null) {
+                replaceCode(firstStart, value);
+                return;
+            }
+        }
+        addCode(InstructionMnemonic.BOP, operator);
+    }
+
+    /**
+     * Add a unary operator, or fold it into a literal if the operand was compiled to a literal.
+     *
+     * @param operandStart the position of the code of the operand, which ends the code so far.
+     */
+    private void addUnaryOperation(UnaryOpType operator, int operandStart) {
+        if (isLiteral(operandStart) && code.size() == operandStart + 1) {
+            Integer value = ConstantFolder.fold(operator, getLiteral(operandStart));
+            if (value != null) {
+                replaceCode(operandStart, value);
+                return;
+            }
+        }
+        addCode(InstructionMnemonic.UOP, operator);
+    }
+
+    private boolean isLiteral(int position) {
+        return position < code.size() && code.get(position).getInstructionMnemonic() == InstructionMnemonic.LIT;
+    }
+
+    private int getLiteral(int position) {
+        return (Integer) code.get(position).getArgs()[0];
+    }
+
+    /**
+     * Replace the code from a position to the end by a literal.
+     * Only the code of an expression is replaced, where no label is attached after its start.
+     */
+    private void replaceCode(int start, int value) {
+        code.subList(start, code.size()).clear();
+        addCode(InstructionMnemonic.LIT, value);
+    }
+
     private void addError(String message, Object... args) {
-        addError(currentNode, message, args);
+        addError(tree.getNode(currentNode), message, args);
     }
 
     private void attachLabels() {
@@ -1192,6 +1383,10 @@ public class SemanticAnalyzer extends BaseVisitor {
         }
     }
 
+    private Label newLabel() {
+        return new Label(labelCount++);
+    }
+
     private void attachLabel(Label label) {
         attachmentPositions.put(label, getNext());
     }
@@ -1199,4 +1394,23 @@ public class SemanticAnalyzer extends BaseVisitor {
     private int getNext() {
         return code.size() + 1;
     }
+
+    /**
+     * State of an expression whose operands are being compiled.
+     */
+    private static final class ExpressionFrame {
+        private int node;
+        private NodeKind kind;
+        // Next operand to compile, or NONE once all of them are compiled.
+        private int nextOperand;
+        private int operandCount;
+        // Positions of the code of the first two operands, and the type of the first.
+        private int firstStart;
+        private int secondStart;
+        private TypeSymbol firstType;
+        // Called function, the top to restore after the call, and the types of the arguments so far.
+        private FcnSymbol fcnSymbol;
+        private int top;
+        private List<TypeSymbol> paramTypes;
+    }
 }
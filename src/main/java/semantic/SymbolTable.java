@@ -1,5 +1,6 @@
 package semantic;
 
+import lexer.NameTable;
 import semantic.attrs.Label;
 import semantic.symbols.ConstantSymbol;
 import semantic.symbols.FcnSymbol;
@@ -7,11 +8,14 @@ import semantic.symbols.Symbol;
 import semantic.symbols.TypeSymbol;
 import semantic.symbols.VariableSymbol;
 
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 import java.util.StringJoiner;
 
+/**
+ * Symbols keyed by the ids of their names in the name table of the compilation.
+ * Each scope is an array indexed by the name id, so lookups do not hash or compare strings.
+ */
 public class SymbolTable {
     public static final TypeSymbol INTEGER_TYPE = new TypeSymbol("integer", true);
     public static final TypeSymbol CHAR_TYPE = new TypeSymbol("char", true);
@@ -20,22 +24,33 @@ public class SymbolTable {
     public static final TypeSymbol UNDEFINED_TYPE = new TypeSymbol("~UNDEFINED~", true); // Internal use only
     public static final ConstantSymbol FALSE_CONSTANT = new ConstantSymbol("false", BOOLEAN_TYPE, 0, true);
     public static final ConstantSymbol TRUE_CONSTANT = new ConstantSymbol("true", BOOLEAN_TYPE, 1, true);
-    private static final Map<String, Symbol> BUILT_IN_SYMBOLS = Map.of(
-            "integer", INTEGER_TYPE,
-            "char", CHAR_TYPE,
-            "boolean", BOOLEAN_TYPE,
-            "false", FALSE_CONSTANT,
-            "true", TRUE_CONSTANT
-    );
-
-    private final Map<String, Symbol> globalSymbols;
-    private final Map<String, Symbol> localSymbols;
+    private static final Symbol[] BUILT_IN_SYMBOLS = {
+            INTEGER_TYPE, CHAR_TYPE, BOOLEAN_TYPE, FALSE_CONSTANT, TRUE_CONSTANT
+    };
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final NameTable names;
+    private Symbol[] builtInSymbols;
+    private Symbol[] globalSymbols;
+    private Symbol[] localSymbols;
+    // Ids entered to the local scope, so that the scope can be cleared without scanning all names.
+    private int[] localNameIds;
+    private int localCount;
     private boolean isInLocalScope;
 
-    public SymbolTable() {
-        this.globalSymbols = new HashMap<>();
-        this.localSymbols = new HashMap<>();
+    public SymbolTable(NameTable names) {
+        this.names = names;
+        this.builtInSymbols = new Symbol[INITIAL_CAPACITY];
+        this.globalSymbols = new Symbol[INITIAL_CAPACITY];
+        this.localSymbols = new Symbol[INITIAL_CAPACITY];
+        this.localNameIds = new int[INITIAL_CAPACITY];
+        this.localCount = 0;
         this.isInLocalScope = false;
+        for (Symbol symbol : BUILT_IN_SYMBOLS) {
+            int nameId = names.intern(symbol.name);
+            ensureCapacity(nameId);
+            builtInSymbols[nameId] = symbol;
+        }
     }
 
     /**
@@ -44,7 +59,7 @@ public class SymbolTable {
      */
     public void beginLocalScope() {
         assert !this.isInLocalScope;
-        this.localSymbols.clear();
+        clearLocalSymbols();
         this.isInLocalScope = true;
     }
 
@@ -54,7 +69,7 @@ public class SymbolTable {
      */
     public void endLocalScope() {
         assert this.isInLocalScope;
-        this.localSymbols.clear();
+        clearLocalSymbols();
         this.isInLocalScope = false;
     }
 
@@ -63,50 +78,49 @@ public class SymbolTable {
     /**
      * Enter a new variable symbol.
      *
-     * @param name the name of the variable.
-     * @param type the type of the variable.
+     * @param nameId the name id of the variable.
+     * @param type   the type of the variable.
      */
-    public void enterVariableSymbol(String name, int address, TypeSymbol type) {
-        VariableSymbol variableSymbol = new VariableSymbol(name, type, address, !isInLocalScope);
-        if (isInLocalScope) localSymbols.put(name, variableSymbol);
-        else globalSymbols.put(name, variableSymbol);
+    public void enterVariableSymbol(int nameId, int address, TypeSymbol type) {
+        VariableSymbol variableSymbol = new VariableSymbol(names.getName(nameId), type, address, !isInLocalScope);
+        enterSymbol(nameId, variableSymbol);
     }
 
     /**
      * Enter a new constant symbol.
      *
-     * @param name  the name of the constant.
-     * @param type  the type of the constant.
-     * @param value the value of the constant.
+     * @param nameId the name id of the constant.
+     * @param type   the type of the constant.
+     * @param value  the value of the constant.
      */
-    public void enterConstantSymbol(String name, TypeSymbol type, int value) {
-        ConstantSymbol constantSymbol = new ConstantSymbol(name, type, value, !isInLocalScope);
-        if (isInLocalScope) localSymbols.put(name, constantSymbol);
-        else globalSymbols.put(name, constantSymbol);
+    public void enterConstantSymbol(int nameId, TypeSymbol type, int value) {
+        ConstantSymbol constantSymbol = new ConstantSymbol(names.getName(nameId), type, value, !isInLocalScope);
+        enterSymbol(nameId, constantSymbol);
     }
 
     /**
      * Enter a new type symbol.
      *
-     * @param name the name of the type.
+     * @param nameId the name id of the type.
      */
-    public TypeSymbol enterTypeSymbol(String name) {
-        TypeSymbol typeSymbol = new TypeSymbol(name, !isInLocalScope);
-        if (isInLocalScope) localSymbols.put(name, typeSymbol);
-        else globalSymbols.put(name, typeSymbol);
+    public TypeSymbol enterTypeSymbol(int nameId) {
+        TypeSymbol typeSymbol = new TypeSymbol(names.getName(nameId), !isInLocalScope);
+        enterSymbol(nameId, typeSymbol);
         return typeSymbol;
     }
 
     /**
      * Enter a new function symbol.
      *
-     * @param name       the name of the function.
+     * @param nameId     the name id of the function.
      * @param label      the label of the function.
      * @param returnType the return type of the function.
      */
-    public FcnSymbol enterFcnSymbol(String name, Label label, List<TypeSymbol> paramTypes, TypeSymbol returnType) {
+    public FcnSymbol enterFcnSymbol(int nameId, Label label, List<TypeSymbol> paramTypes, TypeSymbol returnType) {
+        String name = names.getName(nameId);
         FcnSymbol fcnSymbol = new FcnSymbol(name, label, paramTypes, returnType);
-        globalSymbols.put(name, new FcnSymbol(name, label, paramTypes, returnType));
+        ensureCapacity(nameId);
+        globalSymbols[nameId] = new FcnSymbol(name, label, paramTypes, returnType);
         return fcnSymbol;
     }
 
@@ -118,14 +132,14 @@ public class SymbolTable {
      * then local scope, then in the global scope.
      * If the symbol is not found, null is returned.
      *
-     * @param name the name of the symbol.
+     * @param nameId the name id of the symbol.
      * @return the symbol of the given name.
      */
-    public Symbol lookup(String name) {
-        if (BUILT_IN_SYMBOLS.containsKey(name)) return BUILT_IN_SYMBOLS.get(name);
-        if (isInLocalScope && localSymbols.containsKey(name)) return localSymbols.get(name);
-        if (globalSymbols.containsKey(name)) return globalSymbols.get(name);
-        return null;
+    public Symbol lookup(int nameId) {
+        if (nameId >= builtInSymbols.length) return null;
+        if (builtInSymbols[nameId] != null) return builtInSymbols[nameId];
+        if (isInLocalScope && localSymbols[nameId] != null) return localSymbols[nameId];
+        return globalSymbols[nameId];
     }
 
     /**
@@ -134,20 +148,55 @@ public class SymbolTable {
      * If in local scope, this will check the local scope then.
      * Otherwise, the global scope will be checked.
      *
-     * @param name the name of the symbol.
+     * @param nameId the name id of the symbol.
      * @return whether the given symbol is already defined.
      */
-    public boolean alreadyDefinedInScope(String name) {
-        if (BUILT_IN_SYMBOLS.containsKey(name)) return true;
-        if (isInLocalScope) return localSymbols.containsKey(name);
-        return globalSymbols.containsKey(name);
+    public boolean alreadyDefinedInScope(int nameId) {
+        if (nameId >= builtInSymbols.length) return false;
+        if (builtInSymbols[nameId] != null) return true;
+        if (isInLocalScope) return localSymbols[nameId] != null;
+        return globalSymbols[nameId] != null;
     }
 
     @Override
     public String toString() {
         StringJoiner sj = new StringJoiner("\n");
         sj.add("Symbols: ");
-        globalSymbols.forEach((key, value) -> sj.add("\t" + value));
+        for (Symbol symbol : globalSymbols) {
+            if (symbol != null) sj.add("\t" + symbol);
+        }
         return sj.toString();
     }
+
+    // -----------------------------------------------------------------------------------------------------------------
+
+    private void enterSymbol(int nameId, Symbol symbol) {
+        ensureCapacity(nameId);
+        if (!isInLocalScope) {
+            globalSymbols[nameId] = symbol;
+            return;
+        }
+        if (localSymbols[nameId] == null) {
+            if (localCount == localNameIds.length) {
+                localNameIds = Arrays.copyOf(localNameIds, localCount * 2);
+            }
+            localNameIds[localCount++] = nameId;
+        }
+        localSymbols[nameId] = symbol;
+    }
+
+    private void clearLocalSymbols() {
+        for (int i = 0; i < localCount; i++) {
+            localSymbols[localNameIds[i]] = null;
+        }
+        localCount = 0;
+    }
+
+    private void ensureCapacity(int nameId) {
+        if (nameId < builtInSymbols.length) return;
+        int capacity = Math.max(builtInSymbols.length * 2, nameId + 1);
+        builtInSymbols = Arrays.copyOf(builtInSymbols, capacity);
+        globalSymbols = Arrays.copyOf(globalSymbols, capacity);
+        localSymbols = Arrays.copyOf(localSymbols, capacity);
+    }
 }
@@ -19,6 +19,18 @@ public class Instruction {
         this.args = args;
     }
 
+    public Label getLabel() {
+        return label;
+    }
+
+    public InstructionMnemonic getInstructionMnemonic() {
+        return instructionMnemonic;
+    }
+
+    public Object[] getArgs() {
+        return args;
+    }
+
     public void attachLabel(Label label) {
         // If there is a label already, rename new label to match it silently.
         if (this.label != null) label.setIndex(this.label.getIndex());
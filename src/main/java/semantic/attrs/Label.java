@@ -2,13 +2,16 @@ package semantic.attrs;
 
 import java.util.Objects;
 
+/**
+ * Position in the generated code that branches refer to.
+ * Indices are allocated by the compilation that creates the labels,
+ * so that compilations sharing a JVM number their labels independently.
+ */
 public class Label {
-    private static int labelCount = 0;
-
     private int index;
 
-    public Label() {
-        this.index = labelCount++;
+    public Label(int index) {
+        this.index = index;
     }
 
     public void setIndex(int index) {
@@ -0,0 +1,71 @@
+package semantic.cfg;
+
+import semantic.attrs.Instruction;
+import semantic.attrs.Label;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Straight-line run of instructions that is only entered at its start and only left at its end.
+ * The label of the block is kept apart from its instructions, so that they can be rewritten freely,
+ * and is attached to the first instruction again when the block is lowered.
+ */
+public class BasicBlock {
+    private final int index;
+    private final Label label;
+    private final List<Instruction> instructions;
+    private final List<BasicBlock> successors;
+    private final List<BasicBlock> predecessors;
+
+    BasicBlock(int index, Label label, List<Instruction> instructions) {
+        this.index = index;
+        this.label = label;
+        this.instructions = instructions;
+        this.successors = new ArrayList<>();
+        this.predecessors = new ArrayList<>();
+    }
+
+    /**
+     * Get the position of the block in the code.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public Label getLabel() {
+        return label;
+    }
+
+    /**
+     * Get the instructions of the block, none of which carries a label. The list can be modified.
+     */
+    public List<Instruction> getInstructions() {
+        return instructions;
+    }
+
+    /**
+     * Get the blocks control can pass to from this block, in the order of the branch operands.
+     * A block that ends without a branch falls through to the next block of the code.
+     */
+    public List<BasicBlock> getSuccessors() {
+        return Collections.unmodifiableList(successors);
+    }
+
+    public List<BasicBlock> getPredecessors() {
+        return Collections.unmodifiableList(predecessors);
+    }
+
+    void addSuccessor(BasicBlock successor) {
+        if (!successors.contains(successor)) {
+            successors.add(successor);
+            successor.predecessors.add(this);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return label != null ? label.toString() : "B" + index;
+    }
+}
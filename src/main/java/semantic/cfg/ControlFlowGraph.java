@@ -0,0 +1,177 @@
+package semantic.cfg;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Control flow graph of a function, or of the main program: the blocks reachable from its entry.
+ * Calls do not leave the graph, since control comes back to the instruction after them.
+ * The dominator tree is computed when the graph is built, with the iterative algorithm of
+ * Cooper, Harvey and Kennedy over the blocks in reverse postorder.
+ */
+public class ControlFlowGraph {
+    private static final int NOT_REACHED = -1;
+
+    private final BasicBlock entry;
+    // Blocks in reverse postorder, starting with the entry.
+    private final List<BasicBlock> blocks;
+    // Position of each block of the graph in reverse postorder.
+    // Sized by the graph rather than the program, since a program has a graph per function.
+    private final Map<BasicBlock, Integer> order;
+    // Position of the immediate dominator of each block, by position. The entry dominates itself.
+    private final int[] immediateDominators;
+
+    ControlFlowGraph(BasicBlock entry) {
+        this.entry = entry;
+        this.order = new HashMap<>();
+        this.blocks = reversePostorder(entry, order);
+        this.immediateDominators = computeImmediateDominators();
+    }
+
+    public BasicBlock getEntry() {
+        return entry;
+    }
+
+    /**
+     * Get the blocks of the graph in reverse postorder, so that a block comes before the blocks it dominates.
+     */
+    public List<BasicBlock> getBlocks() {
+        return Collections.unmodifiableList(blocks);
+    }
+
+    public boolean contains(BasicBlock block) {
+        return order.containsKey(block);
+    }
+
+    /**
+     * Get the immediate dominator of a block.
+     *
+     * @param block a block of the graph.
+     * @return the immediate dominator, or null for the entry.
+     */
+    public BasicBlock getImmediateDominator(BasicBlock block) {
+        int position = getPosition(block);
+        return position == 0 ? null : blocks.get(immediateDominators[position]);
+    }
+
+    /**
+     * Get the children of a block in the dominator tree.
+     *
+     * @param block a block of the graph.
+     * @return the blocks the given block immediately dominates, in reverse postorder.
+     */
+    public List<BasicBlock> getDominatedBlocks(BasicBlock block) {
+        int position = getPosition(block);
+        List<BasicBlock> dominated = new ArrayList<>();
+        for (int i = 1; i < blocks.size(); i++) {
+            if (immediateDominators[i] == position) {
+                dominated.add(blocks.get(i));
+            }
+        }
+        return dominated;
+    }
+
+    /**
+     * Check whether every path from the entry to a block passes through another block.
+     * A block dominates itself.
+     */
+    public boolean dominates(BasicBlock dominator, BasicBlock block) {
+        int dominatorPosition = getPosition(dominator);
+        int position = getPosition(block);
+        // Dominators come earlier in reverse postorder, so walk up until passing the candidate.
+        while (position > dominatorPosition) {
+            position = immediateDominators[position];
+        }
+        return position == dominatorPosition;
+    }
+
+    private int getPosition(BasicBlock block) {
+        if (!contains(block)) {
+            throw new IllegalArgumentException("Block " + block + " is not reachable from " + entry + ".");
+        }
+        return order.get(block);
+    }
+
+    /**
+     * Order the blocks reachable from the entry in reverse postorder, filling in their positions.
+     */
+    private static List<BasicBlock> reversePostorder(BasicBlock entry, Map<BasicBlock, Integer> order) {
+        List<BasicBlock> postorder = new ArrayList<>();
+        // Iterative depth first search, with the next successor to visit of each block on the path.
+        // Visited blocks are marked in the order map until their positions are known.
+        BasicBlock[] path = new BasicBlock[16];
+        int[] nextSuccessor = new int[16];
+        int depth = 0;
+        path[depth++] = entry;
+        order.put(entry, NOT_REACHED);
+        while (depth > 0) {
+            BasicBlock block = path[depth - 1];
+            List<BasicBlock> successors = block.getSuccessors();
+            if (nextSuccessor[depth - 1] < successors.size()) {
+                BasicBlock successor = successors.get(nextSuccessor[depth - 1]++);
+                if (!order.containsKey(successor)) {
+                    order.put(successor, NOT_REACHED);
+                    if (depth == path.length) {
+                        path = Arrays.copyOf(path, depth * 2);
+                        nextSuccessor = Arrays.copyOf(nextSuccessor, depth * 2);
+                    }
+                    path[depth] = successor;
+                    nextSuccessor[depth] = 0;
+                    depth++;
+                }
+            } else {
+                postorder.add(block);
+                depth--;
+            }
+        }
+        Collections.reverse(postorder);
+        for (int i = 0; i < postorder.size(); i++) {
+            order.put(postorder.get(i), i);
+        }
+        return postorder;
+    }
+
+    private int[] computeImmediateDominators() {
+        int[] dominators = new int[blocks.size()];
+        Arrays.fill(dominators, NOT_REACHED);
+        dominators[0] = 0;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int position = 1; position < blocks.size(); position++) {
+                int dominator = NOT_REACHED;
+                for (BasicBlock predecessor : blocks.get(position).getPredecessors()) {
+                    int predecessorPosition = order.getOrDefault(predecessor, NOT_REACHED);
+                    // Predecessors outside the graph, or not processed yet, do not constrain the dominator.
+                    if (predecessorPosition == NOT_REACHED || dominators[predecessorPosition] == NOT_REACHED) {
+                        continue;
+                    }
+                    dominator = dominator == NOT_REACHED
+                            ? predecessorPosition
+                            : intersect(dominators, predecessorPosition, dominator);
+                }
+                if (dominators[position] != dominator) {
+                    dominators[position] = dominator;
+                    changed = true;
+                }
+            }
+        }
+        return dominators;
+    }
+
+    private static int intersect(int[] dominators, int first, int second) {
+        while (first != second) {
+            while (first > second) {
+                first = dominators[first];
+            }
+            while (second > first) {
+                second = dominators[second];
+            }
+        }
+        return first;
+    }
+}
@@ -0,0 +1,159 @@
+package semantic.cfg;
+
+import semantic.attrs.Instruction;
+import semantic.attrs.InstructionMnemonic;
+import semantic.attrs.Label;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Generated code split into basic blocks, with a control flow graph for the main program and each function.
+ * Blocks start at the first instruction, at labelled instructions and after GOTO, COND, RTN and HALT.
+ * The main program is entered at the first instruction, and functions at the labels pushed by CODE.
+ * Blocks keep their order in the code, so that lowering them gives back the code they were built from,
+ * with any changes made to their instructions.
+ */
+public class ProgramGraph {
+    private final List<BasicBlock> blocks;
+    private final List<ControlFlowGraph> functions;
+
+    private ProgramGraph(List<BasicBlock> blocks, List<ControlFlowGraph> functions) {
+        this.blocks = blocks;
+        this.functions = functions;
+    }
+
+    /**
+     * Build the graphs of generated code.
+     *
+     * @param code the code, with its labels attached.
+     * @return the graphs of the code.
+     * @throws IllegalStateException if a branch refers to a label that is not attached to any instruction.
+     */
+    public static ProgramGraph build(List<Instruction> code) {
+        List<BasicBlock> blocks = splitBlocks(code);
+        Map<Integer, BasicBlock> labelledBlocks = new HashMap<>();
+        for (BasicBlock block : blocks) {
+            if (block.getLabel() != null) {
+                labelledBlocks.put(block.getLabel().getIndex(), block);
+            }
+        }
+
+        // Entries by block index, so that functions are in the order of the code.
+        Map<Integer, BasicBlock> entries = new TreeMap<>();
+        if (!blocks.isEmpty()) {
+            entries.put(0, blocks.get(0));
+        }
+        for (int i = 0; i < blocks.size(); i++) {
+            BasicBlock block = blocks.get(i);
+            for (Instruction instruction : block.getInstructions()) {
+                if (instruction.getInstructionMnemonic() == InstructionMnemonic.CODE) {
+                    BasicBlock entry = getBlock(labelledBlocks, instruction.getArgs()[0]);
+                    entries.put(entry.getIndex(), entry);
+                }
+            }
+
+            Instruction last = block.getInstructions().get(block.getInstructions().size() - 1);
+            switch (last.getInstructionMnemonic()) {
+                case GOTO:
+                case COND:
+                    for (Object target : last.getArgs()) {
+                        block.addSuccessor(getBlock(labelledBlocks, target));
+                    }
+                    break;
+                case RTN:
+                case HALT:
+                    break;
+                default:
+                    if (i + 1 < blocks.size()) {
+                        block.addSuccessor(blocks.get(i + 1));
+                    }
+                    break;
+            }
+        }
+
+        List<ControlFlowGraph> functions = new ArrayList<>();
+        for (BasicBlock entry : entries.values()) {
+            functions.add(new ControlFlowGraph(entry));
+        }
+        return new ProgramGraph(blocks, functions);
+    }
+
+    /**
+     * Get all the blocks in the order of the code, including blocks that cannot be reached.
+     */
+    public List<BasicBlock> getBlocks() {
+        return Collections.unmodifiableList(blocks);
+    }
+
+    /**
+     * Get the graph of the main program, followed by the graphs of the functions in the order of the code.
+     */
+    public List<ControlFlowGraph> getFunctions() {
+        return Collections.unmodifiableList(functions);
+    }
+
+    /**
+     * Lower the blocks back to a list of instructions, attaching the label of each block to its first instruction.
+     * A labelled block left without instructions becomes a NOP, since branches may still refer to it.
+     *
+     * @return the code of all the blocks, in order.
+     */
+    public List<Instruction> lower() {
+        List<Instruction> code = new ArrayList<>();
+        for (BasicBlock block : blocks) {
+            List<Instruction> instructions = block.getInstructions();
+            Label label = block.getLabel();
+            if (instructions.isEmpty()) {
+                if (label != null) {
+                    code.add(new Instruction(label, InstructionMnemonic.NOP));
+                }
+                continue;
+            }
+            Instruction first = instructions.get(0);
+            code.add(label == null ? first : new Instruction(label, first.getInstructionMnemonic(), first.getArgs()));
+            code.addAll(instructions.subList(1, instructions.size()));
+        }
+        return code;
+    }
+
+    private static List<BasicBlock> splitBlocks(List<Instruction> code) {
+        List<BasicBlock> blocks = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < code.size(); i++) {
+            boolean endsBlock = i + 1 == code.size() || code.get(i + 1).getLabel() != null;
+            switch (code.get(i).getInstructionMnemonic()) {
+                case GOTO:
+                case COND:
+                case RTN:
+                case HALT:
+                    endsBlock = true;
+                    break;
+                default:
+                    break;
+            }
+            if (!endsBlock) continue;
+
+            Instruction first = code.get(start);
+            List<Instruction> instructions = new ArrayList<>(code.subList(start, i + 1));
+            // The label is kept by the block instead.
+            instructions.set(0, new Instruction(first.getInstructionMnemonic(), first.getArgs()));
+            blocks.add(new BasicBlock(blocks.size(), first.getLabel(), instructions));
+            start = i + 1;
+        }
+        return blocks;
+    }
+
+    private static BasicBlock getBlock(Map<Integer, BasicBlock> labelledBlocks, Object target) {
+        Label label = (Label) target;
+        BasicBlock block = labelledBlocks.get(label.getIndex());
+        if (block == null) {
+            throw new IllegalStateException("Label " + label + " is not attached to an instruction.");
+        }
+        return block;
+    }
+}
@@ -0,0 +1,108 @@
+package lexer;
+
+import lexer.tokens.TokenKind;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CharReaderTest {
+    // Small enough to keep the test files to a few kilobytes.
+    private static final int HEAP_READ_LIMIT = 4096;
+    private static final String PROGRAM = "program p:\nbegin\n  output(\"caf\u00e9\")\nend p.\n";
+
+    @Test
+    void mapsLargeAsciiFile() throws IOException {
+        String program = PROGRAM.replace('\u00e9', 'e');
+        Path file = writeLargeFile(program);
+        try (CharReader reader = CharReader.from(file, HEAP_READ_LIMIT)) {
+            assertTrue(reader instanceof MappedCharReader);
+            assertLexesProgram(reader, program);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void mapsLargeNonAsciiFile() throws IOException {
+        Path file = writeLargeFile(PROGRAM);
+        try (CharReader reader = CharReader.from(file, HEAP_READ_LIMIT)) {
+            assertTrue(reader instanceof MappedCharReader);
+            assertLexesProgram(reader, PROGRAM);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void decodesMappedBlocksLikeWholeFile() throws IOException {
+        // Characters of two, three and four bytes, and a byte that is not valid UTF-8, straddle the block boundaries.
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            text.append("# caf\u00e9 \u20ac \ud83d\ude00 ").append(i).append('\n');
+        }
+        byte[] utf8 = text.toString().getBytes(StandardCharsets.UTF_8);
+        byte[] bytes = Arrays.copyOf(utf8, utf8.length + 2);
+        bytes[utf8.length] = (byte) 0xFF;
+        bytes[utf8.length + 1] = 'x';
+        String expected = new String(bytes, StandardCharsets.UTF_8);
+        Path file = Files.createTempFile("winzig", "");
+        try {
+            Files.write(file, bytes);
+            for (int blockSize : new int[]{1, 2, 3, 5, 7, 64, 1 << 20}) {
+                try (MappedCharReader reader = MappedCharReader.open(file, blockSize)) {
+                    assertEquals(expected.length(), reader.charBufferLength);
+                    assertEquals(expected, reader.getChars(0, reader.charBufferLength));
+                    // Read backwards, so that blocks are decoded out of order.
+                    for (int i = expected.length() - 1; i >= 0; i--) {
+                        assertEquals(expected.charAt(i), reader.charAt(i));
+                    }
+                }
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Write a file just over the heap read limit, made of comment lines followed by the given program.
+     */
+    private static Path writeLargeFile(String program) throws IOException {
+        Path file = Files.createTempFile("winzig", "");
+        String line = "# " + "-".repeat(77) + "\n";
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (long written = 0; written <= HEAP_READ_LIMIT; written += line.length()) {
+                writer.write(line);
+            }
+            writer.write(program);
+        }
+        return file;
+    }
+
+    private static void assertLexesProgram(CharReader reader, String program) {
+        PackedTokenStream tokens = new ParallelLexer(reader).lex();
+        PackedTokenStream expected = new ParallelLexer(CharReader.from(program)).lex();
+        assertEquals(expected.size(), tokens.size());
+        // Offsets are shifted by the comments, but the string literal keeps its text and its length in characters.
+        int expectedLiteral = findStringLiteral(expected);
+        int literal = findStringLiteral(tokens);
+        assertEquals(expected.getValue(expectedLiteral), tokens.getValue(literal));
+        assertEquals(expected.getEndOffset(expectedLiteral) - expected.getStartOffset(expectedLiteral),
+                tokens.getEndOffset(literal) - tokens.getStartOffset(literal));
+    }
+
+    private static int findStringLiteral(PackedTokenStream tokens) {
+        int index = 0;
+        while (tokens.getKind(index) != TokenKind.STRING_LITERAL) {
+            index++;
+        }
+        return index;
+    }
+}
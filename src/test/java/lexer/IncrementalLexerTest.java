@@ -0,0 +1,84 @@
+package lexer;
+
+import lexer.tokens.Token;
+import lexer.tokens.TokenKind;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class IncrementalLexerTest {
+    private static final int EDIT_COUNT = 2000;
+    // Fragments that open or close constructs spanning tokens or lines, mixed with ordinary tokens.
+    private static final String[] FRAGMENTS = {
+            "", " ", "\n", "\r\n", "\t", "{", "}", "{ comment }", "#", "# comment\n", "\"", "\"string\"",
+            "'", "'a'", "''", ":", ":=", ":=:", "=", "<", ">", "<=", "<>", ".", "..", ";", "(", ")",
+            "x", "_y1", "begin", "end", "program", "beginning", "1", "42", "+", "-", "*", "@",
+    };
+
+    @Test
+    void editsMatchFullRelex() throws IOException {
+        Random random = new Random(42);
+        for (String file : new String[]{"examples/winzig_01", "examples/winzig_12", "examples/winzig_15"}) {
+            String text = new String(Files.readAllBytes(Paths.get(file)), StandardCharsets.UTF_8);
+            IncrementalLexer lexer = new IncrementalLexer(text);
+            assertTokens(text, lexer);
+            for (int edit = 0; edit < EDIT_COUNT; edit++) {
+                int offset = random.nextInt(text.length() + 1);
+                int removedLength = Math.min(random.nextInt(8), text.length() - offset);
+                String inserted = FRAGMENTS[random.nextInt(FRAGMENTS.length)];
+                lexer.edit(offset, removedLength, inserted);
+                text = text.substring(0, offset) + inserted + text.substring(offset + removedLength);
+                assertEquals(text, lexer.getText());
+                assertTokens(text, lexer);
+            }
+        }
+    }
+
+    @Test
+    void highlightsCurrentText() {
+        IncrementalLexer lexer = new IncrementalLexer("program p:\nbegin\n  x := 1\nend p.\n");
+        lexer.edit(lexer.getText().indexOf("1"), 1, "y + 2");
+        lexer.edit(0, 0, "# header\n");
+        String text = lexer.getText();
+        CharReader fullReader = CharReader.from(text);
+        for (int i = 0; i < lexer.size(); i++) {
+            Token token = lexer.getToken(i);
+            assertEquals(fullReader.highlightedSegment(token), lexer.highlightedSegment(token));
+        }
+    }
+
+    private static void assertTokens(String text, IncrementalLexer lexer) {
+        List<Token> expected = lexAll(text);
+        assertEquals(expected.size(), lexer.size(), text);
+        for (int i = 0; i < expected.size(); i++) {
+            Token expectedToken = expected.get(i);
+            Token actualToken = lexer.getToken(i);
+            String message = "token " + i + " of:\n" + text;
+            assertEquals(expectedToken.getKind(), actualToken.getKind(), message);
+            assertEquals(expectedToken.getValue(), actualToken.getValue(), message);
+            assertEquals(expectedToken.getFullStartOffset(), actualToken.getFullStartOffset(), message);
+            assertEquals(expectedToken.getStartOffset(), actualToken.getStartOffset(), message);
+            assertEquals(expectedToken.getEndOffset(), actualToken.getEndOffset(), message);
+            assertEquals(expectedToken.getFullEndOffset(), actualToken.getFullEndOffset(), message);
+        }
+    }
+
+    private static List<Token> lexAll(String text) {
+        WinZigLexer lexer = new WinZigLexer(CharReader.from(text), true);
+        List<Token> tokens = new ArrayList<>();
+        Token token;
+        do {
+            token = lexer.read();
+            tokens.add(token);
+        } while (token.getKind() != TokenKind.EOF_TOKEN);
+        return tokens;
+    }
+}
@@ -0,0 +1,262 @@
+package parser;
+
+import lexer.CharReader;
+import lexer.PackedTokenStream;
+import lexer.ParallelLexer;
+import org.junit.jupiter.api.Test;
+import parser.nodes.ASTNode;
+import parser.nodes.FlatTree;
+import parser.nodes.LazyASTNode;
+import parser.nodes.Node;
+import parser.nodes.NodeKind;
+import parser.nodes.TreeWriter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WinZigParserTest {
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+    // Deep enough to overflow the call stack of a recursive parser or tree walk.
+    private static final int DEPTH = 100_000;
+    // Both bodies report errors, which lazy parsing adds when each body is expanded.
+    // The parser recovers from them within the bodies, so the trees do not depend on where bodies end.
+    private static final String MALFORMED_BODIES = "program p:\n"
+            + "var x: integer;\n"
+            + "function f(a: integer): integer;\n"
+            + "begin\n"
+            + "  output(a, );\n"
+            + "  return (a)\n"
+            + "end f;\n"
+            + "function g(a: integer): integer;\n"
+            + "begin\n"
+            + "  x := a * ;\n"
+            + "  return (a +)\n"
+            + "end g;\n"
+            + "begin\n"
+            + "  x := f(g(1))\n"
+            + "end p.\n";
+    // The second begin of the body is never closed, so the body runs into the end of the file.
+    private static final String TRUNCATED_BODY = "program p:\n"
+            + "function f(x:integer):integer;\n"
+            + "begin\n"
+            + "  x := 1;\n"
+            + "  begin\n"
+            + "  x := 2;\n";
+    // Case clauses are only closed by otherwise or end, neither of which comes before the end of the file.
+    private static final String TRUNCATED_CASE = "program p:\n"
+            + "begin\n"
+            + "  case 1 of\n"
+            + "    1: output(1);\n";
+    // No case clause can start with the stray dot.
+    private static final String STRAY_CASE_TOKEN = "program p:\n"
+            + "begin\n"
+            + "  case 1 of\n"
+            + "    1: output(1);\n"
+            + "  . 2: output(2);\n"
+            + "  end\n"
+            + "end p.\n";
+
+    @Test
+    void lazyBodiesExpandLikeEagerParse() throws IOException {
+        List<String> texts = new ArrayList<>();
+        try (Stream<Path> paths = Files.walk(Paths.get("examples"))) {
+            // Expected trees of the examples are kept next to them with an extension.
+            List<Path> files = paths.filter(Files::isRegularFile)
+                    .filter(path -> !path.getFileName().toString().contains("."))
+                    .sorted()
+                    .collect(Collectors.toList());
+            for (Path file : files) {
+                texts.add(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+            }
+        }
+        assertFalse(texts.isEmpty());
+        texts.add(MALFORMED_BODIES);
+
+        for (String text : texts) {
+            PackedTokenStream tokens = lex(text);
+            WinZigParser eager = new WinZigParser(tokens);
+            String expected = print(eager.parse());
+            WinZigParser lazy = new WinZigParser(tokens);
+            ASTNode program = lazy.parseSkeleton();
+            List<LazyASTNode> bodies = new ArrayList<>();
+            for (Node fcn : ((ASTNode) program.getChild(4)).getChildren()) {
+                for (Node child : ((ASTNode) fcn).getChildren()) {
+                    if (child instanceof LazyASTNode) {
+                        bodies.add((LazyASTNode) child);
+                    }
+                }
+            }
+            assertEquals(((ASTNode) program.getChild(4)).getSize(), bodies.size());
+            for (LazyASTNode body : bodies) {
+                assertFalse(body.isParsed());
+            }
+
+            // Writing the tree expands every body.
+            assertEquals(expected, print(program));
+            for (LazyASTNode body : bodies) {
+                assertTrue(body.isParsed());
+            }
+            assertEquals(eager.getDiagnosticCount(), lazy.getDiagnosticCount());
+            assertEquals(sortedLines(eager.collectErrors()), sortedLines(lazy.collectErrors()));
+        }
+        // The malformed program reports errors in both bodies.
+        WinZigParser malformed = new WinZigParser(lex(MALFORMED_BODIES));
+        malformed.parse();
+        assertTrue(malformed.getDiagnosticCount() >= 2, malformed.collectErrors());
+    }
+
+    @Test
+    void skeletonOfTruncatedBodyExpandsLikeEagerParse() {
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            PackedTokenStream tokens = lex(TRUNCATED_BODY);
+            WinZigParser eager = new WinZigParser(tokens);
+            String expected = print(eager.parse());
+            WinZigParser lazy = new WinZigParser(tokens);
+            String actual = print(lazy.parseSkeleton());
+            assertEquals(expected, actual);
+            // Diagnostics of a lazy body are added when it is expanded, after those of the rest of the program.
+            assertEquals(eager.getDiagnosticCount(), lazy.getDiagnosticCount());
+            assertEquals(sortedLines(eager.collectErrors()), sortedLines(lazy.collectErrors()));
+            assertTrue(lazy.hasErrors());
+        });
+    }
+
+    @Test
+    void parallelParseOfTruncatedBodyMatchesEagerParse() {
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            PackedTokenStream tokens = lex(TRUNCATED_BODY);
+            WinZigParser eager = new WinZigParser(tokens);
+            String expected = print(eager.parse());
+            for (int parallelism : new int[]{1, 4}) {
+                ForkJoinPool pool = new ForkJoinPool(parallelism);
+                try {
+                    WinZigParser parallel = new WinZigParser(tokens);
+                    assertEquals(expected, print(parallel.parseParallel(pool)));
+                    assertEquals(eager.collectErrors(), parallel.collectErrors());
+                } finally {
+                    pool.shutdown();
+                }
+            }
+        });
+    }
+
+    @Test
+    void caseClausesStopAtTokensThatCannotStartClause() {
+        assertTimeoutPreemptively(TIMEOUT, () -> {
+            for (String text : new String[]{TRUNCATED_CASE, STRAY_CASE_TOKEN}) {
+                PackedTokenStream tokens = lex(text);
+                WinZigParser eager = new WinZigParser(tokens);
+                String expected = print(eager.parse());
+                assertTrue(eager.hasErrors());
+                WinZigParser parallel = new WinZigParser(tokens);
+                assertEquals(expected, print(parallel.parseParallel()));
+                assertEquals(eager.collectErrors(), parallel.collectErrors());
+            }
+        });
+    }
+
+    @Test
+    void findsNodesInBlocksWithEmptyStatements() {
+        // Semicolons before the first and after the last statement parse as empty null statements.
+        String[] texts = {
+                "program p: var x: integer; begin x := 1; output(x); end p.",
+                "program p: var x: integer; begin ; x := 1; output(x) end p.",
+                "program p: var x: integer; begin ; x := 1;; output(x); end p.",
+        };
+        for (String text : texts) {
+            PackedTokenStream tokens = lex(text);
+            ASTNode root = new WinZigParser(tokens).parse();
+            ASTNode block = (ASTNode) root.getChild(5);
+            assertEquals(NodeKind.BLOCK, block.getKind());
+            int blockStart = text.indexOf("x :=");
+            int blockEnd = text.indexOf("x)") + 1;
+            assertEquals(blockStart, block.getStartOffset(), text);
+            assertEquals(blockEnd, block.getEndOffset(), text);
+
+            // Keywords are not kept, so the innermost node around one is the block.
+            assertSame(block, root.getNodeAt(text.indexOf("output")), text);
+            Node output = null;
+            for (Node statement : block.getChildren()) {
+                if (((ASTNode) statement).getKind() == NodeKind.OUTPUT_STATEMENT) {
+                    output = statement;
+                }
+            }
+            Node outputOperand = ((ASTNode) ((ASTNode) output).getChild(0)).getChild(0);
+            assertSame(outputOperand, root.getNodeAt(text.indexOf("x)")), text);
+            assertEquals(text.indexOf("1;"), root.getNodeAt(text.indexOf("1;")).getStartOffset(), text);
+
+            FlatTree tree = new WinZigParser(tokens).parseFlat();
+            int flatBlock = tree.getChild(tree.getRoot(), 5);
+            assertEquals(NodeKind.BLOCK, tree.getKind(flatBlock));
+            assertEquals(blockStart, tree.getStartOffset(flatBlock), text);
+            assertEquals(blockEnd, tree.getEndOffset(flatBlock), text);
+        }
+    }
+
+    @Test
+    void parsesDeepExpressions() {
+        String leftNested = "x" + " + x".repeat(DEPTH);
+        String rightNested = "x + (".repeat(DEPTH) + "x" + ")".repeat(DEPTH);
+        String prefixed = "x + " + "-(".repeat(DEPTH) + "x" + ")".repeat(DEPTH);
+        for (String expression : new String[]{leftNested, rightNested, prefixed}) {
+            String text = "program p:\nbegin\n  x := " + expression + "\nend p.\n";
+            int expressionStart = text.indexOf(expression);
+            PackedTokenStream tokens = lex(text);
+            AbstractParser[] parsers = {new WinZigParser(tokens), new TableDrivenParser(tokens)};
+            int treeSize = new WinZigParser(tokens).parseFlat().size();
+            for (AbstractParser parser : parsers) {
+                FlatTree tree = parser.parseFlat();
+                assertFalse(parser.hasErrors(), parser.collectErrors());
+                assertEquals(treeSize, tree.size());
+                // The outermost addition comes first in preorder.
+                int addition = 0;
+                while (tree.isIdentifier(addition) || tree.getKind(addition) != NodeKind.ADD_EXPRESSION) {
+                    addition++;
+                }
+                assertEquals(expressionStart, tree.getStartOffset(addition));
+                // Closing brackets are not kept, so the expression ends at its last operand.
+                assertEquals(text.lastIndexOf('x') + 1, tree.getEndOffset(addition));
+            }
+            ASTNode root = new WinZigParser(tokens).parse();
+            // The program spans from its name to the name after its body, since keywords are not kept.
+            assertEquals(text.indexOf("p:"), root.getStartOffset());
+            assertEquals(text.lastIndexOf("p.") + 1, root.getEndOffset());
+        }
+    }
+
+    private static PackedTokenStream lex(String text) {
+        return new ParallelLexer(CharReader.from(text)).lex();
+    }
+
+    private static List<String> sortedLines(String text) {
+        List<String> lines = Arrays.asList(text.split("\n"));
+        Collections.sort(lines);
+        return lines;
+    }
+
+    private static String print(ASTNode root) throws IOException {
+        StringWriter out = new StringWriter();
+        TreeWriter writer = new TreeWriter(out);
+        writer.write(root);
+        writer.flush();
+        return out.toString();
+    }
+}
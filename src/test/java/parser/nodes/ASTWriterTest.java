@@ -0,0 +1,110 @@
+package parser.nodes;
+
+import lexer.CharReader;
+import lexer.NameTable;
+import lexer.PackedTokenStream;
+import lexer.ParallelLexer;
+import lexer.tokens.TokenKind;
+import org.junit.jupiter.api.Test;
+import parser.WinZigParser;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ASTWriterTest {
+    private static final byte[] SOURCE_HASH = {1, 2, 3};
+    private static final String SMALL_PROGRAM = "program p:\nbegin\n  output(1)\nend p.\n";
+    // Bytes of the small program. Changing the format, or the order of the node or token kinds,
+    // changes them, and must come with a new ASTWriter.VERSION.
+    private static final int[] SMALL_PROGRAM_BYTES = {
+            0x57, 0x5a, 0x41, 0x53, 0x01, 0x03, 0x01, 0x02, 0x03, 0x02, 0x01, 0x70, 0x01, 0x31, 0x0b, 0x00,
+            0x07, 0xb8, 0x00, 0x10, 0x01, 0x01, 0x00, 0x03, 0x00, 0x09, 0x00, 0x06, 0x00, 0x0b, 0x01, 0x0c,
+            0x01, 0x17, 0x01, 0xb5, 0x01, 0x22, 0x01, 0xb8, 0x00, 0x0c, 0x01,
+    };
+
+    @Test
+    void kindsFitBelowLeafTag() {
+        assertTrue(NodeKind.values().length <= ASTWriter.LEAF_TAG);
+        assertTrue(TokenKind.values().length <= ASTWriter.LEAF_TAG);
+    }
+
+    @Test
+    void writesPinnedFormat() {
+        byte[] expected = new byte[SMALL_PROGRAM_BYTES.length];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = (byte) SMALL_PROGRAM_BYTES[i];
+        }
+        assertArrayEquals(expected, ASTWriter.write(parse(SMALL_PROGRAM), SOURCE_HASH));
+    }
+
+    @Test
+    void readsBackWrittenTrees() throws IOException {
+        List<Path> files;
+        try (Stream<Path> paths = Files.walk(Paths.get("examples"))) {
+            // Expected trees of the examples are kept next to them with an extension.
+            files = paths.filter(Files::isRegularFile)
+                    .filter(path -> !path.getFileName().toString().contains("."))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+        assertFalse(files.isEmpty());
+        for (Path file : files) {
+            ASTNode tree = parse(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+            ASTReader reader = new ASTReader(ByteBuffer.wrap(ASTWriter.write(tree, SOURCE_HASH)));
+            assertTrue(reader.matches(SOURCE_HASH));
+            assertFalse(reader.matches(new byte[]{1, 2, 4}));
+            ASTNode readTree = reader.read(new NameTable());
+            assertEquals(print(tree), print(readTree), file.toString());
+            assertEquals(spans(tree), spans(readTree), file.toString());
+        }
+    }
+
+    private static ASTNode parse(String text) {
+        PackedTokenStream tokens = new ParallelLexer(CharReader.from(text)).lex();
+        return new WinZigParser(tokens).parse();
+    }
+
+    /**
+     * List the offsets of all the nodes in preorder.
+     */
+    private static List<String> spans(ASTNode root) {
+        List<String> spans = new ArrayList<>();
+        Deque<Node> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            spans.add(node.getStartOffset() + "-" + node.getEndOffset());
+            if (node instanceof ASTNode) {
+                List<Node> children = ((ASTNode) node).getChildren();
+                for (int i = children.size() - 1; i >= 0; i--) {
+                    pending.push(children.get(i));
+                }
+            }
+        }
+        return spans;
+    }
+
+    private static String print(ASTNode root) throws IOException {
+        StringWriter out = new StringWriter();
+        TreeWriter writer = new TreeWriter(out);
+        writer.write(root);
+        writer.flush();
+        return out.toString();
+    }
+}
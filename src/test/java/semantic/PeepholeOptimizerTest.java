@@ -0,0 +1,123 @@
+package semantic;
+
+import org.junit.jupiter.api.Test;
+import semantic.attrs.BinaryOpType;
+import semantic.attrs.Instruction;
+import semantic.attrs.InstructionMnemonic;
+import semantic.attrs.Label;
+import semantic.attrs.OperatingSystemOpType;
+import semantic.attrs.UnaryOpType;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PeepholeOptimizerTest {
+    @Test
+    void appliesEachRule() {
+        assertRewrite(PeepholeRule.STORE_LOAD,
+                code(op(InstructionMnemonic.SGV, 0), op(InstructionMnemonic.LGV, 0), op(InstructionMnemonic.HALT)),
+                code(op(InstructionMnemonic.DUP), op(InstructionMnemonic.SGV, 0), op(InstructionMnemonic.HALT)));
+        assertRewrite(PeepholeRule.IDENTITY_OPERATION,
+                code(op(InstructionMnemonic.LGV, 0), op(InstructionMnemonic.LIT, 0),
+                        op(InstructionMnemonic.BOP, BinaryOpType.BPLUS), op(InstructionMnemonic.HALT)),
+                code(op(InstructionMnemonic.LGV, 0), op(InstructionMnemonic.HALT)));
+        assertRewrite(PeepholeRule.INCREMENT,
+                code(op(InstructionMnemonic.LGV, 0), op(InstructionMnemonic.LIT, 1),
+                        op(InstructionMnemonic.BOP, BinaryOpType.BMINUS), op(InstructionMnemonic.HALT)),
+                code(op(InstructionMnemonic.LGV, 0), op(InstructionMnemonic.UOP, UnaryOpType.UPRED),
+                        op(InstructionMnemonic.HALT)));
+        Label next = new Label(1);
+        assertRewrite(PeepholeRule.JUMP_TO_NEXT,
+                code(op(InstructionMnemonic.GOTO, next), new Instruction(next, InstructionMnemonic.HALT)),
+                code(new Instruction(next, InstructionMnemonic.HALT)));
+        assertRewrite(PeepholeRule.OUTPUT_DIGITS,
+                code(op(InstructionMnemonic.LIT, (int) '4'),
+                        op(InstructionMnemonic.SOS, OperatingSystemOpType.OUTPUTC),
+                        op(InstructionMnemonic.LIT, (int) '2'),
+                        op(InstructionMnemonic.SOS, OperatingSystemOpType.OUTPUTC),
+                        op(InstructionMnemonic.HALT)),
+                code(op(InstructionMnemonic.LIT, 42), op(InstructionMnemonic.SOS, OperatingSystemOpType.OUTPUT),
+                        op(InstructionMnemonic.HALT)));
+    }
+
+    @Test
+    void mergesLabelOfRemovedWindowIntoNextLabel() {
+        // The branch refers to both labels through their own objects, as separately generated code does.
+        List<Instruction> code = code(
+                op(InstructionMnemonic.LGV, 0),
+                op(InstructionMnemonic.COND, new Label(1), new Label(2)),
+                new Instruction(new Label(1), InstructionMnemonic.LIT, 0),
+                op(InstructionMnemonic.BOP, BinaryOpType.BPLUS),
+                new Instruction(new Label(2), InstructionMnemonic.HALT));
+        PeepholeOptimizer optimizer = new PeepholeOptimizer(EnumSet.of(PeepholeRule.IDENTITY_OPERATION));
+        List<Instruction> optimized = optimizer.optimize(code);
+
+        assertEquals(1, optimizer.getHits(PeepholeRule.IDENTITY_OPERATION));
+        assertEquals(print(code(
+                op(InstructionMnemonic.LGV, 0),
+                op(InstructionMnemonic.COND, new Label(2), new Label(2)),
+                new Instruction(new Label(2), InstructionMnemonic.HALT))), print(optimized));
+        Object[] targets = optimized.get(1).getArgs();
+        assertEquals(2, ((Label) targets[0]).getIndex());
+        assertEquals(optimized.get(2).getLabel(), targets[0]);
+    }
+
+    @Test
+    void leavesWindowWithInteriorLabel() {
+        // A branch enters between the literal and the operation, so they cannot become an increment.
+        Label loop = new Label(1);
+        List<Instruction> code = code(
+                op(InstructionMnemonic.LGV, 0),
+                op(InstructionMnemonic.LIT, 1),
+                new Instruction(loop, InstructionMnemonic.BOP, BinaryOpType.BPLUS),
+                op(InstructionMnemonic.LIT, 1),
+                op(InstructionMnemonic.GOTO, loop));
+        List<String> expected = print(code);
+        PeepholeOptimizer optimizer = new PeepholeOptimizer(EnumSet.of(PeepholeRule.INCREMENT));
+        assertEquals(expected, print(optimizer.optimize(code)));
+        assertEquals(0, optimizer.getHits(PeepholeRule.INCREMENT));
+    }
+
+    @Test
+    void removesJumpToNextLabel() {
+        // The removed jump is itself a branch target, so its label merges into the label it jumped to.
+        List<Instruction> code = code(
+                op(InstructionMnemonic.LGV, 0),
+                op(InstructionMnemonic.COND, new Label(1), new Label(2)),
+                new Instruction(new Label(1), InstructionMnemonic.GOTO, new Label(2)),
+                new Instruction(new Label(2), InstructionMnemonic.HALT));
+        PeepholeOptimizer optimizer = new PeepholeOptimizer();
+        List<Instruction> optimized = optimizer.optimize(code);
+
+        assertEquals(1, optimizer.getHits(PeepholeRule.JUMP_TO_NEXT));
+        assertEquals(print(code(
+                op(InstructionMnemonic.LGV, 0),
+                op(InstructionMnemonic.COND, new Label(2), new Label(2)),
+                new Instruction(new Label(2), InstructionMnemonic.HALT))), print(optimized));
+    }
+
+    /**
+     * Optimize code with a single rule, and check that the rule applied once.
+     */
+    private static void assertRewrite(PeepholeRule rule, List<Instruction> code, List<Instruction> expected) {
+        PeepholeOptimizer optimizer = new PeepholeOptimizer(EnumSet.of(rule));
+        assertEquals(print(expected), print(optimizer.optimize(code)), rule.toString());
+        assertEquals(1, optimizer.getHits(rule), rule.toString());
+    }
+
+    private static Instruction op(InstructionMnemonic mnemonic, Object... args) {
+        return new Instruction(mnemonic, args);
+    }
+
+    private static List<Instruction> code(Instruction... instructions) {
+        return Arrays.asList(instructions);
+    }
+
+    private static List<String> print(List<Instruction> code) {
+        return code.stream().map(Instruction::toString).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,120 @@
+package semantic;
+
+import lexer.CharReader;
+import lexer.PackedTokenStream;
+import lexer.ParallelLexer;
+import org.junit.jupiter.api.Test;
+import parser.WinZigParser;
+import parser.nodes.FlatTree;
+import semantic.attrs.Instruction;
+import semantic.attrs.InstructionMnemonic;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SemanticAnalyzerTest {
+    // Deep enough to overflow the call stack of a recursive code generator.
+    private static final int DEPTH = 100_000;
+
+    @Test
+    void compilesDeepLeftNestedExpression() {
+        // x + x + ... + x nests to the left, one addition per level.
+        StringBuilder expression = new StringBuilder("x");
+        for (int i = 0; i < DEPTH; i++) {
+            expression.append(" + x");
+        }
+        Compilation compilation = compile(expression.toString());
+        assertFalse(compilation.analyzer.hasErrors(), compilation.analyzer.collectErrors());
+        assertEquals(DEPTH, compilation.count(InstructionMnemonic.BOP));
+        assertEquals(DEPTH + 1, compilation.count(InstructionMnemonic.LGV));
+    }
+
+    @Test
+    void compilesDeepRightNestedExpression() {
+        // x * (x * (... (x) ...)) nests to the right, one multiplication per level.
+        Compilation compilation = compile("x * (".repeat(DEPTH) + "x" + ")".repeat(DEPTH));
+        assertFalse(compilation.analyzer.hasErrors(), compilation.analyzer.collectErrors());
+        assertEquals(DEPTH, compilation.count(InstructionMnemonic.BOP));
+    }
+
+    @Test
+    void compilesDeepPrefixOperators() {
+        Compilation compilation = compile("-(".repeat(DEPTH) + "x" + ")".repeat(DEPTH));
+        assertFalse(compilation.analyzer.hasErrors(), compilation.analyzer.collectErrors());
+        assertEquals(DEPTH, compilation.count(InstructionMnemonic.UOP));
+    }
+
+    @Test
+    void foldsDeepConstantExpression() {
+        // Every level folds into the literal below it.
+        Compilation compilation = compile("-(1 + ".repeat(DEPTH) + "1" + ")".repeat(DEPTH));
+        assertFalse(compilation.analyzer.hasErrors(), compilation.analyzer.collectErrors());
+        assertEquals(0, compilation.count(InstructionMnemonic.BOP));
+        assertEquals(0, compilation.count(InstructionMnemonic.UOP));
+    }
+
+    @Test
+    void compilesDeepCalls() {
+        Compilation compilation = compile("f(".repeat(DEPTH) + "x" + ")".repeat(DEPTH));
+        assertFalse(compilation.analyzer.hasErrors(), compilation.analyzer.collectErrors());
+        assertEquals(DEPTH, compilation.count(InstructionMnemonic.CALL));
+    }
+
+    @Test
+    void reportsErrorOnDeepExpression() {
+        // The outermost addition mixes a char with an integer, so its whole span is highlighted.
+        Compilation compilation = compile("'a' + " + "(x + ".repeat(DEPTH) + "x" + ")".repeat(DEPTH));
+        assertTrue(compilation.analyzer.hasErrors());
+        assertEquals(1, compilation.analyzer.getDiagnosticCount());
+    }
+
+    @Test
+    void compilesDeepExpressionFromAst() {
+        String expression = "x - (".repeat(DEPTH) + "x" + ")".repeat(DEPTH);
+        PackedTokenStream tokens = new ParallelLexer(CharReader.from(program(expression))).lex();
+        WinZigParser parser = new WinZigParser(tokens);
+        SemanticAnalyzer analyzer = new SemanticAnalyzer(tokens, tokens.getNameTable());
+        List<Instruction> code = analyzer.codeGenerate(parser.parse());
+        assertFalse(parser.hasErrors(), parser.collectErrors());
+        assertFalse(analyzer.hasErrors(), analyzer.collectErrors());
+        assertEquals(DEPTH, code.stream().filter(i -> i.getInstructionMnemonic() == InstructionMnemonic.BOP).count());
+    }
+
+    private static Compilation compile(String expression) {
+        PackedTokenStream tokens = new ParallelLexer(CharReader.from(program(expression))).lex();
+        WinZigParser parser = new WinZigParser(tokens);
+        FlatTree tree = parser.parseFlat();
+        assertFalse(parser.hasErrors(), parser.collectErrors());
+        SemanticAnalyzer analyzer = new SemanticAnalyzer(tokens, tokens.getNameTable());
+        return new Compilation(analyzer, analyzer.codeGenerate(tree));
+    }
+
+    private static String program(String expression) {
+        return "program p:\n"
+                + "var x: integer;\n"
+                + "function f(a: integer): integer;\n"
+                + "begin\n"
+                + "  return (a)\n"
+                + "end f;\n"
+                + "begin\n"
+                + "  x := " + expression + "\n"
+                + "end p.\n";
+    }
+
+    private static final class Compilation {
+        private final SemanticAnalyzer analyzer;
+        private final List<Instruction> code;
+
+        private Compilation(SemanticAnalyzer analyzer, List<Instruction> code) {
+            this.analyzer = analyzer;
+            this.code = code;
+        }
+
+        private long count(InstructionMnemonic mnemonic) {
+            return code.stream().filter(instruction -> instruction.getInstructionMnemonic() == mnemonic).count();
+        }
+    }
+}
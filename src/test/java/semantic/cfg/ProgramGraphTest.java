@@ -0,0 +1,195 @@
+package semantic.cfg;
+
+import lexer.CharReader;
+import lexer.PackedTokenStream;
+import lexer.ParallelLexer;
+import org.junit.jupiter.api.Test;
+import parser.WinZigParser;
+import parser.nodes.FlatTree;
+import semantic.SemanticAnalyzer;
+import semantic.attrs.Instruction;
+import semantic.attrs.InstructionMnemonic;
+import semantic.attrs.Label;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProgramGraphTest {
+    private static final String BRANCHES = "program p:\n"
+            + "var x: integer;\n"
+            + "begin\n"
+            + "  read(x);\n"
+            + "  if x > 0 then output(1) else output(2);\n"
+            + "  while x > 0 do x := x - 1;\n"
+            + "  case x of\n"
+            + "    1: output(3);\n"
+            + "    2: output(4);\n"
+            + "    otherwise output(5)\n"
+            + "  end\n"
+            + "end p.\n";
+
+    @Test
+    void lowersExamplesToTheirCode() throws IOException {
+        List<Path> files;
+        try (Stream<Path> paths = Files.walk(Paths.get("examples"))) {
+            // Expected trees of the examples are kept next to them with an extension.
+            files = paths.filter(Files::isRegularFile)
+                    .filter(path -> !path.getFileName().toString().contains("."))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+        int compiled = 0;
+        for (Path file : files) {
+            List<Instruction> code = compile(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+            // Some examples test semantic errors, and have no complete code.
+            if (code == null) continue;
+            List<Instruction> lowered = ProgramGraph.build(code).lower();
+            assertEquals(print(code), print(lowered), file.toString());
+            compiled++;
+        }
+        assertTrue(compiled > 0);
+    }
+
+    @Test
+    void splitsBranchesIntoBlocks() {
+        List<Instruction> code = compile(BRANCHES);
+        ProgramGraph graph = ProgramGraph.build(code);
+        List<BasicBlock> blocks = graph.getBlocks();
+        // Blocks by index, with their successors in the order of the branch operands:
+        // the condition of the if, its two arms, the loop header, the loop body, the loop exit,
+        // the first case test, its clause, the second case test, its clause, otherwise, and the end.
+        List<String> expected = Arrays.asList(
+                "0 -> [1, 2]", "1 -> [3]", "2 -> [3]",
+                "3 -> [4, 5]", "4 -> [3]", "5 -> [6]",
+                "6 -> [7, 8]", "7 -> [11]", "8 -> [9, 10]", "9 -> [11]", "10 -> [11]",
+                "11 -> []");
+        List<String> actual = new ArrayList<>();
+        for (BasicBlock block : blocks) {
+            actual.add(block.getIndex() + " -> " + block.getSuccessors().stream()
+                    .map(successor -> String.valueOf(successor.getIndex()))
+                    .collect(Collectors.toList()));
+            for (BasicBlock successor : block.getSuccessors()) {
+                assertTrue(successor.getPredecessors().contains(block));
+            }
+        }
+        assertEquals(expected, actual);
+
+        // Every block but the first is a branch target, so it keeps a label apart from its instructions.
+        assertNull(blocks.get(0).getLabel());
+        for (BasicBlock block : blocks) {
+            if (block.getIndex() > 0) {
+                assertTrue(block.getLabel() != null, block.toString());
+            }
+            for (Instruction instruction : block.getInstructions()) {
+                assertNull(instruction.getLabel());
+            }
+        }
+        assertEquals(InstructionMnemonic.HALT, last(blocks.get(11)).getInstructionMnemonic());
+        // The main program has no functions, so its graph holds every block.
+        assertEquals(1, graph.getFunctions().size());
+        assertEquals(blocks.size(), graph.getFunctions().get(0).getBlocks().size());
+        assertEquals(print(code), print(graph.lower()));
+    }
+
+    @Test
+    void findsDominatorsOfLoopWithTwoExits() {
+        // entry -> header; header exits or enters the body; the body exits or continues to the latch,
+        // which goes back to the header. Both exits meet at the end.
+        Label header = new Label(1);
+        Label body = new Label(2);
+        Label latch = new Label(3);
+        Label firstExit = new Label(4);
+        Label secondExit = new Label(5);
+        Label end = new Label(6);
+        List<Instruction> code = Arrays.asList(
+                new Instruction(InstructionMnemonic.LIT, 0),
+                new Instruction(InstructionMnemonic.SGV, 0),
+                new Instruction(header, InstructionMnemonic.LGV, 0),
+                new Instruction(InstructionMnemonic.COND, body, firstExit),
+                new Instruction(body, InstructionMnemonic.LGV, 0),
+                new Instruction(InstructionMnemonic.COND, latch, secondExit),
+                new Instruction(latch, InstructionMnemonic.LGV, 0),
+                new Instruction(InstructionMnemonic.SGV, 0),
+                new Instruction(InstructionMnemonic.GOTO, header),
+                new Instruction(firstExit, InstructionMnemonic.LIT, 1),
+                new Instruction(InstructionMnemonic.GOTO, end),
+                new Instruction(secondExit, InstructionMnemonic.LIT, 2),
+                new Instruction(end, InstructionMnemonic.HALT));
+        ProgramGraph program = ProgramGraph.build(code);
+        List<BasicBlock> blocks = program.getBlocks();
+        assertEquals(7, blocks.size());
+        BasicBlock entryBlock = blocks.get(0);
+        BasicBlock headerBlock = blocks.get(1);
+        BasicBlock bodyBlock = blocks.get(2);
+        BasicBlock latchBlock = blocks.get(3);
+        BasicBlock firstExitBlock = blocks.get(4);
+        BasicBlock secondExitBlock = blocks.get(5);
+        BasicBlock endBlock = blocks.get(6);
+        assertEquals(end, endBlock.getLabel());
+
+        ControlFlowGraph graph = program.getFunctions().get(0);
+        assertSame(entryBlock, graph.getEntry());
+        assertNull(graph.getImmediateDominator(entryBlock));
+        assertSame(entryBlock, graph.getImmediateDominator(headerBlock));
+        assertSame(headerBlock, graph.getImmediateDominator(bodyBlock));
+        assertSame(bodyBlock, graph.getImmediateDominator(latchBlock));
+        assertSame(headerBlock, graph.getImmediateDominator(firstExitBlock));
+        assertSame(bodyBlock, graph.getImmediateDominator(secondExitBlock));
+        // The end is reached through either exit, so only the header dominates it.
+        assertSame(headerBlock, graph.getImmediateDominator(endBlock));
+        assertEquals(new HashSet<>(Arrays.asList(bodyBlock, firstExitBlock, endBlock)),
+                new HashSet<>(graph.getDominatedBlocks(headerBlock)));
+
+        assertTrue(graph.dominates(headerBlock, latchBlock));
+        assertTrue(graph.dominates(headerBlock, endBlock));
+        assertTrue(graph.dominates(endBlock, endBlock));
+        assertFalse(graph.dominates(latchBlock, headerBlock));
+        assertFalse(graph.dominates(bodyBlock, firstExitBlock));
+        assertFalse(graph.dominates(bodyBlock, endBlock));
+        assertFalse(graph.dominates(secondExitBlock, endBlock));
+        // Reverse postorder puts every block after its immediate dominator.
+        Set<BasicBlock> seen = new HashSet<>();
+        for (BasicBlock block : graph.getBlocks()) {
+            BasicBlock dominator = graph.getImmediateDominator(block);
+            assertTrue(dominator == null || seen.contains(dominator), block.toString());
+            seen.add(block);
+        }
+    }
+
+    /**
+     * Compile a program, or return null if it has errors.
+     */
+    private static List<Instruction> compile(String text) {
+        PackedTokenStream tokens = new ParallelLexer(CharReader.from(text)).lex();
+        WinZigParser parser = new WinZigParser(tokens);
+        FlatTree tree = parser.parseFlat();
+        SemanticAnalyzer analyzer = new SemanticAnalyzer(tokens, tokens.getNameTable());
+        List<Instruction> code = analyzer.codeGenerate(tree);
+        return parser.hasErrors() || analyzer.hasErrors() ? null : code;
+    }
+
+    private static Instruction last(BasicBlock block) {
+        List<Instruction> instructions = block.getInstructions();
+        return instructions.get(instructions.size() - 1);
+    }
+
+    private static List<String> print(List<Instruction> code) {
+        return code.stream().map(Instruction::toString).collect(Collectors.toList());
+    }
+}